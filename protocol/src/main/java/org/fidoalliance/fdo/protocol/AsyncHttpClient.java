@@ -0,0 +1,373 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.client.utils.URIBuilder;
+import org.fidoalliance.fdo.protocol.dispatch.ExceptionConsumer;
+import org.fidoalliance.fdo.protocol.message.MsgType;
+import org.fidoalliance.fdo.protocol.message.ProtocolVersion;
+
+/**
+ * Runs a protocol client without blocking a thread while messages are in flight.
+ *
+ * <p>The client's hello, bypass and completion callbacks and the configured
+ * StandardMessageDispatcher are used exactly as HttpClient.run uses them. Only the transport
+ * differs: messages are sent with java.net.http, which negotiates HTTP/2 where the server
+ * supports it, and the rendezvous delay before trying the next instruction is scheduled rather
+ * than slept. The callbacks and the dispatcher run on a shared pool of async-http-client:
+ * threads threads.</p>
+ *
+ * <p>The TLS trust and hostname checks are those of the default SSLContext, the
+ * HttpClientSupplier workers are not used. No service runs its protocol clients through this
+ * class yet.</p>
+ */
+public class AsyncHttpClient implements Closeable {
+
+  private static final LoggerService logger = new LoggerService(AsyncHttpClient.class);
+
+  private static class RootConfig {
+
+    @JsonProperty("async-http-client")
+    private AsyncConfig root = new AsyncConfig();
+  }
+
+  private static class AsyncConfig {
+
+    @JsonProperty("threads")
+    private int threads = Runtime.getRuntime().availableProcessors() * 2;
+
+    @JsonProperty("connect-timeout")
+    private long connectTimeout = 10;
+
+    @JsonProperty("request-timeout")
+    private long requestTimeout = 60;
+
+    @JsonProperty("http2")
+    private boolean http2 = true;
+  }
+
+  private static AsyncHttpClient shared;
+
+  private final java.net.http.HttpClient transport;
+  private final ExecutorService executor;
+  private final Duration requestTimeout;
+
+  /**
+   * Constructs a client with its own transport and thread pool.
+   *
+   * @param threads        The number of threads running the dispatcher.
+   * @param connectTimeout The connect timeout.
+   * @param requestTimeout The time allowed for each message exchange.
+   * @param http2          True to prefer HTTP/2.
+   */
+  public AsyncHttpClient(int threads, Duration connectTimeout, Duration requestTimeout,
+      boolean http2) {
+    final AtomicInteger count = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(Math.max(threads, 1), r -> {
+      Thread thread = new Thread(r, "async-http-client-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.requestTimeout = requestTimeout;
+    this.transport = java.net.http.HttpClient.newBuilder()
+        .version(http2 ? java.net.http.HttpClient.Version.HTTP_2
+            : java.net.http.HttpClient.Version.HTTP_1_1)
+        .connectTimeout(connectTimeout)
+        .executor(executor)
+        .build();
+  }
+
+  /**
+   * Gets the client shared by the process, configured by async-http-client.
+   *
+   * @return The shared client.
+   */
+  public static synchronized AsyncHttpClient getShared() {
+    if (shared == null) {
+      final RootConfig rootConfig = Config.getConfig(RootConfig.class);
+      final AsyncConfig config = rootConfig != null && rootConfig.root != null
+          ? rootConfig.root : new AsyncConfig();
+      shared = new AsyncHttpClient(config.threads, Duration.ofSeconds(config.connectTimeout),
+          Duration.ofSeconds(config.requestTimeout), config.http2);
+    }
+    return shared;
+  }
+
+  /**
+   * Runs a protocol client.
+   *
+   * <p>Cancelling the returned future stops the run before its next message.</p>
+   *
+   * @param client The client whose protocol is run. It must not be run again until the future
+   *               completes.
+   * @return A future that completes when the protocol has finished, or completes exceptionally
+   *     if no server could be reached.
+   */
+  public CompletableFuture<Void> run(HttpClient client) {
+    final Exchange exchange = new Exchange(client);
+    CompletableFuture.runAsync(exchange::start, executor)
+        .thenCompose(v -> exchange.next())
+        .handle((v, e) -> e == null ? CompletableFuture.<Void>completedFuture(null)
+            : exchange.failed(unwrap(e)))
+        .thenCompose(f -> f)
+        .whenComplete((v, e) -> {
+          if (e != null) {
+            exchange.result.completeExceptionally(unwrap(e));
+          } else {
+            exchange.result.complete(null);
+          }
+        });
+    return exchange.result;
+  }
+
+  @Override
+  public void close() throws IOException {
+    executor.shutdown();
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    while (e instanceof CompletionException && e.getCause() != null) {
+      e = e.getCause();
+    }
+    return e;
+  }
+
+  private static boolean isHello(MsgType msgType) {
+    return msgType == MsgType.TO1_HELLO_RV
+        || msgType == MsgType.TO2_HELLO_DEVICE
+        || msgType == MsgType.TO0_HELLO;
+  }
+
+  /**
+   * The state of one protocol run, only touched by one stage at a time.
+   */
+  private class Exchange {
+
+    private final HttpClient client;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+    private String tokenCache;
+    private StandardMessageDispatcher dispatcher;
+
+    Exchange(HttpClient client) {
+      this.client = client;
+    }
+
+    private void start() {
+      try {
+        client.setRequest(null);
+        client.setResponse(null);
+        dispatcher = Config.getWorker(StandardMessageDispatcher.class);
+        client.initializeSession();
+        client.generateHello();
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }
+
+    private CompletableFuture<Void> next() {
+      if (result.isDone() || client.getInstructions().size() == 0) {
+        return CompletableFuture.completedFuture(null);
+      }
+      return send().thenApplyAsync(v -> dispatch(), executor).thenCompose(more -> more
+          ? next() : CompletableFuture.completedFuture(null));
+    }
+
+    private boolean dispatch() {
+      try {
+        client.getResponse().setExtra(client.getRequest().getExtra());
+
+        Optional<DispatchMessage> nextMsg = dispatcher.dispatch(client.getResponse());
+        if (nextMsg.isPresent()) {
+          DispatchMessage msg = nextMsg.get();
+          msg.setExtra(client.getResponse().getExtra());
+          client.setRequest(msg);
+          return true;
+        }
+
+        client.finishedOk();
+        if (client.getResponse().getMsgType() == MsgType.TO1_RV_REDIRECT) {
+          client.generateHello();
+          return true;
+        }
+        return false;
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }
+
+    private CompletableFuture<Void> failed(Throwable throwable) {
+      if (throwable instanceof IOException) {
+        logger.info(throwable);
+        return CompletableFuture.failedFuture(
+            new RuntimeException("Unable to establish connection with FDO Server", throwable));
+      }
+      if (client.getResponse() != null
+          && client.getResponse().getMsgType() != MsgType.ERROR) {
+        client.setRequest(DispatchMessage.fromThrowable(throwable, client.getRequest()));
+        return send().exceptionally(e -> {
+          logger.error("failed to send error");
+          return null;
+        });
+      }
+      return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<Void> send() {
+      if (isHello(client.getRequest().getMsgType())) {
+        client.index = 0;
+      }
+      return attempt();
+    }
+
+    private CompletableFuture<Void> attempt() {
+      final List<HttpInstruction> instructions = client.getInstructions();
+      if (client.index >= instructions.size()) {
+        logger.info("all instructions exhausted");
+        return CompletableFuture.failedFuture(new IOException("all instructions exhausted"));
+      }
+
+      final HttpInstruction instruction = instructions.get(client.index);
+      final HttpRequest httpRequest;
+      try {
+        httpRequest = buildRequest(instruction);
+      } catch (IOException | URISyntaxException | RuntimeException e) {
+        return retry(instruction, e);
+      }
+      logMessage(client.getRequest());
+
+      return transport.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+          .handle((httpResponse, e) -> {
+            if (e == null) {
+              try {
+                receive(httpResponse);
+                return CompletableFuture.<Void>completedFuture(null);
+              } catch (IOException ex) {
+                e = ex;
+              }
+            }
+            return retry(instruction, unwrap(e));
+          })
+          .thenCompose(f -> f);
+    }
+
+    private HttpRequest buildRequest(HttpInstruction instruction)
+        throws IOException, URISyntaxException {
+      MsgType msgId = client.getRequest().getMsgType();
+      final URIBuilder uriBuilder = new URIBuilder(instruction.getAddress());
+      if (msgId == MsgType.TO1_HELLO_RV && instruction.isRendezvousBypass()) {
+        client.generateBypass();
+        //this will change bypass
+        msgId = MsgType.TO2_HELLO_DEVICE;
+      }
+      if (msgId == MsgType.TO0_HELLO || msgId == MsgType.TO1_HELLO_RV
+          || msgId == MsgType.TO2_HELLO_DEVICE) {
+        logger.info(msgId + " URL is " + uriBuilder);
+      }
+
+      final List<String> segments = new ArrayList<>();
+      segments.add(HttpUtils.FDO_COMPONENT);
+      segments.add(ProtocolVersion.current().toString());
+      segments.add(HttpUtils.MSG_COMPONENT);
+      segments.add(Integer.toString(msgId.toInteger()));
+      uriBuilder.setPathSegments(segments);
+      final URI requestUri = uriBuilder.build();
+
+      final HttpRequest.Builder builder = HttpRequest.newBuilder(requestUri)
+          .timeout(requestTimeout)
+          .header(HttpUtils.HTTP_CONTENT_TYPE, HttpUtils.HTTP_APPLICATION_CBOR)
+          .POST(HttpRequest.BodyPublishers.ofByteArray(client.getRequest().getMessage()));
+      if (tokenCache != null) {
+        builder.header(HttpUtils.HTTP_AUTHORIZATION, tokenCache);
+      }
+      return builder.build();
+    }
+
+    private void receive(HttpResponse<byte[]> httpResponse) throws IOException {
+      final byte[] body = httpResponse.body();
+      if (body.length == 0 && client.getRequest().getMsgType() == MsgType.ERROR) {
+        return;
+      }
+      if (body.length > BufferUtils.getMaxBufferSize()) {
+        throw new MessageBodyException("Message too large.");
+      }
+
+      final DispatchMessage response = new DispatchMessage();
+      response.setProtocolVersion(client.getRequest().getProtocolVersion());
+      response.setMessage(body);
+      final Optional<String> msgType =
+          httpResponse.headers().firstValue(HttpUtils.HTTP_MESSAGE_TYPE);
+      if (msgType.isPresent()) {
+        response.setMsgType(MsgType.fromNumber(Integer.valueOf(msgType.get())));
+      }
+      final Optional<String> token =
+          httpResponse.headers().firstValue(HttpUtils.HTTP_AUTHORIZATION);
+      if (token.isPresent()) {
+        tokenCache = token.get();
+      }
+      response.setAuthToken(tokenCache);
+      client.setResponse(response);
+      logMessage(response);
+    }
+
+    private CompletableFuture<Void> retry(HttpInstruction instruction, Throwable e) {
+      if (!(e instanceof RuntimeException)) {
+        try {
+          Config.getWorker(ExceptionConsumer.class).accept(e);
+        } catch (Exception innerException) {
+          logger.error("failed log exception");
+        }
+      }
+
+      if (!isHello(client.getRequest().getMsgType())
+          || client.index >= client.getInstructions().size()) {
+        logger.info("all instructions exhausted");
+        return CompletableFuture.failedFuture(
+            e instanceof IOException ? e : new IOException(e));
+      }
+
+      try {
+        if (instruction.isRendezvousBypass()) {
+          client.clearByPass();
+        }
+      } catch (IOException ex) {
+        return CompletableFuture.failedFuture(ex);
+      }
+      logger.info("instruction failed.");
+      logger.info("moving to next instruction");
+      client.index++;
+
+      final long delay = instruction.getDelay();
+      if (delay > 0) {
+        logger.info("Delaying connection for next " + delay + " seconds");
+        return CompletableFuture.runAsync(() -> { },
+                CompletableFuture.delayedExecutor(delay, TimeUnit.SECONDS, executor))
+            .thenCompose(v -> attempt());
+      }
+      return attempt();
+    }
+
+    private void logMessage(DispatchMessage msg) {
+      if (msg.getMsgType() != null) {
+        client.logMessage(msg);
+      }
+    }
+  }
+}
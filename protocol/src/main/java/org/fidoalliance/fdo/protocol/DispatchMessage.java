@@ -26,6 +26,13 @@ public class DispatchMessage {
   private SimpleStorage extra;
 
   private static void findCause(ErrorMessage error, Throwable throwable) {
+    for (Throwable current = throwable; current != null; current = current.getCause()) {
+      if (current instanceof MessageBodyException) {
+        error.setErrorCode(ErrorCode.MESSAGE_BODY_ERROR);
+        error.setErrorString(current.getMessage());
+        return;
+      }
+    }
   }
 
   /**
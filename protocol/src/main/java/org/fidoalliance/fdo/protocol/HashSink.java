@@ -0,0 +1,115 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.SignatureException;
+import javax.crypto.Mac;
+import org.fidoalliance.fdo.protocol.message.Hash;
+import org.fidoalliance.fdo.protocol.message.HashType;
+
+/**
+ * Output stream that feeds written bytes into a digest, mac or signature.
+ * <p>Allows cbor encoded values to be hashed or signed without first
+ * materializing the encoded bytes.</p>
+ */
+public class HashSink extends OutputStream {
+
+  private final HashType hashType;
+  private final MessageDigest digest;
+  private final Mac mac;
+  private final Signature signature;
+
+  /**
+   * Constructs a sink that computes a hash.
+   *
+   * @param hashType The hash type.
+   * @param digest   The initialized digest.
+   */
+  public HashSink(HashType hashType, MessageDigest digest) {
+    this.hashType = hashType;
+    this.digest = digest;
+    this.mac = null;
+    this.signature = null;
+  }
+
+  /**
+   * Constructs a sink that computes a hmac.
+   *
+   * @param hashType The hmac type.
+   * @param mac      The initialized mac.
+   */
+  public HashSink(HashType hashType, Mac mac) {
+    this.hashType = hashType;
+    this.digest = null;
+    this.mac = mac;
+    this.signature = null;
+  }
+
+  /**
+   * Constructs a sink that updates a signature.
+   *
+   * @param signature The signature initialized for signing or verification.
+   */
+  public HashSink(Signature signature) {
+    this.hashType = null;
+    this.digest = null;
+    this.mac = null;
+    this.signature = signature;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[]{(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (digest != null) {
+      digest.update(b, off, len);
+    } else if (mac != null) {
+      mac.update(b, off, len);
+    } else {
+      try {
+        signature.update(b, off, len);
+      } catch (SignatureException e) {
+        throw new IOException(e);
+      }
+    }
+  }
+
+  /**
+   * Writes the cbor encoding of a value to the sink.
+   *
+   * @param value The value to encode.
+   * @return This sink.
+   * @throws IOException An error occurred.
+   */
+  public HashSink writeValue(Object value) throws IOException {
+    Mapper.INSTANCE.writeValue(this, value);
+    return this;
+  }
+
+  /**
+   * Completes the hash or hmac computation.
+   *
+   * @return The computed Hash.
+   * @throws IOException If the sink is updating a signature.
+   */
+  public Hash getHash() throws IOException {
+    final Hash hash = new Hash();
+    hash.setHashType(hashType);
+    if (digest != null) {
+      hash.setHashValue(digest.digest());
+    } else if (mac != null) {
+      hash.setHashValue(mac.doFinal());
+    } else {
+      throw new IOException(new IllegalStateException("signature sink has no hash"));
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,153 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Process wide pools of protocol connections, one per TLS socket factory.
+ *
+ * <p>Clients built from a pool share its connections, so consecutive TO0, TO1 and TO2
+ * messages to a server reuse a kept alive connection instead of connecting again. Closing such
+ * a client leaves the pool open. As the socket factory lives as long as its pool, new TLS
+ * connections resume the sessions it has cached.</p>
+ *
+ * <p>The pools are bounded by http-client: max-total connections, and max-per-route to each
+ * server. A connection is kept alive for as long as the server allows, up to keep-alive
+ * seconds, and closed after idle-timeout seconds without use.</p>
+ */
+public final class HttpConnectionPool {
+
+  private static final LoggerService logger = new LoggerService(HttpConnectionPool.class);
+
+  private static class RootConfig {
+
+    @JsonProperty("http-client")
+    private PoolConfig root = new PoolConfig();
+  }
+
+  private static class PoolConfig {
+
+    @JsonProperty("max-total")
+    private int maxTotal = 200;
+
+    @JsonProperty("max-per-route")
+    private int maxPerRoute = 20;
+
+    @JsonProperty("keep-alive")
+    private long keepAlive = 30;
+
+    @JsonProperty("idle-timeout")
+    private long idleTimeout = 60;
+  }
+
+  private static final PoolConfig config;
+  private static final ConnectionKeepAliveStrategy keepAliveStrategy;
+  private static final Map<SSLConnectionSocketFactory, PoolingHttpClientConnectionManager> pools =
+      new IdentityHashMap<>();
+  private static final ScheduledExecutorService evictor =
+      Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "http-connection-evictor");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  static {
+    final RootConfig rootConfig = Config.getConfig(RootConfig.class);
+    config = rootConfig != null && rootConfig.root != null ? rootConfig.root : new PoolConfig();
+
+    final long maxKeepAlive = Duration.ofSeconds(config.keepAlive).toMillis();
+    keepAliveStrategy = (response, context) -> {
+      final long keepAlive =
+          DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+      // the server did not say, or allows longer than configured
+      return keepAlive < 0 ? maxKeepAlive : Math.min(keepAlive, maxKeepAlive);
+    };
+
+    final long period = Math.max(config.idleTimeout / 2, 1);
+    evictor.scheduleWithFixedDelay(HttpConnectionPool::evict, period, period, TimeUnit.SECONDS);
+  }
+
+  private HttpConnectionPool() {
+  }
+
+  private static void evict() {
+    synchronized (pools) {
+      for (PoolingHttpClientConnectionManager pool : pools.values()) {
+        pool.closeExpiredConnections();
+        pool.closeIdleConnections(config.idleTimeout, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  private static PoolingHttpClientConnectionManager getPool(
+      SSLConnectionSocketFactory socketFactory) {
+    synchronized (pools) {
+      return pools.computeIfAbsent(socketFactory, k -> {
+        final PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+            RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", socketFactory)
+                .build());
+        pool.setMaxTotal(config.maxTotal);
+        pool.setDefaultMaxPerRoute(config.maxPerRoute);
+        logger.debug("created http connection pool, max " + config.maxTotal + ", per route "
+            + config.maxPerRoute);
+        return pool;
+      });
+    }
+  }
+
+  /**
+   * Creates a client builder that uses the pooled connections.
+   *
+   * @param socketFactory The factory of the TLS connections, the same instance for every
+   *                      client that shares the pool.
+   * @return A builder whose clients may be closed without closing the pool.
+   */
+  public static HttpClientBuilder custom(SSLConnectionSocketFactory socketFactory) {
+    return HttpClients.custom()
+        .setConnectionManager(getPool(socketFactory))
+        .setConnectionManagerShared(true)
+        .setKeepAliveStrategy(keepAliveStrategy);
+  }
+
+  /**
+   * Gets the connection counts of all the pools.
+   *
+   * @return The leased, available and pending connections and the maximum.
+   */
+  public static PoolStats getStats() {
+    int leased = 0;
+    int pending = 0;
+    int available = 0;
+    int max = 0;
+    synchronized (pools) {
+      for (PoolingHttpClientConnectionManager pool : pools.values()) {
+        final PoolStats stats = pool.getTotalStats();
+        leased += stats.getLeased();
+        pending += stats.getPending();
+        available += stats.getAvailable();
+        max += stats.getMax();
+      }
+    }
+    return new PoolStats(leased, pending, available, max);
+  }
+}
@@ -3,9 +3,11 @@
 
 package org.fidoalliance.fdo.protocol;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -15,6 +17,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.Map;
 import org.apache.commons.codec.binary.Hex;
@@ -123,6 +126,20 @@ public enum Mapper {
     }
   }
 
+  /**
+   * Writes an object as CBOR encoded Bytes to an output stream.
+   * <p>The output stream is not closed.</p>
+   *
+   * @param out   The output stream.
+   * @param value The object to encode.
+   * @throws IOException An error occurred when writing the value.
+   */
+  public void writeValue(OutputStream out, Object value) throws IOException {
+    ObjectWriter writer = cborMapper.writerFor(value.getClass())
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    writer.writeValue(out, value);
+  }
+
   /**
    * Writes an Object as a yaml encoded string.
    *
@@ -177,6 +194,21 @@ public enum Mapper {
     return reader.readValue(in, t);
   }
 
+  /**
+   * Reads a sequence of values from binary (CBOR) encoding.
+   *
+   * @param in  The input stream of concatenated cbor values.
+   * @param t   The target class.
+   * @param <T> The target Class type.
+   * @return An iterator over the values, read as the stream is consumed.
+   * @throws IOException An error occurred when reading the content.
+   */
+  public <T> MappingIterator<T> readValues(InputStream in, Class<T> t) throws IOException {
+    // reading from a fresh parser keeps a leading array as the first value, not the sequence
+    ObjectReader reader = cborMapper.readerFor(t);
+    return reader.readValues(cborMapper.getFactory().createParser(in));
+  }
+
   /**
    * Reads a value from binary (CBOR) encoding.
    *
@@ -12,7 +12,6 @@ import javax.net.ssl.SSLSession;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContextBuilder;
 
 public class SelfSignedHttpClientSupplier implements HttpClientSupplier {
@@ -44,7 +43,6 @@ public class SelfSignedHttpClientSupplier implements HttpClientSupplier {
 
   @Override
   public CloseableHttpClient get() throws IOException {
-    return HttpClients.custom().setSSLSocketFactory(
-        socketFactory).useSystemProperties().build();
+    return HttpConnectionPool.custom(socketFactory).useSystemProperties().build();
   }
 }
@@ -0,0 +1,19 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol;
+
+/**
+ * Represents a session update that lost to a concurrent update of the same session.
+ */
+public class SessionConflictException extends MessageBodyException {
+
+  /**
+   * Constructs a SessionConflictException.
+   *
+   * @param name The name of the session.
+   */
+  public SessionConflictException(String name) {
+    super("session " + name + " was updated concurrently");
+  }
+}
@@ -281,6 +281,32 @@ public class StandardCryptoService implements CryptoService {
     }
   }
 
+  @Override
+  public HashSink getHashSink(HashType hashType) throws IOException {
+    try {
+      final String algName = new AlgorithmFinder().getAlgorithm(hashType);
+      return new HashSink(hashType, MessageDigest.getInstance(algName, getProvider()));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public HashSink getHashSink(HashType hashType, byte[] secret) throws IOException {
+    SecretKey secretKey = null;
+    try {
+      String algName = new AlgorithmFinder().getAlgorithm(hashType);
+      final Mac mac = Mac.getInstance(algName, getProvider());
+      secretKey = new SecretKeySpec(secret, algName);
+      mac.init(secretKey);
+      return new HashSink(hashType, mac);
+    } catch (InvalidKeyException | NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    } finally {
+      destroyKey(secretKey);
+    }
+  }
+
   @Override
   public OwnerPublicKey encodeKey(PublicKeyType keyType, PublicKeyEncoding encType,
       Certificate[] chain) {
@@ -409,8 +435,6 @@ public class StandardCryptoService implements CryptoService {
     sigStructure.setExternalData(new byte[0]);
     sigStructure.setPayload(payload);
 
-    byte[] sigData = Mapper.INSTANCE.writeValue(sigStructure);
-
     try {
 
       String algName = finder.getSignatureAlgorithm(ownerKey.getType(),
@@ -418,7 +442,7 @@ public class StandardCryptoService implements CryptoService {
       //todo: check for hsm provider
       Signature sig = Signature.getInstance(algName, getProvider());
       sig.initSign(signingKey);
-      sig.update(sigData);
+      new HashSink(sig).writeValue(sigStructure);
       byte[] derSign = sig.sign();
       byte[] finalSign = derSign;
       if (publicKey instanceof ECKey) {
@@ -1239,7 +1263,6 @@ public class StandardCryptoService implements CryptoService {
     sigStructure.setExternalData(new byte[0]);
     sigStructure.setPayload(message.getPayload());
 
-    byte[] sigData = Mapper.INSTANCE.writeValue(sigStructure);
     byte[] derSig = message.getSignature();
     byte[] maroePrefix = message.getUnprotectedHeader().getMaroPrefix();
 
@@ -1257,19 +1280,6 @@ public class StandardCryptoService implements CryptoService {
       asn1out.writeObject(sequence);
       byte[] b = sigBytes.toByteArray();
       derSig = Arrays.copyOf(b, b.length);
-
-      // if MAROE based signature - prefix signature data with maroe prefix
-      if (maroePrefix != null && maroePrefix.length > 0) {
-        try {
-          ByteArrayOutputStream bas = new ByteArrayOutputStream();
-          bas.write(maroePrefix);
-          bas.write(sigData);
-          sigData = bas.toByteArray();
-        } catch (IOException ex) {
-          // should never get here
-          return false;
-        }
-      }
     }
 
     try {
@@ -1280,7 +1290,12 @@ public class StandardCryptoService implements CryptoService {
 
       Signature sig = Signature.getInstance(algName, getProvider());
       sig.initVerify(publicKey);
-      sig.update(sigData);
+      HashSink sink = new HashSink(sig);
+      // if MAROE based signature - prefix signature data with maroe prefix
+      if (publicKey instanceof ECKey && maroePrefix != null && maroePrefix.length > 0) {
+        sink.write(maroePrefix);
+      }
+      sink.writeValue(sigStructure);
       return sig.verify(derSig);
 
     } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
@@ -4,13 +4,17 @@
 package org.fidoalliance.fdo.protocol;
 
 import java.io.IOException;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 
 public class StandardHttpClientSupplier implements HttpClientSupplier {
 
+  // one factory for the life of the process, so its TLS sessions are resumed
+  private static final SSLConnectionSocketFactory socketFactory =
+      SSLConnectionSocketFactory.getSystemSocketFactory();
+
   @Override
   public CloseableHttpClient get() throws IOException {
-    return HttpClients.createSystem();
+    return HttpConnectionPool.custom(socketFactory).useSystemProperties().build();
   }
 }
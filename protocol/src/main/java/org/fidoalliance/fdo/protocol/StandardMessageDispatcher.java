@@ -73,6 +73,7 @@ import org.fidoalliance.fdo.protocol.message.HelloRvAck;
 import org.fidoalliance.fdo.protocol.message.KexMessage;
 import org.fidoalliance.fdo.protocol.message.KexParty;
 import org.fidoalliance.fdo.protocol.message.KeySizeType;
+import org.fidoalliance.fdo.protocol.message.LastExchange;
 import org.fidoalliance.fdo.protocol.message.ManufacturingInfo;
 import org.fidoalliance.fdo.protocol.message.MsgType;
 import org.fidoalliance.fdo.protocol.message.Nonce;
@@ -157,6 +158,58 @@ public class StandardMessageDispatcher implements MessageDispatcher {
     return Hex.encodeHexString(getCryptoService().getRandomBytes(Long.BYTES * 2));
   }
 
+  /**
+   * Answers a repeated request with the response saved when it was first applied.
+   *
+   * @param storage  The session storage.
+   * @param request  The request message.
+   * @param response The response message.
+   * @return True if the request was a repeat and the response was set.
+   * @throws IOException An error occurred.
+   */
+  protected boolean replayResponse(SimpleStorage storage, DispatchMessage request,
+      DispatchMessage response) throws IOException {
+    LastExchange last = storage.get(LastExchange.class);
+    if (last == null || last.getMsgType() != request.getMsgType()
+        || !last.getRequestHash().equals(
+        getCryptoService().hash(HashType.SHA256, request.getMessage()))) {
+      return false;
+    }
+    logger.info("replaying response to repeated message " + request.getMsgType());
+    response.setMessage(last.getResponse());
+    return true;
+  }
+
+  /**
+   * Saves session storage changed by a request along with the response to it.
+   *
+   * <p>If a repeat of the same request updated the session first, its response is used
+   * instead.</p>
+   *
+   * @param manager  The session manager.
+   * @param storage  The session storage.
+   * @param request  The request message.
+   * @param response The response message.
+   * @throws IOException An error occurred.
+   */
+  protected void updateSession(SessionManager manager, SimpleStorage storage,
+      DispatchMessage request, DispatchMessage response) throws IOException {
+    LastExchange exchange = new LastExchange();
+    exchange.setMsgType(request.getMsgType());
+    exchange.setRequestHash(getCryptoService().hash(HashType.SHA256, request.getMessage()));
+    exchange.setResponse(response.getMessage());
+    storage.put(LastExchange.class, exchange);
+
+    try {
+      manager.updateSession(request.getAuthToken().get(), storage);
+    } catch (SessionConflictException e) {
+      if (!replayResponse(manager.getSession(request.getAuthToken().get()), request,
+          response)) {
+        throw e;
+      }
+    }
+  }
+
 
   protected String createCwtSession(CwtTo1Id cwtTo1Id) throws IOException {
     final CwtToken cwtToken = new CwtToken();
@@ -973,7 +1026,7 @@ public class StandardMessageDispatcher implements MessageDispatcher {
     } else {
       storage.put(OwnerPublicKey.class, entryPayload.getOwnerPublicKey());
       storage.put(Hash.class,
-          cs.hash(hashType, Mapper.INSTANCE.writeValue(entry)));
+          cs.getHashSink(hashType).writeValue(entry).getHash());
 
       To2GetNextEntry reqEntry = new To2GetNextEntry();
       reqEntry.setEntryNum(nextEntry.getEntryNum() + 1);
@@ -1057,6 +1110,9 @@ public class StandardMessageDispatcher implements MessageDispatcher {
 
     SessionManager manager = getWorker(SessionManager.class);
     SimpleStorage storage = manager.getSession(request.getAuthToken().get());
+    if (replayResponse(storage, request, response)) {
+      return;
+    }
     OwnershipVoucher voucher = storage.get(OwnershipVoucher.class);
     HelloDevice helloDevice = storage.get(HelloDevice.class);
 
@@ -1168,7 +1224,7 @@ public class StandardMessageDispatcher implements MessageDispatcher {
     response.setMessage(
         cs.encrypt(Mapper.INSTANCE.writeValue(sign1), es));
 
-    manager.updateSession(request.getAuthToken().get(), storage);
+    updateSession(manager, storage, request, response);
 
   }
 
@@ -1204,8 +1260,8 @@ public class StandardMessageDispatcher implements MessageDispatcher {
 
     Hash oldMac = hdrPayload.getHmac();
     DeviceCredential cred = getWorker(DeviceCredentialSupplier.class).get();
-    Hash newMac = cs.hash(oldMac.getHashType(), cred.getHmacSecret(),
-        Mapper.INSTANCE.writeValue(newHeader));
+    Hash newMac = cs.getHashSink(oldMac.getHashType(), cred.getHmacSecret())
+        .writeValue(newHeader).getHash();
 
     //check cred resuse
     boolean credReuse = oldHeader.getGuid().equals(newHeader.getGuid());
@@ -1261,6 +1317,9 @@ public class StandardMessageDispatcher implements MessageDispatcher {
 
     SessionManager manager = getWorker(SessionManager.class);
     SimpleStorage storage = manager.getSession(request.getAuthToken().get());
+    if (replayResponse(storage, request, response)) {
+      return;
+    }
     EncryptionState es = storage.get(EncryptionState.class);
 
     byte[] cipherText = getCryptoService().decrypt(request.getMessage(), es);
@@ -1323,7 +1382,7 @@ public class StandardMessageDispatcher implements MessageDispatcher {
       storage.put(Hash.class, new Hash());
     }
 
-    manager.updateSession(request.getAuthToken().get(), storage);
+    updateSession(manager, storage, request, response);
   }
 
   protected void doOwnerInfoReady(DispatchMessage request, DispatchMessage response)
@@ -1385,6 +1444,9 @@ public class StandardMessageDispatcher implements MessageDispatcher {
 
     SessionManager manager = getWorker(SessionManager.class);
     SimpleStorage storage = manager.getSession(request.getAuthToken().get());
+    if (replayResponse(storage, request, response)) {
+      return;
+    }
     EncryptionState es = storage.get(EncryptionState.class);
 
     byte[] cipherText = getCryptoService().decrypt(request.getMessage(), es);
@@ -1438,7 +1500,7 @@ public class StandardMessageDispatcher implements MessageDispatcher {
     cipherText = Mapper.INSTANCE.writeValue(ownerInfo);
     response.setMessage(getCryptoService().encrypt(cipherText, es));
 
-    manager.updateSession(request.getAuthToken().get(), storage);
+    updateSession(manager, storage, request, response);
   }
 
   protected void doOwnerInfo(DispatchMessage request, DispatchMessage response)
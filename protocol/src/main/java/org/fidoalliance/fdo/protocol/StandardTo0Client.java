@@ -4,7 +4,7 @@
 package org.fidoalliance.fdo.protocol;
 
 import java.io.IOException;
-import org.fidoalliance.fdo.protocol.db.To0Scheduler;
+import java.io.InterruptedIOException;
 import org.fidoalliance.fdo.protocol.dispatch.AcceptOwnerFunction;
 
 import org.fidoalliance.fdo.protocol.message.MsgType;
@@ -19,6 +19,9 @@ public class StandardTo0Client extends HttpClient {
 
   private To0d to0d;
   private To2AddressEntries addressEntries;
+  private boolean accepted;
+  private long acceptedWaitSeconds;
+  private String error;
   private static final LoggerService logger = new LoggerService(StandardTo0Client.class);
 
   public To0d getTo0d() {
@@ -29,6 +32,33 @@ public class StandardTo0Client extends HttpClient {
     return addressEntries;
   }
 
+  /**
+   * Tells whether the rendezvous server accepted the registration.
+   *
+   * @return True if TO0 completed.
+   */
+  public boolean isAccepted() {
+    return accepted;
+  }
+
+  /**
+   * Gets the time the rendezvous server keeps the registration.
+   *
+   * @return The wait seconds accepted by the rendezvous server, or 0 if not accepted.
+   */
+  public long getAcceptedWaitSeconds() {
+    return acceptedWaitSeconds;
+  }
+
+  /**
+   * Gets why TO0 failed.
+   *
+   * @return The error, or null if none was reported.
+   */
+  public String getError() {
+    return error;
+  }
+
   public void setTo0d(To0d to0d) {
     this.to0d = to0d;
   }
@@ -37,17 +67,29 @@ public class StandardTo0Client extends HttpClient {
     this.addressEntries = addressEntries;
   }
 
+  @Override
+  protected void sendMessage() throws IOException {
+    if (Thread.currentThread().isInterrupted()) {
+      // cancelled because the voucher was replaced or deleted
+      throw new InterruptedIOException("TO0 cancelled");
+    }
+    super.sendMessage();
+  }
+
   @Override
   protected void finishedOk() {
     To0AcceptOwner acceptOwner = getResponse().getExtra().get(To0AcceptOwner.class);
-    if (acceptOwner != null) {
+    if (acceptOwner != null && !Thread.currentThread().isInterrupted()) {
       try {
         OwnershipVoucherHeader header = Mapper.INSTANCE.readValue(to0d.getVoucher().getHeader(),
             OwnershipVoucherHeader.class);
         Config.getWorker(AcceptOwnerFunction.class).apply(header.getGuid().toString(),
             acceptOwner.getWaitSeconds());
+        accepted = true;
+        acceptedWaitSeconds = acceptOwner.getWaitSeconds();
       } catch (IOException e) {
-        logger.error("Failed to update voucher wait seconds " + e.getMessage());
+        error = "Failed to update voucher wait seconds " + e.getMessage();
+        logger.error(error);
       }
     }
 
@@ -58,6 +100,7 @@ public class StandardTo0Client extends HttpClient {
     try {
       super.run();
     } catch (Exception e) {
+      error = e.getMessage();
       logger.error("To0 client error " + e.getMessage());
     }
 
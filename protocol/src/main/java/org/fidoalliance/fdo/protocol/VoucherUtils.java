@@ -3,11 +3,9 @@
 
 package org.fidoalliance.fdo.protocol;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
@@ -97,8 +95,7 @@ public class VoucherUtils {
       OwnershipVoucherEntryPayload entryPayload =
           Mapper.INSTANCE.readValue(entry.getPayload(), OwnershipVoucherEntryPayload.class);
 
-      byte[] prevBytes = Mapper.INSTANCE.writeValue(entry);
-      prevHash = cs.hash(hashType, prevBytes);
+      prevHash = cs.getHashSink(hashType).writeValue(entry).getHash();
       prevOwnerPubKey = entryPayload.getOwnerPublicKey();
     }
 
@@ -254,15 +251,11 @@ public class VoucherUtils {
   public static Hash getHeaderHash(HashType hashType, OwnershipVoucherHeader header)
       throws IOException {
 
-    byte[] guid = header.getGuid().toBytes();
-    byte[] devInfo = header.getDeviceInfo().getBytes(StandardCharsets.UTF_8);
-    ByteBuffer headerInfo = ByteBuffer.allocate(guid.length + devInfo.length);
-    headerInfo.put(guid);
-    headerInfo.put(devInfo);
-    headerInfo.flip();
-
     CryptoService cs = Config.getWorker(CryptoService.class);
-    return cs.hash(hashType, BufferUtils.unwrap(headerInfo));
+    HashSink sink = cs.getHashSink(hashType);
+    sink.write(header.getGuid().toBytes());
+    sink.write(header.getDeviceInfo().getBytes(StandardCharsets.UTF_8));
+    return sink.getHash();
 
   }
 
@@ -277,14 +270,11 @@ public class VoucherUtils {
    */
   public static Hash getEntryHash(Hash hmac, byte[] ovhBytes) throws IOException {
 
-    byte[] macBytes = Mapper.INSTANCE.writeValue(hmac);
-    ByteBuffer prevInfo = ByteBuffer.allocate(ovhBytes.length + macBytes.length);
-    prevInfo.put(ovhBytes);
-    prevInfo.put(macBytes);
-    prevInfo.flip();
     HashType hashType = new AlgorithmFinder().getCompatibleHashType(hmac.getHashType());
     CryptoService cs = Config.getWorker(CryptoService.class);
-    return cs.hash(hashType, BufferUtils.unwrap(prevInfo));
+    HashSink sink = cs.getHashSink(hashType);
+    sink.write(ovhBytes);
+    return sink.writeValue(hmac).getHash();
 
   }
 
@@ -303,17 +293,17 @@ public class VoucherUtils {
     if (voucher.getCertChain() != null) {
       List<Certificate> certs = voucher.getCertChain().getChain();
 
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Hash hash1 = header.getCertHash();
+      HashSink sink = cs.getHashSink(hash1.getHashType());
       try {
         for (Certificate cert : certs) {
-          out.write(cert.getEncoded());
+          sink.write(cert.getEncoded());
         }
       } catch (CertificateEncodingException e) {
         throw new InvalidOwnershipVoucherException("invalid certificate chain");
       }
 
-      Hash hash1 = header.getCertHash();
-      Hash hash2 = cs.hash(hash1.getHashType(), out.toByteArray());
+      Hash hash2 = sink.getHash();
       if (!hash1.equals(hash2)) {
         throw new InvalidOwnershipVoucherException("cert hash does not match.");
       }
@@ -28,6 +28,7 @@ public class AioRvInfo extends RestApi {
 
     // Create Session object and begin Hibernate transaction.
     getTransaction();
+    invalidate(RvData.class);
 
     LoggerService logger = new LoggerService(AioRvInfo.class);
 
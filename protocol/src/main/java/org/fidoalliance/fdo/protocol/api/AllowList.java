@@ -27,6 +27,7 @@ public class AllowList extends RestApi {
   public void doPost() throws Exception {
 
     getTransaction();
+    invalidate(AllowDenyList.class);
 
     String hashKey = null;
     List<Certificate> certList = PemLoader.loadCerts(getStringBody());
@@ -56,6 +57,7 @@ public class AllowList extends RestApi {
   @Override
   public void doDelete() throws Exception {
     getTransaction();
+    invalidate(AllowDenyList.class);
 
     String hashKey = null;
     List<Certificate> certList = PemLoader.loadCerts(getStringBody());
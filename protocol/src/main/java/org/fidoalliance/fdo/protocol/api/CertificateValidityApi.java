@@ -49,6 +49,7 @@ public class CertificateValidityApi extends RestApi {
 
     // Create Session object and begin Hibernate transaction.
     getTransaction();
+    invalidate(CertificateValidity.class);
 
     // Collect parameter 'days' from HttpRequest.
     String days = getParamByValue("days");
@@ -24,16 +24,18 @@ public class DenyList extends RestApi {
   public void doPost() throws Exception {
 
     getTransaction();
+    invalidate(AllowDenyList.class);
 
     String hashKey = null;
-    List<Certificate> certList = PemLoader.loadCerts(getStringBody());
+    String body = getStringBody();
+    List<Certificate> certList = PemLoader.loadCerts(body);
     if (certList.size() > 0) {
       CryptoService cs = Config.getWorker(CryptoService.class);
       byte[] encoded = certList.get(0).getPublicKey().getEncoded();
       Hash hash = cs.hash(HashType.SHA384, encoded);
       hashKey = Base64.getEncoder().encodeToString(hash.getHashValue());
     } else {
-      hashKey = UUID.fromString(getStringBody()).toString();
+      hashKey = UUID.fromString(body.trim()).toString();
     }
 
     AllowDenyList allowList = getSession().get(AllowDenyList.class, hashKey);
@@ -4,7 +4,8 @@
 package org.fidoalliance.fdo.protocol.api;
 
 import java.util.Date;
-import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucherStatus;
 
 public class DeviceStateApi extends RestApi {
 
@@ -12,7 +13,8 @@ public class DeviceStateApi extends RestApi {
   protected void doGet() throws Exception {
     String path = getLastSegment();
 
-    OnboardingVoucher onboardingVoucher = getSession().get(OnboardingVoucher.class, path);
+    OnboardingVoucherStatus onboardingVoucher =
+        HibernateUtil.getReadRouter().find(OnboardingVoucherStatus.class, path);
     if (onboardingVoucher != null) {
 
       Date to2CompletedOn = onboardingVoucher.getTo2CompletedOn();
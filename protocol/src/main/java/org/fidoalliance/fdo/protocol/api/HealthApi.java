@@ -5,8 +5,14 @@ package org.fidoalliance.fdo.protocol.api;
 
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.fidoalliance.fdo.protocol.LoggerService;
+import org.fidoalliance.fdo.protocol.Mapper;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.PooledConnectionProvider;
+import org.fidoalliance.fdo.protocol.db.ResourceCache;
 
 
 
@@ -24,6 +30,45 @@ public class HealthApi extends RestApi {
     return getTransaction().getStatus().toString();
   }
 
+  /**
+   * Gets the connection pool metrics.
+   *
+   * @return The pool metrics or null if no pool is configured.
+   */
+  public Map<String, Object> connectionPoolStatus() {
+    final PooledConnectionProvider pool = HibernateUtil.getConnectionPool();
+    if (pool == null) {
+      return null;
+    }
+    final Map<String, Object> status = new LinkedHashMap<>();
+    status.put("active", pool.getActiveCount());
+    status.put("idle", pool.getIdleCount());
+    status.put("max", pool.getMaxSize());
+    status.put("pending", pool.getPendingCount());
+    status.put("timeouts", pool.getTimeoutCount());
+    status.put("leaks", pool.getLeakCount());
+    status.put("averageWaitMs", pool.getAverageWaitMillis());
+    status.put("maxWaitMs", pool.getMaxWaitMillis());
+    return status;
+  }
+
+  /**
+   * Gets the resource cache metrics.
+   *
+   * @return The resource cache metrics.
+   */
+  public Map<String, Object> resourceCacheStatus() {
+    final Map<String, Object> status = new LinkedHashMap<>();
+    status.put("entries", ResourceCache.getEntryCount());
+    status.put("heapBytes", ResourceCache.getHeapBytes());
+    status.put("mappedBytes", ResourceCache.getMappedBytes());
+    status.put("hits", ResourceCache.getHitCount());
+    status.put("misses", ResourceCache.getMissCount());
+    status.put("evictions", ResourceCache.getEvictionCount());
+    status.put("pins", ResourceCache.getPinCount());
+    return status;
+  }
+
   @Override
   public void doGet() throws Exception {
 
@@ -38,12 +83,18 @@ public class HealthApi extends RestApi {
       // Collects property from the service.yml file.
       String appVersion = System.getProperty("application.version");
 
-      String responseBody = "{\"version\" : \"%s\", \"databaseConnection\" : \"%s\","
-              + " \"status\" : \"%s\"}";
+      final Map<String, Object> responseBody = new LinkedHashMap<>();
+      responseBody.put("version", appVersion);
+      responseBody.put("databaseConnection", dbHealth);
+      responseBody.put("status", serviceStatus);
+      final Map<String, Object> poolStatus = connectionPoolStatus();
+      if (poolStatus != null) {
+        responseBody.put("connectionPool", poolStatus);
+      }
+      responseBody.put("resourceCache", resourceCacheStatus());
 
       // Appends responseBody to the outputStream of HttpResponse Object.
-      getResponse().getWriter().write(String.format(responseBody, appVersion,
-              dbHealth, serviceStatus));
+      getResponse().getWriter().write(Mapper.INSTANCE.writeJsonValue(responseBody));
       getResponse().setContentType("application/json");
 
     } catch (Exception e) {
@@ -114,6 +114,7 @@ public class InteropVoucher extends RestApi {
       extend(voucher, signKey, certs);
 
       getTransaction();
+      invalidateVoucher(guid.toString());
       OnboardingVoucher dbVoucher = getSession().get(OnboardingVoucher.class, guid.toString());
       if (dbVoucher == null) {
         dbVoucher = new OnboardingVoucher();
@@ -52,6 +52,7 @@ public class MessageSizeApi extends RestApi {
 
     // Create Session object and begin Hibernate transaction.
     getTransaction();
+    invalidate(OnboardingConfig.class);
 
     int messageSize = 0;
     try {
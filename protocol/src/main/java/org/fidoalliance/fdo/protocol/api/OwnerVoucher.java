@@ -10,13 +10,16 @@ import jakarta.persistence.criteria.Root;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.fidoalliance.fdo.protocol.HttpUtils;
 import org.fidoalliance.fdo.protocol.LoggerService;
 import org.fidoalliance.fdo.protocol.Mapper;
 import org.fidoalliance.fdo.protocol.VoucherUtils;
 import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.VoucherSummary;
 import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
 import org.fidoalliance.fdo.protocol.entity.VoucherAlias;
 import org.fidoalliance.fdo.protocol.message.Guid;
@@ -26,40 +29,87 @@ import org.hibernate.Session;
 
 /**
  * Maintains Ownership Vouchers for the owner server.
+ *
+ * <p>GET /api/v1/owner/vouchers?limit=&lt;n&gt; returns a json page of voucher summaries.
+ * Optional parameters: after (guid cursor from the previous page's next), status
+ * (completed or pending) and since (creation time in epoch milliseconds).</p>
  */
 public class OwnerVoucher extends RestApi {
 
   protected static final LoggerService logger = new LoggerService(OwnerVoucher.class);
 
+  private static final int PAGE_SIZE = 1000;
+  private static final int MAX_PAGE_SIZE = 10000;
+
   private void listVouchers() {
 
-    final Session session = HibernateUtil.getSessionFactory().openSession();
+    final Session session = HibernateUtil.getReadRouter().openSession(OnboardingVoucher.class);
     try {
 
-      CriteriaBuilder cb = session.getCriteriaBuilder();
-      CriteriaQuery<OnboardingVoucher> cq = cb.createQuery(OnboardingVoucher.class);
-      Root<OnboardingVoucher> rootEntry = cq.from(OnboardingVoucher.class);
-      CriteriaQuery<OnboardingVoucher> all = cq.select(rootEntry);
-
-      TypedQuery<OnboardingVoucher> allQuery = session.createQuery(all);
-      List<OnboardingVoucher> list = allQuery.getResultList();
-      for (OnboardingVoucher onboardingVoucher : list) {
+      // walk the guid keyset a page at a time, only the guid column is needed
+      String after = null;
+      for (; ; ) {
+        List<VoucherSummary> page = VoucherSummary.getPage(session, after, PAGE_SIZE,
+            null, null);
+        for (VoucherSummary summary : page) {
+          getResponse().getWriter().println(summary.getGuid());
+        }
+        if (page.size() < PAGE_SIZE) {
+          break;
+        }
+        after = page.get(page.size() - 1).getGuid();
+        session.clear();
+      }
 
-        OwnershipVoucher voucher = Mapper.INSTANCE.readValue(onboardingVoucher.getData(),
-            OwnershipVoucher.class);
+    } catch (IOException e) {
+      logger.error("error retrieving vouchers " + e.getMessage());
+    } finally {
+      session.close();
+    }
+  }
 
-        OwnershipVoucherHeader header =
-            Mapper.INSTANCE.readValue(voucher.getHeader(), OwnershipVoucherHeader.class);
+  private void listVoucherPage(String limitParam) throws Exception {
 
-        getResponse().getWriter().println(header.getGuid().toString());
+    final int limit;
+    final Boolean completed;
+    final Date since;
+    try {
+      limit = Integer.parseInt(limitParam);
+      if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+        throw new BadRequestException("limit out of range " + limitParam);
+      }
 
+      String status = getParamByValue("status");
+      if (status == null) {
+        completed = null;
+      } else if (status.equals("completed")) {
+        completed = Boolean.TRUE;
+      } else if (status.equals("pending")) {
+        completed = Boolean.FALSE;
+      } else {
+        throw new BadRequestException("invalid status " + status);
       }
 
-    } catch (IOException e) {
-      logger.error("error retrieving vouchers " + e.getMessage());
+      String sinceParam = getParamByValue("since");
+      since = sinceParam == null ? null : new Date(Long.parseLong(sinceParam));
+    } catch (NumberFormatException e) {
+      throw new BadRequestException(e);
+    }
+
+    final List<VoucherSummary> page;
+    final Session session = HibernateUtil.getReadRouter().openSession(OnboardingVoucher.class);
+    try {
+      page = VoucherSummary.getPage(session, getParamByValue("after"), limit, completed, since);
     } finally {
       session.close();
     }
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("vouchers", page);
+    body.put("next", page.size() < limit ? null : page.get(page.size() - 1).getGuid());
+
+    getResponse().setContentType("application/json");
+    getResponse().getWriter().print(Mapper.INSTANCE.writeJsonValue(body));
   }
 
   private void listSerialNo() {
@@ -117,6 +167,7 @@ public class OwnerVoucher extends RestApi {
       }
     }
 
+    invalidateVoucher(guid);
     OnboardingVoucher onboardingVoucher = getSession().get(OnboardingVoucher.class,
         header.getGuid().toString());
     if (onboardingVoucher != null) {
@@ -147,6 +198,11 @@ public class OwnerVoucher extends RestApi {
     getResponse().setContentType(HttpUtils.HTTP_PLAIN_TEXT);
 
     if (path.equals("vouchers")) {
+      String limit = getParamByValue("limit");
+      if (limit != null) {
+        listVoucherPage(limit);
+        return;
+      }
       listVouchers();
       listSerialNo();
       return;
@@ -194,6 +250,7 @@ public class OwnerVoucher extends RestApi {
     if (onboardingVoucher != null) {
       // delete the row, if data exists.
       getSession().remove(onboardingVoucher);
+      invalidateVoucher(path);
     } else {
       logger.warn("GUID not found.");
       getResponse().setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -0,0 +1,305 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.api;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.HttpUtils;
+import org.fidoalliance.fdo.protocol.LoggerService;
+import org.fidoalliance.fdo.protocol.Mapper;
+import org.fidoalliance.fdo.protocol.VoucherUtils;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.To0Registry;
+import org.fidoalliance.fdo.protocol.db.VoucherCache;
+import org.fidoalliance.fdo.protocol.dispatch.CryptoService;
+import org.fidoalliance.fdo.protocol.dispatch.OwnerKeySupplier;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
+import org.fidoalliance.fdo.protocol.message.OwnershipVoucher;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+/**
+ * Imports Ownership Vouchers in bulk for the owner server.
+ *
+ * <p>POST /api/v1/owner/import with concatenated PEM vouchers (text/plain) or a CBOR sequence
+ * of vouchers (application/cbor-seq). Vouchers whose last owner key is not in the owner
+ * keystore are rejected, the rest are stored in JDBC batches.</p>
+ *
+ * <p>One line is streamed back per voucher: its index in the body, its guid and either OK or
+ * the reason it was rejected.</p>
+ */
+public class OwnerVoucherImport extends RestApi {
+
+  protected static final LoggerService logger = new LoggerService(OwnerVoucherImport.class);
+
+  private static final String HTTP_CBOR_SEQ = "application/cbor-seq";
+  private static final String PEM_TYPE = "OWNERSHIP VOUCHER";
+  private static final String RESULT_OK = "OK";
+  private static final int BATCH_SIZE = 100;
+
+  // the owner key check is cpu bound, concurrent imports share a pool of one thread per cpu
+  private static final AtomicInteger verifierCount = new AtomicInteger();
+  private static final ExecutorService verifiers = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), r -> {
+        Thread thread = new Thread(r, "voucher-import-" + verifierCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /**
+   * A voucher read from the request body.
+   */
+  private static class ImportItem {
+
+    private final int index;
+    private final byte[] content;
+    private OwnershipVoucher voucher;
+    private String guid;
+    private byte[] data;
+    private String error;
+
+    ImportItem(int index, byte[] content, OwnershipVoucher voucher) {
+      this.index = index;
+      this.content = content;
+      this.voucher = voucher;
+    }
+  }
+
+  /**
+   * Reads vouchers from the request body one at a time.
+   */
+  private interface VoucherSource {
+
+    ImportItem next(int index) throws IOException;
+  }
+
+  @Override
+  protected String getRequestContentType() {
+    // both encodings are accepted, the body is parsed by its content type
+    if (HTTP_CBOR_SEQ.equals(getRequest().getContentType())) {
+      return HTTP_CBOR_SEQ;
+    }
+    return HttpUtils.HTTP_PLAIN_TEXT;
+  }
+
+  private VoucherSource getPemSource() throws IOException {
+    final PEMParser parser = new PEMParser(
+        new InputStreamReader(getRequest().getInputStream(), StandardCharsets.US_ASCII));
+    return index -> {
+      for (; ; ) {
+        PemObject pemObj = parser.readPemObject();
+        if (pemObj == null) {
+          return null;
+        }
+        if (pemObj.getType().equals(PEM_TYPE)) {
+          return new ImportItem(index, pemObj.getContent(), null);
+        }
+      }
+    };
+  }
+
+  private VoucherSource getCborSource() throws IOException {
+    final MappingIterator<OwnershipVoucher> iterator =
+        Mapper.INSTANCE.readValues(getRequest().getInputStream(), OwnershipVoucher.class);
+    return index -> {
+      if (iterator.hasNextValue()) {
+        return new ImportItem(index, null, iterator.nextValue());
+      }
+      return null;
+    };
+  }
+
+  private List<PublicKey> getOwnerKeys() throws IOException {
+    final KeyStore keyStore = Config.getWorker(OwnerKeySupplier.class).get().getKeyStore();
+    final List<PublicKey> keys = new ArrayList<>();
+    try {
+      Enumeration<String> aliases = keyStore.aliases();
+      while (aliases.hasMoreElements()) {
+        Certificate cert = keyStore.getCertificate(aliases.nextElement());
+        if (cert != null) {
+          keys.add(cert.getPublicKey());
+        }
+      }
+    } catch (KeyStoreException e) {
+      throw new IOException(e);
+    }
+    return keys;
+  }
+
+  private void verify(ImportItem item, List<PublicKey> ownerKeys, CryptoService cs) {
+    try {
+      if (item.voucher == null) {
+        item.voucher = Mapper.INSTANCE.readValue(item.content, OwnershipVoucher.class);
+      }
+      item.guid = VoucherUtils.getGuid(item.voucher).toString();
+
+      final PublicKey lastOwner = cs.decodeKey(VoucherUtils.getLastOwner(item.voucher));
+      if (ownerKeys.stream().noneMatch(key -> key.equals(lastOwner))) {
+        item.error = "owner key not found";
+        return;
+      }
+      item.data = Mapper.INSTANCE.writeValue(item.voucher);
+    } catch (IOException | RuntimeException e) {
+      logger.debug("voucher " + item.index + " invalid " + e.getMessage());
+      item.error = "invalid voucher";
+    } finally {
+      item.voucher = null;
+    }
+  }
+
+  private void store(Session session, List<ImportItem> batch) {
+
+    // a later copy of the same voucher in the batch replaces the earlier one
+    final Map<String, ImportItem> accepted = new LinkedHashMap<>();
+    for (ImportItem item : batch) {
+      if (item.error == null) {
+        accepted.put(item.guid, item);
+      }
+    }
+    if (accepted.isEmpty()) {
+      return;
+    }
+
+    final Transaction trans = session.beginTransaction();
+    try {
+      final Map<String, ImportItem> inserts = new LinkedHashMap<>(accepted);
+      final List<OnboardingVoucher> existing = session.createQuery(
+              "from OnboardingVoucher where guid in :guids", OnboardingVoucher.class)
+          .setParameterList("guids", accepted.keySet())
+          .getResultList();
+      for (OnboardingVoucher onboardingVoucher : existing) {
+        onboardingVoucher.setData(inserts.remove(onboardingVoucher.getGuid()).data);
+      }
+
+      final Date now = new Date(System.currentTimeMillis());
+      for (ImportItem item : inserts.values()) {
+        OnboardingVoucher onboardingVoucher = new OnboardingVoucher();
+        onboardingVoucher.setGuid(item.guid);
+        onboardingVoucher.setData(item.data);
+        onboardingVoucher.setTo0Expiry(now);
+        onboardingVoucher.setCreatedOn(now);
+        session.persist(onboardingVoucher);
+      }
+
+      // one flush per batch lets hibernate send the inserts as a single jdbc batch
+      session.flush();
+      trans.commit();
+      for (OnboardingVoucher onboardingVoucher : existing) {
+        VoucherCache.invalidate(onboardingVoucher.getGuid());
+        To0Registry.cancel(onboardingVoucher.getGuid());
+      }
+    } catch (HibernateException e) {
+      logger.error("voucher import batch failed " + e.getMessage());
+      if (trans.isActive()) {
+        trans.rollback();
+      }
+      for (ImportItem item : accepted.values()) {
+        item.error = "not stored";
+      }
+      throw e;
+    } finally {
+      session.clear();
+    }
+  }
+
+  private void writeResults(PrintWriter writer, List<ImportItem> batch) throws IOException {
+    for (ImportItem item : batch) {
+      writer.println(item.index + " " + (item.guid != null ? item.guid : "-") + " "
+          + (item.error != null ? item.error : RESULT_OK));
+    }
+    writer.flush();
+    getResponse().flushBuffer();
+  }
+
+  @Override
+  public void doPost() throws Exception {
+
+    final VoucherSource source = HTTP_CBOR_SEQ.equals(getRequest().getContentType())
+        ? getCborSource() : getPemSource();
+    final List<PublicKey> ownerKeys = getOwnerKeys();
+    final CryptoService cs = Config.getWorker(CryptoService.class);
+
+    getResponse().setContentType(HttpUtils.HTTP_PLAIN_TEXT);
+    final PrintWriter writer = getResponse().getWriter();
+
+    int count = 0;
+    int imported = 0;
+    Session session = HibernateUtil.getSessionFactory().openSession();
+    try {
+      session.setJdbcBatchSize(BATCH_SIZE);
+      for (boolean more = true; more; ) {
+
+        final List<ImportItem> batch = new ArrayList<>(BATCH_SIZE);
+        String readError = null;
+        try {
+          while (batch.size() < BATCH_SIZE) {
+            ImportItem item = source.next(count);
+            if (item == null) {
+              more = false;
+              break;
+            }
+            batch.add(item);
+            count++;
+          }
+        } catch (IOException | RuntimeException e) {
+          // the rest of the body cannot be framed, report it and stop
+          logger.debug("voucher " + count + " unreadable " + e.getMessage());
+          readError = count + " - unreadable";
+          more = false;
+        }
+
+        // decode and check the batch on the verifier pool
+        final List<Future<?>> checks = new ArrayList<>(batch.size());
+        for (ImportItem item : batch) {
+          checks.add(verifiers.submit(() -> verify(item, ownerKeys, cs)));
+        }
+        for (Future<?> check : checks) {
+          check.get();
+        }
+
+        try {
+          store(session, batch);
+        } catch (HibernateException e) {
+          session.close();
+          session = HibernateUtil.getSessionFactory().openSession();
+          session.setJdbcBatchSize(BATCH_SIZE);
+        }
+
+        for (ImportItem item : batch) {
+          if (item.error == null) {
+            imported++;
+          }
+        }
+        writeResults(writer, batch);
+        if (readError != null) {
+          writer.println(readError);
+        }
+      }
+    } finally {
+      session.close();
+    }
+    logger.info("imported " + imported + " of " + count + " vouchers");
+  }
+}
@@ -11,11 +11,16 @@ import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import org.fidoalliance.fdo.protocol.BufferUtils;
 import org.fidoalliance.fdo.protocol.HttpUtils;
 import org.fidoalliance.fdo.protocol.LoggerService;
+import org.fidoalliance.fdo.protocol.db.EntityCache;
 import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.To0Registry;
+import org.fidoalliance.fdo.protocol.db.VoucherCache;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.resource.transaction.spi.TransactionStatus;
@@ -30,6 +35,8 @@ public class RestApi implements AutoCloseable {
   private HttpServletRequest request;
   private HttpServletResponse response;
   private final List<String> uriSegments = new ArrayList<>();
+  private final Set<Class<?>> invalidations = new LinkedHashSet<>();
+  private final Set<String> voucherInvalidations = new LinkedHashSet<>();
 
   private Session session;
   private Transaction transaction;
@@ -90,6 +97,24 @@ public class RestApi implements AutoCloseable {
     }
   }
 
+  /**
+   * Marks cached values of an entity as stale once the transaction completes.
+   *
+   * @param entity The entity class being written.
+   */
+  protected void invalidate(Class<?> entity) {
+    invalidations.add(entity);
+  }
+
+  /**
+   * Marks a cached voucher as stale once the transaction completes.
+   *
+   * @param guid The guid of the voucher being written or deleted.
+   */
+  protected void invalidateVoucher(String guid) {
+    voucherInvalidations.add(guid);
+  }
+
   protected String getStringBody() throws Exception {
 
     try {
@@ -164,9 +189,20 @@ public class RestApi implements AutoCloseable {
 
   @Override
   public void close() throws Exception {
-    commit();
-    if (session != null) {
-      session.close();
+    try {
+      commit();
+    } finally {
+      for (Class<?> entity : invalidations) {
+        EntityCache.invalidate(entity);
+      }
+      for (String guid : voucherInvalidations) {
+        VoucherCache.invalidate(guid);
+        // a registration of the replaced or deleted voucher is obsolete
+        To0Registry.cancel(guid);
+      }
+      if (session != null) {
+        session.close();
+      }
     }
   }
 }
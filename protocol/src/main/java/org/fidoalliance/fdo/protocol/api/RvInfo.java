@@ -35,6 +35,7 @@ public class RvInfo extends RestApi {
     String body = getStringBody();
     logger.info("RVInfo doPost body : " + body);
     getTransaction();
+    invalidate(RvData.class);
 
     Mapper.INSTANCE.readJsonValue(body, RendezvousInfo.class);
 
@@ -39,6 +39,7 @@ public class RvReplacementApi extends RestApi {
   public void doPost() throws Exception {
 
     getTransaction();
+    invalidate(OnboardingConfig.class);
 
     String body = getStringBody();
     logger.info("RvReplacement body: " + body);
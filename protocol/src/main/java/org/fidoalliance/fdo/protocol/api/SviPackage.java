@@ -5,8 +5,8 @@ package org.fidoalliance.fdo.protocol.api;
 
 import jakarta.servlet.http.HttpServletResponse;
 import org.fidoalliance.fdo.protocol.LoggerService;
-import org.fidoalliance.fdo.protocol.Mapper;
 import org.fidoalliance.fdo.protocol.db.FdoSysInstruction;
+import org.fidoalliance.fdo.protocol.db.InstructionPlan;
 import org.fidoalliance.fdo.protocol.entity.SystemPackage;
 import org.hibernate.engine.jdbc.ClobProxy;
 
@@ -36,9 +36,10 @@ public class SviPackage extends RestApi {
   public void doPost() throws Exception {
     String body = getStringBody();
     getTransaction();
+    invalidate(SystemPackage.class);
     try {
-      FdoSysInstruction[] instructions =
-          Mapper.INSTANCE.readJsonValue(body, FdoSysInstruction[].class);
+      // compiled on upload, sessions started after the commit find the plan by version
+      FdoSysInstruction[] instructions = InstructionPlan.compile(body).getInstructions();
       if (instructions.length <= 0) {
         logger.warn("Empty SVI instruction.");
       }
@@ -51,6 +51,7 @@ public class SviSizeApi extends RestApi {
 
     // Create Session object and begin Hibernate transaction.
     getTransaction();
+    invalidate(OnboardingConfig.class);
 
     // Performing input checks on the SVI message size.
     int messageSize = 0;
@@ -5,9 +5,16 @@ package org.fidoalliance.fdo.protocol.api;
 
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Blob;
-import java.sql.SQLException;
-import javax.sql.rowset.serial.SerialBlob;
+import org.apache.commons.codec.binary.Hex;
 import org.fidoalliance.fdo.protocol.LoggerService;
 import org.fidoalliance.fdo.protocol.entity.SystemResource;
 
@@ -21,6 +28,8 @@ import org.fidoalliance.fdo.protocol.entity.SystemResource;
  *   - POST /api/v1/sviresource?filename=&lt;filename&gt;  with filecontents in the body
  *   - DELETE /api/v1/sviresource?filename=&lt;filename&gt;
  *
+ * <p>Uploads and downloads are streamed. GET honours a single byte Range header.
+ *
  * <p>RestApi Class provides a wrapper over the HttpServletRequest methods.
  */
 
@@ -28,6 +37,88 @@ public class SystemResourceApi extends RestApi {
 
   private static final LoggerService logger = new LoggerService(SystemResourceApi.class);
 
+  private static final String BYTES_UNIT = "bytes";
+
+  /**
+   * Digests and counts the bytes read from a stream.
+   */
+  private static class MeasuredInputStream extends DigestInputStream {
+
+    private long count;
+
+    MeasuredInputStream(InputStream in, MessageDigest digest) {
+      super(in, digest);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int br = super.read(b, off, len);
+      if (br > 0) {
+        count += br;
+      }
+      return br;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
+
+  /**
+   * Parses a single byte range against the resource size.
+   *
+   * @param range The Range header value.
+   * @param size  The size of the resource.
+   * @return The first and last byte position, null to send the whole resource or an empty
+   *     array if the range cannot be satisfied.
+   */
+  private static long[] parseRange(String range, long size) {
+    if (!range.startsWith(BYTES_UNIT + "=") || range.indexOf(',') >= 0) {
+      return null; // multiple ranges are not supported, send the whole resource
+    }
+    final String spec = range.substring(BYTES_UNIT.length() + 1).trim();
+    final int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return null;
+    }
+    try {
+      final String first = spec.substring(0, dash).trim();
+      final String last = spec.substring(dash + 1).trim();
+      long start;
+      long end;
+      if (first.isEmpty()) {
+        // suffix range, the final n bytes
+        long suffix = Long.parseLong(last);
+        if (suffix <= 0) {
+          return new long[0];
+        }
+        start = Math.max(0, size - suffix);
+        end = size - 1;
+      } else {
+        start = Long.parseLong(first);
+        end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+        if (end < start) {
+          return start >= size ? new long[0] : null;
+        }
+      }
+      if (start >= size) {
+        return new long[0];
+      }
+      return new long[]{start, end};
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
   @Override
   public void doGet() throws Exception {
 
@@ -42,7 +133,40 @@ public class SystemResourceApi extends RestApi {
 
     if (sviResource != null) {
       Blob data = sviResource.getData();
-      getResponse().getOutputStream().write(data.getBytes(1, (int) data.length()));
+      final long size = sviResource.getSize() != null ? sviResource.getSize() : data.length();
+      long start = 0;
+      long end = size - 1;
+
+      getResponse().setHeader("Accept-Ranges", BYTES_UNIT);
+      if (sviResource.getSha384() != null) {
+        getResponse().setHeader("ETag",
+            "\"" + Hex.encodeHexString(sviResource.getSha384()) + "\"");
+      }
+
+      final String range = getRequest().getHeader("Range");
+      if (range != null) {
+        long[] bounds = parseRange(range, size);
+        if (bounds != null && bounds.length == 0) {
+          getResponse().setHeader("Content-Range", BYTES_UNIT + " */" + size);
+          getResponse().setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+          return;
+        } else if (bounds != null) {
+          start = bounds[0];
+          end = bounds[1];
+          getResponse().setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+          getResponse().setHeader("Content-Range",
+              BYTES_UNIT + " " + start + "-" + end + "/" + size);
+        }
+      }
+
+      final long length = end - start + 1;
+      getResponse().setContentLengthLong(length);
+      if (length > 0) {
+        final OutputStream out = getResponse().getOutputStream();
+        try (InputStream in = data.getBinaryStream(start + 1, length)) {
+          in.transferTo(out);
+        }
+      }
     } else {
       logger.warn("SVI resource file not found.");
       getResponse().setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -51,32 +175,69 @@ public class SystemResourceApi extends RestApi {
   }
 
   @Override
-  public void doPost() throws IOException, SQLException {
+  public void doPost() throws Exception {
 
     // Create Session object and begin Hibernate transaction.
     getTransaction();
+    invalidate(SystemResource.class);
 
     // Collect parameter 'filename' from HttpRequest parameter and
     // uploaded file content from InputStream of request.
     String fileName = getParamByValue("filename");
     logger.info("Uploaded File: " + fileName + "to SystemResource Table");
-    byte[] sviResourceFile = getRequest().getInputStream().readAllBytes();
 
-    // Query database table SYSTEM_RESOURCE for filename Key
-    SystemResource sviResource = getSession().get(SystemResource.class, fileName);
-
-    if (sviResource == null) {
-      // Insert the row, if filename doesn't exist.
-      sviResource = new SystemResource();
-      sviResource.setName(fileName);
-      sviResource.setData(new SerialBlob(sviResourceFile));
-      getSession().save(sviResource);
-    } else {
-      // Update the row, if filename already exists.
-      sviResource.setData(new SerialBlob(sviResourceFile));
-      getSession().update(sviResource);
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-384");
+    } catch (NoSuchAlgorithmException e) {
+      throw new InternalServerErrorException(e);
     }
 
+    // the blob length must be known up front, spool chunked uploads to disk
+    long length = getRequest().getContentLengthLong();
+    Path spool = null;
+    try {
+      InputStream body = getRequest().getInputStream();
+      if (length < 0) {
+        spool = Files.createTempFile("resource", ".tmp");
+        length = Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+        body = Files.newInputStream(spool);
+      }
+
+      try (MeasuredInputStream in = new MeasuredInputStream(body, digest)) {
+
+        // Query database table SYSTEM_RESOURCE for filename Key
+        SystemResource sviResource = getSession().get(SystemResource.class, fileName);
+
+        if (sviResource == null) {
+          // Insert the row, if filename doesn't exist.
+          sviResource = new SystemResource();
+          sviResource.setName(fileName);
+          sviResource.setData(getSession().getLobHelper().createBlob(in, length));
+          sviResource.setSize(length);
+          getSession().save(sviResource);
+        } else {
+          // Update the row, if filename already exists.
+          sviResource.setData(getSession().getLobHelper().createBlob(in, length));
+          sviResource.setSize(length);
+          sviResource.setSha384(null);
+          getSession().update(sviResource);
+        }
+
+        // writes the blob, the hash is only known once the stream is consumed
+        getSession().flush();
+        if (in.getCount() != length) {
+          logger.error("SVI resource upload truncated: " + fileName);
+          getTransaction().rollback();
+          throw new BadRequestException("content length mismatch");
+        }
+        sviResource.setSha384(digest.digest());
+      }
+    } finally {
+      if (spool != null) {
+        Files.deleteIfExists(spool);
+      }
+    }
   }
 
   @Override
@@ -84,6 +245,7 @@ public class SystemResourceApi extends RestApi {
 
     // Create Session object and begin Hibernate transaction.
     getTransaction();
+    invalidate(SystemResource.class);
 
     // Collect parameter 'filename' from HttpRequest
     String fileName = getParamByValue("filename");
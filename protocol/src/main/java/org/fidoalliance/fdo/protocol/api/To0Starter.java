@@ -3,29 +3,28 @@
 
 package org.fidoalliance.fdo.protocol.api;
 
-import java.io.IOException;
-import java.sql.SQLException;
-import java.time.Duration;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import org.fidoalliance.fdo.protocol.Config;
+import java.util.concurrent.RejectedExecutionException;
 import org.fidoalliance.fdo.protocol.LoggerService;
 import org.fidoalliance.fdo.protocol.Mapper;
-import org.fidoalliance.fdo.protocol.StandardTo0Client;
-import org.fidoalliance.fdo.protocol.db.OnboardConfigSupplier;
-import org.fidoalliance.fdo.protocol.db.To2BlobSupplier;
-import org.fidoalliance.fdo.protocol.dispatch.VoucherQueryFunction;
-import org.fidoalliance.fdo.protocol.entity.OnboardingConfig;
+import org.fidoalliance.fdo.protocol.db.To0Job;
+import org.fidoalliance.fdo.protocol.db.To0JobQueue;
 import org.fidoalliance.fdo.protocol.entity.VoucherAlias;
-import org.fidoalliance.fdo.protocol.message.OwnershipVoucher;
-import org.fidoalliance.fdo.protocol.message.To0OwnerSign;
-import org.fidoalliance.fdo.protocol.message.To0d;
-import org.fidoalliance.fdo.protocol.message.To2AddressEntries;
 
 /**
  * API to start Starts To0 protocol.
+ *
+ * <p>GET /api/v1/to0/{guid} queues a TO0 job and returns it, GET /api/v1/to0/status/{guid}
+ * returns the job of a voucher and GET /api/v1/to0/status returns all the jobs kept.</p>
  */
 public class To0Starter extends RestApi {
 
+  private static final String STATUS = "status";
+
   private boolean isGuid(String value) {
     try {
       UUID.fromString(value);
@@ -35,50 +34,74 @@ public class To0Starter extends RestApi {
     return true;
   }
 
-  @Override
-  public void doGet() throws Exception {
-
-    LoggerService logger = new LoggerService(To0Starter.class);
-    String path = getLastSegment();
-
+  private String resolveGuid(String path) {
     //if last segment is serialno vs guid
     if (!isGuid(path)) {
       VoucherAlias voucherAlias = getSession().get(VoucherAlias.class, path);
       if (voucherAlias != null) {
-        path = voucherAlias.getGuid();
+        return voucherAlias.getGuid();
       }
     }
+    return path;
+  }
 
-    final String guid = path;
-
-    Thread thread = new Thread() {
-      public void run() {
-        try {
-          logger.info("Triggering TO0 for GUID: " + guid);
-          OwnershipVoucher voucher = Config.getWorker(VoucherQueryFunction.class).apply(
-              guid);
-          StandardTo0Client to0Client = new StandardTo0Client();
-          To0d to0d = new To0d();
-          to0d.setVoucher(voucher);
-          to0d.setWaitSeconds(Duration.ofDays(1).toSeconds());
+  private void writeJson(Object body) throws Exception {
+    getResponse().setContentType("application/json");
+    getResponse().getWriter().print(Mapper.INSTANCE.writeJsonValue(body));
+  }
 
-          OnboardingConfig onboardConfig = new OnboardConfigSupplier().get();
+  private void getStatus(To0JobQueue queue) throws Exception {
+    final List<String> segments = getUriSegments();
+    if (segments.size() > 1 && segments.get(1).equals(STATUS)) {
+      final String guid = resolveGuid(getLastSegment());
+      final To0Job job = queue.getJob(guid);
+      if (job == null) {
+        throw new NotFoundException(guid);
+      }
+      writeJson(job);
+      return;
+    }
 
-          To2AddressEntries addressEntries = new To2BlobSupplier().get();
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("queued", queue.getQueuedCount());
+    body.put("running", queue.getRunningCount());
+    body.put("submitted", queue.getSubmittedCount());
+    body.put("coalesced", queue.getCoalescedCount());
+    body.put("rejected", queue.getRejectedCount());
+    body.put("succeeded", queue.getSucceededCount());
+    body.put("failed", queue.getFailedCount());
+    body.put("jobs", queue.getJobs());
+    writeJson(body);
+  }
 
-          to0Client.setAddressEntries(addressEntries);
+  @Override
+  public void doGet() throws Exception {
 
-          to0d.setWaitSeconds(onboardConfig.getWaitSeconds());
-          to0Client.setTo0d(to0d);
-          to0Client.run();
-        } catch (IOException e) {
-          logger.error("TO0 failed for GUID: " + guid);
-        }
+    LoggerService logger = new LoggerService(To0Starter.class);
+    final To0JobQueue queue = To0JobQueue.getInstance();
 
-      }
-    };
+    final String path = getLastSegment();
+    if (path.equals(STATUS) || (getUriSegments().size() > 1
+        && getUriSegments().get(1).equals(STATUS))) {
+      getStatus(queue);
+      return;
+    }
 
-    thread.start();
+    final String guid = resolveGuid(path);
+    final To0Job job;
+    try {
+      job = queue.submit(guid);
+    } catch (RejectedExecutionException e) {
+      logger.warn("TO0 queue full, rejected GUID: " + guid);
+      getResponse().setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
 
+    if (job == null) {
+      logger.info("TO0 already in progress for GUID: " + guid);
+      getResponse().setStatus(HttpServletResponse.SC_CONFLICT);
+      return;
+    }
+    writeJson(job);
   }
 }
@@ -40,6 +40,7 @@ public class To2Blob extends RestApi {
   public void doPost() throws Exception {
 
     getTransaction();
+    invalidate(OnboardingConfig.class);
 
     String body = getStringBody();
     logger.info("TO2 body: " + body);
@@ -0,0 +1,130 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.function.FailableSupplier;
+import org.fidoalliance.fdo.protocol.Mapper;
+
+/**
+ * Process local cache of values derived from read-mostly configuration entities.
+ *
+ * <p>Values are grouped into a region per entity class and the region is cleared when
+ * the entity is written. Values cached with get are shared between threads and must not be
+ * modified by callers, mutable message values are cached with getCopy instead.</p>
+ */
+public final class EntityCache {
+
+  private static class Region {
+
+    private final Map<String, Optional<Object>> values = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+  }
+
+  private static final Map<Class<?>, Region> regions = new ConcurrentHashMap<>();
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private EntityCache() {
+  }
+
+  private static Region getRegion(Class<?> entity) {
+    return regions.computeIfAbsent(entity, k -> new Region());
+  }
+
+  /**
+   * Gets a cached value, loading it on a miss.
+   *
+   * @param entity The entity class the value is derived from.
+   * @param name   The name of the value within the entity region.
+   * @param loader Loads the value from the database.
+   * @param <T>    The value type.
+   * @return The cached or loaded value.
+   * @throws IOException An error occurred.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T get(Class<?> entity, String name,
+      FailableSupplier<T, IOException> loader) throws IOException {
+
+    final Region region = getRegion(entity);
+    final Optional<Object> cached = region.values.get(name);
+    if (cached != null) {
+      hits.incrementAndGet();
+      return (T) cached.orElse(null);
+    }
+
+    misses.incrementAndGet();
+    final long generation = region.generation.get();
+    final T value = loader.get();
+
+    // a write during the load bumps the generation and the loaded value may be stale
+    synchronized (region) {
+      if (region.generation.get() == generation) {
+        region.values.put(name, Optional.ofNullable(value));
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Gets a copy of a cached value, loading it on a miss.
+   *
+   * <p>The value is cached in its cbor encoding and decoded on each call, so callers get
+   * their own instance and may modify it.</p>
+   *
+   * @param entity The entity class the value is derived from.
+   * @param name   The name of the value within the entity region.
+   * @param type   The value type.
+   * @param loader Loads the value from the database.
+   * @param <T>    The value type.
+   * @return A copy of the cached or loaded value.
+   * @throws IOException An error occurred.
+   */
+  public static <T> T getCopy(Class<?> entity, String name, Class<T> type,
+      FailableSupplier<T, IOException> loader) throws IOException {
+
+    final byte[] encoded = get(entity, name, () -> {
+      final T value = loader.get();
+      return value != null ? Mapper.INSTANCE.writeValue(value) : null;
+    });
+    if (encoded == null) {
+      return null;
+    }
+    return Mapper.INSTANCE.readValue(encoded, type);
+  }
+
+  /**
+   * Discards all cached values derived from an entity.
+   *
+   * @param entity The entity class that was written.
+   */
+  public static void invalidate(Class<?> entity) {
+    final Region region = getRegion(entity);
+    synchronized (region) {
+      region.generation.incrementAndGet();
+      region.values.clear();
+    }
+  }
+
+  /**
+   * Discards all cached values.
+   */
+  public static void invalidateAll() {
+    for (Class<?> entity : regions.keySet()) {
+      invalidate(entity);
+    }
+  }
+
+  public static long getHitCount() {
+    return hits.get();
+  }
+
+  public static long getMissCount() {
+    return misses.get();
+  }
+}
@@ -4,7 +4,6 @@
 package org.fidoalliance.fdo.protocol.db;
 
 import java.io.IOException;
-import java.util.Map;
 import java.util.Objects;
 
 import org.fidoalliance.fdo.protocol.LoggerService;
@@ -154,10 +153,6 @@ public class FdoSimCommandOwnerModule implements ServiceInfoModule {
         && extra.getFilter().containsKey(DevMod.KEY_ARCH);
   }
 
-  protected boolean checkFilter(Map<String, String> devMap, Map<String, String> filterMap) {
-    return !devMap.entrySet().containsAll(filterMap.entrySet());
-  }
-
   protected boolean checkProvider(FdoSysInstruction instruction) {
     if (instruction.getModule() == null) {
       return false;
@@ -182,8 +177,9 @@ public class FdoSimCommandOwnerModule implements ServiceInfoModule {
       state.getGlobalState().getQueue().addFirst(activePair);
     }
     if (document.getInstructions() != null) {
-      FdoSysInstruction[] instructions =
-              Mapper.INSTANCE.readJsonValue(document.getInstructions(), FdoSysInstruction[].class);
+      final InstructionPlan plan = InstructionPlan.of(document);
+      final InstructionPlan.Selection selection = plan.select(extra.getFilter());
+      FdoSysInstruction[] instructions = plan.getInstructions();
 
       boolean skip = false;
       for (int i = 0; i < instructions.length; i++) {
@@ -193,7 +189,7 @@ public class FdoSimCommandOwnerModule implements ServiceInfoModule {
         }
 
         if (instructions[i].getFilter() != null) {
-          skip = checkFilter(extra.getFilter(), instructions[i].getFilter());
+          skip = selection.isFiltered(i);
         }
         if (skip) {
           document.setIndex(i);
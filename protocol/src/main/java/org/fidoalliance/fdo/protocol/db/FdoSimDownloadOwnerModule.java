@@ -4,25 +4,13 @@
 package org.fidoalliance.fdo.protocol.db;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.sql.Blob;
-import java.sql.SQLException;
-import java.util.Map;
 import java.util.Objects;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.fidoalliance.fdo.protocol.Config;
 import org.fidoalliance.fdo.protocol.InternalServerErrorException;
 import org.fidoalliance.fdo.protocol.LoggerService;
 import org.fidoalliance.fdo.protocol.Mapper;
 import org.fidoalliance.fdo.protocol.dispatch.ServiceInfoModule;
 import org.fidoalliance.fdo.protocol.dispatch.ServiceInfoSendFunction;
-import org.fidoalliance.fdo.protocol.entity.SystemResource;
 import org.fidoalliance.fdo.protocol.message.AnyType;
 import org.fidoalliance.fdo.protocol.message.DevModList;
 import org.fidoalliance.fdo.protocol.message.ServiceInfoDocument;
@@ -31,8 +19,6 @@ import org.fidoalliance.fdo.protocol.message.ServiceInfoModuleState;
 import org.fidoalliance.fdo.protocol.message.ServiceInfoQueue;
 import org.fidoalliance.fdo.protocol.serviceinfo.DevMod;
 import org.fidoalliance.fdo.protocol.serviceinfo.FdoSys;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
 
 public class FdoSimDownloadOwnerModule implements ServiceInfoModule {
 
@@ -44,6 +30,9 @@ public class FdoSimDownloadOwnerModule implements ServiceInfoModule {
   public static final String DATA = MODULE_NAME + ":data";
   public static final String DONE = MODULE_NAME + ":done";
 
+  // queued in place of the data of a file, never sent
+  private static final String STREAM = MODULE_NAME + ":stream";
+
 
   private final LoggerService logger = new LoggerService(FdoSimDownloadOwnerModule.class);
 
@@ -150,6 +139,13 @@ public class FdoSimDownloadOwnerModule implements ServiceInfoModule {
       if (extra.isWaiting()) {
         break;
       }
+      if (state.getGlobalState().getQueue().peek().getKey().equals(STREAM)) {
+        if (ResourceCursor.sendNext(state.getGlobalState().getQueue(), DATA,
+            state.getMtu() - 26, sendFunction)) {
+          continue;
+        }
+        break;
+      }
       boolean sent = sendFunction.apply(state.getGlobalState().getQueue().peek());
       if (sent) {
         checkWaiting(extra, Objects.requireNonNull(state.getGlobalState().getQueue().poll()));
@@ -189,10 +185,6 @@ public class FdoSimDownloadOwnerModule implements ServiceInfoModule {
         && extra.getFilter().containsKey(DevMod.KEY_ARCH);
   }
 
-  protected boolean checkFilter(Map<String, String> devMap, Map<String, String> filterMap) {
-    return !devMap.entrySet().containsAll(filterMap.entrySet());
-  }
-
   protected boolean checkProvider(FdoSysInstruction instruction) {
     if (instruction.getModule() == null) {
       return false;
@@ -204,85 +196,9 @@ public class FdoSimDownloadOwnerModule implements ServiceInfoModule {
       FdoSysModuleExtra extra,
       FdoSysInstruction instruction) throws IOException {
     String resource = instruction.getResource();
-    final Session session = HibernateUtil.getSessionFactory().openSession();
-    try {
-      final Transaction trans = session.beginTransaction();
-      resource = resource.replace("$(guid)", state.getGuid().toString());
-
-      // Query database table SYSTEM_RESOURCE for filename Key
-      final SystemResource sviResource = session.get(SystemResource.class, resource);
-
-      if (sviResource != null) {
-        Blob blobData = sviResource.getData();
-        int bufferCount = 1;
-        try (InputStream input = blobData.getBinaryStream()) {
-          MessageDigest msgDigest = MessageDigest.getInstance("SHA-384");
-          int fileLength = 0;
-          for (; ; ) {
-            byte[] data = new byte[state.getMtu() - 26];
-            int br = input.read(data);
-            if (br == -1) {
-              break;
-            }
-            ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
-            kv.setKeyName(DATA);
-
-            if (br < data.length) {
-              byte[] temp = data;
-              data = new byte[br];
-              System.arraycopy(temp, 0, data, 0, br);
-            }
-
-            if (data.length > 0) {
-              fileLength += data.length;
-              msgDigest.update(data);
-              kv.setValue(Mapper.INSTANCE.writeValue(data));
-              state.getGlobalState().getQueue().add(kv);
-              bufferCount = bufferCount + 1;
-            }
-          }
-
-          ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
-          kv.setKeyName(DATA);
-          kv.setValue(Mapper.INSTANCE.writeValue(new byte[0])); //send empty
-          state.getGlobalState().getQueue().add(kv);
-
-          kv = new ServiceInfoKeyValuePair();
-          kv.setKeyName(SHA_384);
-          kv.setValue(Mapper.INSTANCE.writeValue(msgDigest.digest()));
-          //state.getGlobalState().getQueue().add(kv);
-          ServiceInfoQueue queue = state.getGlobalState().getQueue();
-          queue.add(queue.size() - bufferCount - 1, kv);
-
-          kv = new ServiceInfoKeyValuePair();
-          kv.setKeyName(LENGTH);
-          kv.setValue(Mapper.INSTANCE.writeValue(fileLength));
-          //state.getGlobalState().getQueue().add(kv);
-          queue = state.getGlobalState().getQueue();
-          queue.add(queue.size() - bufferCount - 1, kv);
-          extra.setLength(fileLength);
-          extra.getFileLength().add(fileLength);
-
-
-          //kv = new ServiceInfoKeyValuePair();
-          //kv.setKeyName(NAME);
-          //kv.setValue(Mapper.INSTANCE.writeValue(instruction.getFileDesc()));
-          //state.getGlobalState().getQueue().addFirst(kv);
-          //extra.setName(instruction.getFileDesc());
-
-
-        } catch (SQLException | NoSuchAlgorithmException throwables) {
-          throw new InternalServerErrorException(throwables);
-        }
-      } else {
-        throw new InternalServerErrorException("svi resource missing " + resource);
-      }
-      trans.commit();
-
-    } finally {
-      session.close();
-    }
+    resource = resource.replace("$(guid)", state.getGuid().toString());
 
+    queueFile(state, extra, ResourceCursor.ofResource(resource));
   }
 
   protected void getUrlFile(ServiceInfoModuleState state,
@@ -291,54 +207,35 @@ public class FdoSimDownloadOwnerModule implements ServiceInfoModule {
     String resource = instruction.getResource();
     resource = resource.replace("$(guid)", state.getGuid().toString());
 
-    try (CloseableHttpClient httpClient = Config.getWorker(ServiceInfoHttpClientSupplier.class)
-        .get()) {
+    queueFile(state, extra, ResourceCursor.ofUrl(resource));
+  }
 
-      logger.info("HTTP(S) GET: " + resource);
-      HttpGet httpRequest = new HttpGet(resource);
-      int fileLength = 0;
-      try (CloseableHttpResponse httpResponse = httpClient.execute(httpRequest)) {
-        logger.info(httpResponse.getStatusLine().toString());
-        if (httpResponse.getStatusLine().getStatusCode() != 200) {
-          throw new InternalServerErrorException(httpResponse.getStatusLine().toString());
-        }
-        HttpEntity entity = httpResponse.getEntity();
-        if (entity != null) {
-          logger.info("content length is " + entity.getContentLength());
-
-          try (InputStream input = entity.getContent()) {
-            logger.info("reading data");
-            for (; ; ) {
-              byte[] data = new byte[state.getMtu() - 26];
-              int br = input.read(data);
-              if (br == -1) {
-                break;
-              }
-              ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
-              kv.setKeyName(DATA);
-
-              if (br < data.length) {
-                fileLength = fileLength + br;
-                byte[] temp = data;
-                data = new byte[br];
-                System.arraycopy(temp, 0, data, 0, br);
-              }
-              kv.setValue(Mapper.INSTANCE.writeValue(data));
-              state.getGlobalState().getQueue().add(kv);
-            }
-            extra.getFileLength().add(fileLength);
-          }
-        }
-      }
-    } catch (RuntimeException e) {
-      logger.error("Runtime Exception:" + e.getMessage());
-      throw new InternalServerErrorException(e);
-    } catch (Exception e) {
-      logger.error("failed to get http content" + e.getMessage());
-      throw new InternalServerErrorException(e);
-    }
-    logger.info("http content downloaded successfully!");
+  protected void queueFile(ServiceInfoModuleState state,
+      FdoSysModuleExtra extra,
+      ResourceCursor cursor) throws IOException {
 
+    // the hash and length precede the name already queued
+    final ServiceInfoQueue queue = state.getGlobalState().getQueue();
+    ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName(SHA_384);
+    kv.setValue(Mapper.INSTANCE.writeValue(cursor.getSha384()));
+    queue.add(queue.size() - 1, kv);
+
+    final int fileLength = Math.toIntExact(cursor.getLength());
+    kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName(LENGTH);
+    kv.setValue(Mapper.INSTANCE.writeValue(fileLength));
+    queue.add(queue.size() - 1, kv);
+    extra.setLength(fileLength);
+    extra.getFileLength().add(fileLength);
+
+    // the data is read from the cursor as each message is sent
+    queue.add(cursor.toPair(STREAM));
+
+    kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName(DATA);
+    kv.setValue(Mapper.INSTANCE.writeValue(new byte[0])); //send empty
+    queue.add(kv);
   }
 
   protected void load(ServiceInfoModuleState state, FdoSysModuleExtra extra)
@@ -350,8 +247,9 @@ public class FdoSimDownloadOwnerModule implements ServiceInfoModule {
 
     ServiceInfoDocument document = state.getDocument();
     if (document.getInstructions() != null) {
-      FdoSysInstruction[] instructions =
-              Mapper.INSTANCE.readJsonValue(document.getInstructions(), FdoSysInstruction[].class);
+      final InstructionPlan plan = InstructionPlan.of(document);
+      final InstructionPlan.Selection selection = plan.select(extra.getFilter());
+      FdoSysInstruction[] instructions = plan.getInstructions();
 
       boolean skip = false;
       for (int i = 0; i < instructions.length; i++) {
@@ -361,7 +259,7 @@ public class FdoSimDownloadOwnerModule implements ServiceInfoModule {
         }
 
         if (instructions[i].getFilter() != null) {
-          skip = checkFilter(extra.getFilter(), instructions[i].getFilter());
+          skip = selection.isFiltered(i);
         }
         if (skip) {
           document.setIndex(i);
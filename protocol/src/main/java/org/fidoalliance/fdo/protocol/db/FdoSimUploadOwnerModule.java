@@ -7,7 +7,6 @@ import java.io.IOException;
 import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Map;
 import java.util.Objects;
 
 import org.fidoalliance.fdo.protocol.InternalServerErrorException;
@@ -170,10 +169,6 @@ public class FdoSimUploadOwnerModule implements ServiceInfoModule {
         && extra.getFilter().containsKey(DevMod.KEY_ARCH);
   }
 
-  protected boolean checkFilter(Map<String, String> devMap, Map<String, String> filterMap) {
-    return !devMap.entrySet().containsAll(filterMap.entrySet());
-  }
-
   protected boolean checkProvider(FdoSysInstruction instruction) {
     if (instruction.getModule() != null) {
       return instruction.getModule().equals(getName());
@@ -191,8 +186,9 @@ public class FdoSimUploadOwnerModule implements ServiceInfoModule {
 
     ServiceInfoDocument document = state.getDocument();
     if (document.getInstructions() != null) {
-      FdoSysInstruction[] instructions =
-              Mapper.INSTANCE.readJsonValue(document.getInstructions(), FdoSysInstruction[].class);
+      final InstructionPlan plan = InstructionPlan.of(document);
+      final InstructionPlan.Selection selection = plan.select(extra.getFilter());
+      FdoSysInstruction[] instructions = plan.getInstructions();
 
       boolean skip = false;
       for (int i = document.getIndex(); i < instructions.length; i++) {
@@ -202,7 +198,7 @@ public class FdoSimUploadOwnerModule implements ServiceInfoModule {
         }
 
         if (instructions[i].getFilter() != null) {
-          skip = checkFilter(extra.getFilter(), instructions[i].getFilter());
+          skip = selection.isFiltered(i);
         }
         if (skip) {
           document.setIndex(i);
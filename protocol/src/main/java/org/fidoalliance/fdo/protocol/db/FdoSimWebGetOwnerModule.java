@@ -4,7 +4,6 @@
 package org.fidoalliance.fdo.protocol.db;
 
 import java.io.IOException;
-import java.util.Map;
 import java.util.Objects;
 
 import org.apache.commons.codec.DecoderException;
@@ -147,10 +146,6 @@ public class FdoSimWebGetOwnerModule implements ServiceInfoModule {
         && extra.getFilter().containsKey(DevMod.KEY_ARCH);
   }
 
-  protected boolean checkFilter(Map<String, String> devMap, Map<String, String> filterMap) {
-    return !devMap.entrySet().containsAll(filterMap.entrySet());
-  }
-
   protected boolean checkProvider(FdoSysInstruction instruction) {
     if (instruction.getModule() != null) {
       return instruction.getModule().equals(getName());
@@ -167,8 +162,9 @@ public class FdoSimWebGetOwnerModule implements ServiceInfoModule {
     }
 
     ServiceInfoDocument document = state.getDocument();
-    FdoSysInstruction[] instructions =
-        Mapper.INSTANCE.readJsonValue(document.getInstructions(), FdoSysInstruction[].class);
+    final InstructionPlan plan = InstructionPlan.of(document);
+    final InstructionPlan.Selection selection = plan.select(extra.getFilter());
+    FdoSysInstruction[] instructions = plan.getInstructions();
 
     boolean skip = false;
     for (int i = document.getIndex(); i < instructions.length; i++) {
@@ -178,7 +174,7 @@ public class FdoSimWebGetOwnerModule implements ServiceInfoModule {
       }
 
       if (instructions[i].getFilter() != null) {
-        skip = checkFilter(extra.getFilter(), instructions[i].getFilter());
+        skip = selection.isFiltered(i);
       }
       if (skip) {
         document.setIndex(i);
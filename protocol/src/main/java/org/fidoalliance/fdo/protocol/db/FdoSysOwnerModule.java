@@ -6,34 +6,24 @@ package org.fidoalliance.fdo.protocol.db;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.sql.Blob;
-import java.sql.SQLException;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Predicate;
-import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.fidoalliance.fdo.protocol.Config;
 import org.fidoalliance.fdo.protocol.InternalServerErrorException;
 import org.fidoalliance.fdo.protocol.LoggerService;
 import org.fidoalliance.fdo.protocol.Mapper;
 import org.fidoalliance.fdo.protocol.dispatch.ServiceInfoModule;
 import org.fidoalliance.fdo.protocol.dispatch.ServiceInfoSendFunction;
-import org.fidoalliance.fdo.protocol.entity.SystemResource;
 import org.fidoalliance.fdo.protocol.message.AnyType;
 import org.fidoalliance.fdo.protocol.message.DevModList;
 import org.fidoalliance.fdo.protocol.message.EotResult;
@@ -45,14 +35,14 @@ import org.fidoalliance.fdo.protocol.message.ServiceInfoQueue;
 import org.fidoalliance.fdo.protocol.message.StatusCb;
 import org.fidoalliance.fdo.protocol.serviceinfo.DevMod;
 import org.fidoalliance.fdo.protocol.serviceinfo.FdoSys;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
 
 /**
  * Implements FdoSysModule spec.
  */
 public class FdoSysOwnerModule implements ServiceInfoModule {
 
+  // queued in place of the data of a file, never sent
+  private static final String STREAM = FdoSys.NAME + ":stream";
 
   private final LoggerService logger = new LoggerService(FdoSysOwnerModule.class);
   private String fetchFileName;
@@ -159,6 +149,13 @@ public class FdoSysOwnerModule implements ServiceInfoModule {
     }
 
     while (state.getGlobalState().getQueue().size() > 0) {
+      if (state.getGlobalState().getQueue().peek().getKey().equals(STREAM)) {
+        if (ResourceCursor.sendNext(state.getGlobalState().getQueue(), FdoSys.WRITE,
+            state.getMtu() - 26, sendFunction)) {
+          continue;
+        }
+        break;
+      }
       boolean sent = sendFunction.apply(state.getGlobalState().getQueue().peek());
       if (sent) {
         if (state.getGlobalState().getQueue().size() > 0) {
@@ -214,10 +211,6 @@ public class FdoSysOwnerModule implements ServiceInfoModule {
     return file.getCanonicalPath();
   }
 
-  protected boolean checkFilter(Map<String, String> devMap, Map<String, String> filterMap) {
-    return !devMap.entrySet().containsAll(filterMap.entrySet());
-  }
-
   protected void onStatusCb(ServiceInfoModuleState state, FdoSysModuleExtra extra,
       StatusCb status) throws IOException {
     logger.info("status_cb completed " + status.isCompleted() + " retcode "
@@ -266,8 +259,9 @@ public class FdoSysOwnerModule implements ServiceInfoModule {
 
     ServiceInfoDocument document = state.getDocument();
     if (document.getInstructions() != null) {
-      FdoSysInstruction[] instructions =
-              Mapper.INSTANCE.readJsonValue(document.getInstructions(), FdoSysInstruction[].class);
+      final InstructionPlan plan = InstructionPlan.of(document);
+      final InstructionPlan.Selection selection = plan.select(extra.getFilter());
+      FdoSysInstruction[] instructions = plan.getInstructions();
 
       boolean skip = false;
       for (int i = 0; i < instructions.length; i++) {
@@ -277,7 +271,7 @@ public class FdoSysOwnerModule implements ServiceInfoModule {
         }
 
         if (instructions[i].getFilter() != null) {
-          skip = checkFilter(extra.getFilter(), instructions[i].getFilter());
+          skip = selection.isFiltered(i);
         }
         if (skip) {
           document.setIndex(i);
@@ -351,48 +345,10 @@ public class FdoSysOwnerModule implements ServiceInfoModule {
       FdoSysModuleExtra extra,
       FdoSysInstruction instruction) throws IOException {
     String resource = instruction.getResource();
-    final Session session = HibernateUtil.getSessionFactory().openSession();
-    try {
-      Transaction trans = session.beginTransaction();
-      resource = resource.replace("$(guid)", state.getGuid().toString());
-
-      // Query database table SYSTEM_RESOURCE for filename Key
-      SystemResource sviResource = session.get(SystemResource.class, resource);
-
-      if (sviResource != null) {
-        Blob blobData = sviResource.getData();
-        try (InputStream input = blobData.getBinaryStream()) {
-          for (; ; ) {
-            byte[] data = new byte[state.getMtu() - 26];
-            int br = input.read(data);
-            if (br == -1) {
-              break;
-            }
-            ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
-            kv.setKeyName(FdoSys.WRITE);
-
-            if (br < data.length) {
-              byte[] temp = data;
-              data = new byte[br];
-              System.arraycopy(temp, 0, data, 0, br);
-            }
-            kv.setValue(Mapper.INSTANCE.writeValue(data));
-            state.getGlobalState().getQueue().add(kv);
-          }
-        } catch (SQLException throwables) {
-          logger.error("SQL Exception " + throwables.getMessage());
-          throw new InternalServerErrorException(throwables);
-        }
-      } else {
-        logger.error("SVI resource missing");
-        throw new InternalServerErrorException("svi resource missing " + resource);
-      }
-      trans.commit();
-
-    } finally {
-      session.close();
-    }
+    resource = resource.replace("$(guid)", state.getGuid().toString());
 
+    // the data is read from the cursor as each message is sent
+    state.getGlobalState().getQueue().add(ResourceCursor.ofResource(resource).toPair(STREAM));
   }
 
   private ProcessBuilder.Redirect getExecOutputRedirect() {
@@ -464,51 +420,7 @@ public class FdoSysOwnerModule implements ServiceInfoModule {
     String resource = instruction.getResource();
     resource = resource.replace("$(guid)", state.getGuid().toString());
 
-    try (CloseableHttpClient httpClient = Config.getWorker(ServiceInfoHttpClientSupplier.class)
-        .get()) {
-
-      logger.info("HTTP(S) GET: " + resource);
-      HttpGet httpRequest = new HttpGet(resource);
-      try (CloseableHttpResponse httpResponse = httpClient.execute(httpRequest)) {
-        logger.info(httpResponse.getStatusLine().toString());
-        if (httpResponse.getStatusLine().getStatusCode() != 200) {
-          throw new InternalServerErrorException(httpResponse.getStatusLine().toString());
-        }
-        HttpEntity entity = httpResponse.getEntity();
-        if (entity != null) {
-          logger.info("content length is " + entity.getContentLength());
-
-          try (InputStream input = entity.getContent()) {
-            logger.info("reading data");
-            for (; ; ) {
-              byte[] data = new byte[state.getMtu() - 26];
-              int br = input.read(data);
-              if (br == -1) {
-                break;
-              }
-              ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
-              kv.setKeyName(FdoSys.WRITE);
-
-              if (br < data.length) {
-                byte[] temp = data;
-                data = new byte[br];
-                System.arraycopy(temp, 0, data, 0, br);
-              }
-              kv.setValue(Mapper.INSTANCE.writeValue(data));
-              state.getGlobalState().getQueue().add(kv);
-            }
-          }
-        }
-      }
-    } catch (RuntimeException e) {
-      logger.error("Runtime Exception" + e.getMessage());
-      throw new InternalServerErrorException(e);
-    } catch (Exception e) {
-      logger.error("failed to get http content" + e.getMessage());
-      throw new InternalServerErrorException(e);
-    }
-    logger.info("http content downloaded successfully!");
-
+    state.getGlobalState().getQueue().add(ResourceCursor.ofUrl(resource).toPair(STREAM));
   }
 
   protected void getFile(ServiceInfoModuleState state,
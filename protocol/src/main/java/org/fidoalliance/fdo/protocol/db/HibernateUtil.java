@@ -19,6 +19,8 @@ import org.fidoalliance.fdo.protocol.dispatch.ExceptionConsumer;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
 /**
  * Hibernate Utilities.
@@ -32,27 +34,51 @@ public class HibernateUtil {
     @JsonProperty("hibernate-properties")
     private final Map<String, String> hibernateProperties = new HashMap<>();
 
+    @JsonProperty("hibernate-replica")
+    private ReplicaConfig replica;
+
+  }
+
+  private static class ReplicaConfig {
+
+    @JsonProperty("max-staleness")
+    private long maxStaleness = 5000;
+
+    @JsonProperty("properties")
+    private final Map<String, String> properties = new HashMap<>();
   }
 
   private static final SessionFactory sessionFactory = buildSessionFactory();
 
-  private static SessionFactory buildSessionFactory() {
-    try {
+  private static final SessionFactory replicaFactory = buildReplicaFactory();
 
-      final File file = Path.of(Config.getPath(), "hibernate.cfg.xml").toFile();
-      final Configuration cfg = new Configuration();
+  private static final ReplicaRouter readRouter = new ReplicaRouter(sessionFactory,
+      replicaFactory,
+      replicaFactory != null ? Config.getConfig(RootConfig.class).replica.maxStaleness : 0);
 
-      cfg.configure(file);
+  private static Configuration getConfiguration() {
+    final File file = Path.of(Config.getPath(), "hibernate.cfg.xml").toFile();
+    final Configuration cfg = new Configuration();
 
-      final Map<String, String> map = Config.getConfig(RootConfig.class).hibernateProperties;
-      for (Map.Entry<String, String> entry : map.entrySet()) {
-        cfg.setProperty(entry.getKey(), Config.resolve(entry.getValue()));
-      }
+    cfg.configure(file);
+
+    final Map<String, String> map = Config.getConfig(RootConfig.class).hibernateProperties;
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      cfg.setProperty(entry.getKey(), Config.resolve(entry.getValue()));
+    }
+    return cfg;
+  }
+
+  private static SessionFactory buildSessionFactory() {
+    try {
+
+      final Configuration cfg = getConfiguration();
 
       final DatabaseServer server = Config.getWorker(DatabaseServer.class);
       server.start();
 
       final SessionFactory factory = cfg.buildSessionFactory();
+      ReplicaRouter.trackWrites(factory);
 
       return factory;
 
@@ -68,6 +94,47 @@ public class HibernateUtil {
     }
   }
 
+  private static SessionFactory buildReplicaFactory() {
+    final ReplicaConfig config = Config.getConfig(RootConfig.class).replica;
+    if (sessionFactory == null || config == null || config.properties.isEmpty()) {
+      return null;
+    }
+    try {
+      return buildReplicaSessionFactory(config.properties);
+    } catch (Throwable e) {
+      // reads stay on the primary
+      logger.error("replica session factory setup failed " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Builds a session factory for a read replica of the configured database.
+   *
+   * @param properties The hibernate properties that differ from the primary, such as the
+   *                   connection url.
+   * @return The replica session factory.
+   */
+  public static SessionFactory buildReplicaSessionFactory(Map<String, String> properties) {
+    final Configuration cfg = getConfiguration();
+
+    // the replica schema follows the primary, it is not generated unless asked for
+    cfg.setProperty("hibernate.hbm2ddl.auto", "none");
+    for (Map.Entry<String, String> entry : properties.entrySet()) {
+      cfg.setProperty(entry.getKey(), Config.resolve(entry.getValue()));
+    }
+    return cfg.buildSessionFactory();
+  }
+
+  /**
+   * Gets the router for read only sessions.
+   *
+   * @return The read router, routing to the primary when no replica is configured.
+   */
+  public static ReplicaRouter getReadRouter() {
+    return readRouter;
+  }
+
   /**
    * Gets the configured Hibernate Session factory.
    *
@@ -77,6 +144,23 @@ public class HibernateUtil {
     return sessionFactory;
   }
 
+  /**
+   * Gets the connection pool when the pooled connection provider is configured.
+   *
+   * @return The connection pool or null if not configured.
+   */
+  public static PooledConnectionProvider getConnectionPool() {
+    if (sessionFactory == null) {
+      return null;
+    }
+    final ConnectionProvider provider = sessionFactory.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry().getService(ConnectionProvider.class);
+    if (provider instanceof PooledConnectionProvider) {
+      return (PooledConnectionProvider) provider;
+    }
+    return null;
+  }
+
   /**
    * Unwraps a Blob to bytes.
    *
@@ -103,6 +187,9 @@ public class HibernateUtil {
   public static void shutdown() {
 
     try {
+      if (replicaFactory != null) {
+        replicaFactory.close();
+      }
       if (sessionFactory != null) {
         sessionFactory.close();
       }
@@ -0,0 +1,210 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.commons.codec.binary.Hex;
+import org.fidoalliance.fdo.protocol.InternalServerErrorException;
+import org.fidoalliance.fdo.protocol.Mapper;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoDocument;
+
+/**
+ * The serviceinfo instructions compiled once per document version.
+ *
+ * <p>The instruction json is parsed once and the distinct instruction filters are indexed,
+ * so a filter shared by many instructions is evaluated once per device. The filters
+ * matched by a set of devmod values are kept per plan, devices reporting the same
+ * values reuse them. Plans and their instructions are shared between threads and must
+ * not be modified by callers.</p>
+ */
+public final class InstructionPlan {
+
+  // the document versions kept, a new upload replaces the plan in use
+  private static final int MAX_PLANS = 8;
+
+  // the distinct devmod values kept per plan
+  private static final int MAX_SELECTIONS = 1024;
+
+  private static final Map<String, InstructionPlan> plans =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, InstructionPlan> eldest) {
+          return size() > MAX_PLANS;
+        }
+      };
+
+  /**
+   * The filters matched by a set of devmod values.
+   */
+  public static final class Selection {
+
+    private final InstructionPlan plan;
+    private final boolean[] matched;
+
+    private Selection(InstructionPlan plan, boolean[] matched) {
+      this.plan = plan;
+      this.matched = matched;
+    }
+
+    /**
+     * Tells whether an instruction has a filter the device does not match.
+     *
+     * @param index The instruction index.
+     * @return True if the instruction has a filter that is not matched.
+     */
+    public boolean isFiltered(int index) {
+      final int filter = plan.filterIndex[index];
+      return filter >= 0 && !matched[filter];
+    }
+  }
+
+  private final String version;
+  private final String document;
+  private final FdoSysInstruction[] instructions;
+
+  // the distinct filters and, per instruction, the index of its filter or -1
+  private final List<Map<String, String>> filters;
+  private final int[] filterIndex;
+
+  private final Map<Map<String, String>, Selection> selections =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Map<String, String>, Selection> eldest) {
+          return size() > MAX_SELECTIONS;
+        }
+      };
+
+  private InstructionPlan(String version, String document) throws IOException {
+    this.version = version;
+    this.document = document;
+    this.instructions = document != null
+        ? Mapper.INSTANCE.readJsonValue(document, FdoSysInstruction[].class)
+        : new FdoSysInstruction[0];
+
+    final Map<Map<String, String>, Integer> index = new HashMap<>();
+    this.filters = new ArrayList<>();
+    this.filterIndex = new int[instructions.length];
+    for (int i = 0; i < instructions.length; i++) {
+      final Map<String, String> filter = instructions[i].getFilter();
+      if (filter == null) {
+        filterIndex[i] = -1;
+        continue;
+      }
+      filterIndex[i] = index.computeIfAbsent(filter, k -> {
+        filters.add(k);
+        return filters.size() - 1;
+      });
+    }
+  }
+
+  /**
+   * Compiles an instruction document and makes its plan available by version.
+   *
+   * @param document The instruction json, or null if there are no instructions.
+   * @return The plan of the document.
+   * @throws IOException The document could not be parsed.
+   */
+  public static InstructionPlan compile(String document) throws IOException {
+    final String version = getVersion(document);
+    synchronized (plans) {
+      final InstructionPlan plan = plans.get(version);
+      if (plan != null) {
+        return plan;
+      }
+    }
+    final InstructionPlan plan = new InstructionPlan(version, document);
+    synchronized (plans) {
+      plans.put(version, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Gets the plan of a session document.
+   *
+   * @param document The serviceinfo document of the session.
+   * @return The plan of the document version, compiled if it is not kept.
+   * @throws IOException The document could not be parsed.
+   */
+  public static InstructionPlan of(ServiceInfoDocument document) throws IOException {
+    if (document.getVersion() != null) {
+      synchronized (plans) {
+        final InstructionPlan plan = plans.get(document.getVersion());
+        if (plan != null) {
+          return plan;
+        }
+      }
+    }
+    return compile(document.getInstructions());
+  }
+
+  private static String getVersion(String document) throws IOException {
+    if (document == null) {
+      return "";
+    }
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Hex.encodeHexString(digest.digest(document.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new InternalServerErrorException(e);
+    }
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public String getDocument() {
+    return document;
+  }
+
+  public FdoSysInstruction[] getInstructions() {
+    return instructions;
+  }
+
+  /**
+   * Gets the filters matched by the devmod values of a device.
+   *
+   * @param devMap The devmod values reported by the device.
+   * @return The matched filters.
+   */
+  public Selection select(Map<String, String> devMap) {
+    final Map<String, String> key = new HashMap<>(devMap);
+    synchronized (selections) {
+      final Selection selection = selections.get(key);
+      if (selection != null) {
+        return selection;
+      }
+    }
+
+    final boolean[] matched = new boolean[filters.size()];
+    for (int i = 0; i < matched.length; i++) {
+      matched[i] = matches(key, filters.get(i));
+    }
+    final Selection selection = new Selection(this, matched);
+    synchronized (selections) {
+      selections.put(key, selection);
+    }
+    return selection;
+  }
+
+  private static boolean matches(Map<String, String> devMap, Map<String, String> filter) {
+    for (Map.Entry<String, String> entry : filter.entrySet()) {
+      if (!devMap.containsKey(entry.getKey())
+          || !Objects.equals(devMap.get(entry.getKey()), entry.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,223 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.InvalidJwtTokenException;
+import org.fidoalliance.fdo.protocol.LoggerService;
+import org.fidoalliance.fdo.protocol.SessionConflictException;
+import org.fidoalliance.fdo.protocol.dispatch.SessionManager;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+/**
+ * Keeps protocol sessions in an embedded MVStore file instead of the database.
+ *
+ * <p>Each session expires a fixed time after it was last saved. Every write is committed to
+ * the store before returning, so a restart recovers all sessions written before a crash.
+ * Expired sessions are purged periodically, the StandardSessionCleaner is not needed.</p>
+ *
+ * <p>The file can be memory mapped with memory-mapped: true. Since every write is committed,
+ * the mapped file is remapped as it grows, which is much slower than plain file access for
+ * this write pattern, so it is off by default.</p>
+ *
+ * <p>Each value holds the expiry time and the session version ahead of the encoded
+ * storage.</p>
+ *
+ * <p>Selected by listing this class in place of StandardServerSessionManager in the
+ * service.yml workers.</p>
+ */
+public class MvStoreSessionManager implements SessionManager, Closeable {
+
+  private static final LoggerService logger = new LoggerService(MvStoreSessionManager.class);
+
+  private static final String MAP_NAME = "sessions";
+  private static final String MAPPED_PREFIX = "nioMapped:";
+  private static final int HEADER_LENGTH = Long.BYTES * 2;
+
+  private static class RootConfig {
+
+    @JsonProperty("session-store")
+    private StoreConfig root = new StoreConfig();
+  }
+
+  private static class StoreConfig {
+
+    @JsonProperty("path")
+    private String path = "app-data/sessions.mv";
+
+    @JsonProperty("ttl")
+    private long ttl = Duration.ofHours(2).toSeconds();
+
+    @JsonProperty("purge-interval")
+    private long purgeInterval = Duration.ofMinutes(10).toSeconds();
+
+    @JsonProperty("sync")
+    private boolean sync = false;
+
+    @JsonProperty("memory-mapped")
+    private boolean memoryMapped = false;
+  }
+
+  private final MVStore store;
+  private final MVMap<String, byte[]> sessions;
+  private final long ttl;
+  private final boolean sync;
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "session-store-purge");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /**
+   * Worker Constructor.
+   */
+  public MvStoreSessionManager() {
+    this(Config.getConfig(RootConfig.class).root);
+  }
+
+  private MvStoreSessionManager(StoreConfig config) {
+    this((config.memoryMapped ? MAPPED_PREFIX : "") + Config.resolvePath(config.path),
+        Duration.ofSeconds(config.ttl),
+        Duration.ofSeconds(config.purgeInterval), config.sync);
+  }
+
+  /**
+   * Constructs a session manager on a store file.
+   *
+   * @param path          The store file name, prefixed with nioMapped: to memory map it.
+   * @param ttl           How long a session lives after it was last saved.
+   * @param purgeInterval How often expired sessions are removed.
+   * @param sync          True to sync the file to disk on every write.
+   */
+  public MvStoreSessionManager(String path, Duration ttl, Duration purgeInterval,
+      boolean sync) {
+    this.store = new MVStore.Builder()
+        .fileName(path)
+        .autoCommitDisabled()
+        .open();
+    this.sessions = store.openMap(MAP_NAME);
+    this.ttl = ttl.toMillis();
+    this.sync = sync;
+
+    scheduler.scheduleWithFixedDelay(this::purge, purgeInterval.toSeconds(),
+        purgeInterval.toSeconds(), TimeUnit.SECONDS);
+    logger.info("Session store " + path + " holds " + sessions.size() + " sessions");
+  }
+
+  private byte[] encode(SimpleStorage storage, long version) throws IOException {
+    final byte[] data = SessionCodec.getInstance().encode(storage);
+    return ByteBuffer.allocate(HEADER_LENGTH + data.length)
+        .putLong(System.currentTimeMillis() + ttl)
+        .putLong(version)
+        .put(data)
+        .array();
+  }
+
+  private static long getVersion(byte[] value) {
+    return ByteBuffer.wrap(value).getLong(Long.BYTES);
+  }
+
+  private static boolean isExpired(byte[] value, long now) {
+    return ByteBuffer.wrap(value).getLong() <= now;
+  }
+
+  private synchronized void commit() {
+    store.commit();
+    if (sync) {
+      store.sync();
+    }
+  }
+
+  /**
+   * Removes the expired sessions.
+   *
+   * @return The number of sessions removed.
+   */
+  public int purge() {
+    final long now = System.currentTimeMillis();
+    int removed = 0;
+    try {
+      for (Iterator<Map.Entry<String, byte[]>> it = sessions.entrySet().iterator();
+          it.hasNext(); ) {
+        Map.Entry<String, byte[]> entry = it.next();
+        if (isExpired(entry.getValue(), now)
+            && sessions.remove(entry.getKey(), entry.getValue())) {
+          removed++;
+        }
+      }
+      if (removed > 0) {
+        commit();
+        logger.info("expired sessions removed " + removed);
+      }
+    } catch (RuntimeException e) {
+      logger.error("session purge failed " + e.getMessage());
+    }
+    return removed;
+  }
+
+  @Override
+  public SimpleStorage getSession(String name) throws IOException {
+    final byte[] value = sessions.get(name);
+    if (value == null || isExpired(value, System.currentTimeMillis())) {
+      throw new InvalidJwtTokenException(name);
+    }
+    final SimpleStorage storage = SessionCodec.getInstance().decode(
+        Arrays.copyOfRange(value, HEADER_LENGTH, value.length));
+    storage.setVersion(getVersion(value));
+    return storage;
+  }
+
+  @Override
+  public void saveSession(String name, SimpleStorage storage) throws IOException {
+    sessions.put(name, encode(storage, 0));
+    commit();
+    storage.setVersion(0L);
+  }
+
+  @Override
+  public void updateSession(String name, SimpleStorage storage) throws IOException {
+    final long version;
+    // the store is opened by this process only, so locking the map serializes all writers
+    synchronized (sessions) {
+      final byte[] current = sessions.get(name);
+      if (current == null) {
+        throw new InvalidJwtTokenException(name);
+      }
+      if (storage.getVersion() != null && storage.getVersion() != getVersion(current)) {
+        throw new SessionConflictException(name);
+      }
+      version = getVersion(current) + 1;
+      sessions.put(name, encode(storage, version));
+    }
+    commit();
+    storage.setVersion(version);
+  }
+
+  @Override
+  public void expireSession(String name) {
+    if (sessions.remove(name) != null) {
+      commit();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    scheduler.shutdown();
+    store.close();
+  }
+}
@@ -20,8 +20,27 @@ public class OnboardConfigSupplier
     implements FailableSupplier<OnboardingConfig, IOException> {
   private static final LoggerService logger = new LoggerService(OnboardConfigSupplier.class);
 
+  /**
+   * Gets the onboarding configuration.
+   * <p>The result is a copy of the cached configuration, its LOB fields are not populated.</p>
+   *
+   * @return The onboarding configuration.
+   * @throws IOException An error occurred.
+   */
   @Override
   public OnboardingConfig get() throws IOException {
+    return copy(EntityCache.get(OnboardingConfig.class, "config", this::load));
+  }
+
+  private static OnboardingConfig copy(OnboardingConfig onboardConfig) {
+    final OnboardingConfig result = new OnboardingConfig();
+    result.setMaxMessageSize(onboardConfig.getMaxMessageSize());
+    result.setMaxServiceInfoSize(onboardConfig.getMaxServiceInfoSize());
+    result.setWaitSeconds(onboardConfig.getWaitSeconds());
+    return result;
+  }
+
+  private OnboardingConfig load() throws IOException {
     final Session session = HibernateUtil.getSessionFactory().openSession();
     try {
       final Transaction trans = session.beginTransaction();
@@ -49,8 +68,7 @@ public class OnboardConfigSupplier
 
       }
       trans.commit();
-
-      return onboardConfig;
+      return copy(onboardConfig);
 
     } finally {
       logger.debug("Closing the session");
@@ -0,0 +1,434 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.fidoalliance.fdo.protocol.LoggerService;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.internal.ConnectionProviderInitiator;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+/**
+ * Bounded JDBC connection pool for Hibernate.
+ *
+ * <p>Enabled with hibernate-properties in service.yml:
+ * <pre>
+ *   hibernate.connection.provider_class: org.fidoalliance.fdo.protocol.db.PooledConnectionProvider
+ *   hibernate.fdo.pool.min_size: 2
+ *   hibernate.fdo.pool.max_size: 20
+ * </pre>
+ * Other hibernate.connection.* properties are passed to the JDBC driver, so driver level
+ * prepared statement caching is configured there
+ * (e.g. hibernate.connection.useServerPrepStmts for MariaDB).</p>
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final String MIN_SIZE = "hibernate.fdo.pool.min_size";
+  public static final String MAX_SIZE = "hibernate.fdo.pool.max_size";
+  public static final String TIMEOUT = "hibernate.fdo.pool.timeout";
+  public static final String IDLE_TIMEOUT = "hibernate.fdo.pool.idle_timeout";
+  public static final String LEAK_THRESHOLD = "hibernate.fdo.pool.leak_threshold";
+  public static final String VALIDATION_TIMEOUT = "hibernate.fdo.pool.validation_timeout";
+
+  // the hibernate.connection.* names still used by service.yml
+  private static final String LEGACY_URL = "hibernate.connection.url";
+  private static final String LEGACY_DRIVER = "hibernate.connection.driver_class";
+  private static final String LEGACY_USER = "hibernate.connection.username";
+  private static final String LEGACY_PASSWORD = "hibernate.connection.password";
+
+  private static final LoggerService logger = new LoggerService(PooledConnectionProvider.class);
+
+  // connections returned more recently than this are not revalidated on borrow
+  private static final long VALIDATION_BYPASS_MILLIS = 500;
+  private static final long HOUSEKEEPING_MILLIS = 30000;
+
+  private static class IdleConnection {
+
+    private final Connection connection;
+    private final long returnedOn;
+
+    private IdleConnection(Connection connection) {
+      this.connection = connection;
+      this.returnedOn = System.currentTimeMillis();
+    }
+  }
+
+  private static class Borrow {
+
+    private final long borrowedOn = System.currentTimeMillis();
+    private final Exception site;
+    private boolean reported;
+
+    private Borrow(Exception site) {
+      this.site = site;
+    }
+  }
+
+  private final LinkedBlockingDeque<IdleConnection> idle = new LinkedBlockingDeque<>();
+  private final Map<Connection, Borrow> active = new ConcurrentHashMap<>();
+  private final AtomicInteger total = new AtomicInteger();
+  private final AtomicLong borrowCount = new AtomicLong();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private final AtomicLong timeoutCount = new AtomicLong();
+  private final AtomicLong leakCount = new AtomicLong();
+  private final AtomicLong invalidCount = new AtomicLong();
+
+  private ScheduledExecutorService housekeeper;
+  private Semaphore permits;
+  private String url;
+  private Properties driverProperties;
+  private boolean autoCommit;
+  private Integer isolation;
+  private int defaultIsolation = Connection.TRANSACTION_NONE;
+  private int minSize;
+  private int maxSize;
+  private long timeout;
+  private long idleTimeout;
+  private long leakThreshold;
+  private int validationTimeout;
+
+  private static long getLong(Map<String, Object> map, String name, long defaultValue) {
+    Object value = map.get(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return Long.parseLong(value.toString().trim());
+  }
+
+  private static Object getSetting(Map<String, Object> map, String name, String legacyName) {
+    Object value = map.get(name);
+    if (value == null) {
+      value = map.get(legacyName);
+    }
+    return value;
+  }
+
+  @Override
+  public void configure(Map<String, Object> map) {
+    Object jdbcUrl = getSetting(map, AvailableSettings.JAKARTA_JDBC_URL, LEGACY_URL);
+    if (jdbcUrl == null) {
+      throw new IllegalArgumentException(AvailableSettings.JAKARTA_JDBC_URL + " not set");
+    }
+    url = jdbcUrl.toString();
+
+    Object driver = getSetting(map, AvailableSettings.JAKARTA_JDBC_DRIVER, LEGACY_DRIVER);
+    if (driver != null) {
+      try {
+        Class.forName(driver.toString());
+      } catch (ClassNotFoundException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+
+    driverProperties = ConnectionProviderInitiator.getConnectionProperties(map);
+    Object user = getSetting(map, AvailableSettings.JAKARTA_JDBC_USER, LEGACY_USER);
+    if (user != null) {
+      driverProperties.setProperty("user", user.toString());
+    }
+    Object password = getSetting(map, AvailableSettings.JAKARTA_JDBC_PASSWORD,
+        LEGACY_PASSWORD);
+    if (password != null) {
+      driverProperties.setProperty("password", password.toString());
+    }
+
+    Object commit = map.get(AvailableSettings.AUTOCOMMIT);
+    autoCommit = commit != null && Boolean.parseBoolean(commit.toString());
+    isolation = ConnectionProviderInitiator.extractIsolation(map);
+
+    maxSize = (int) getLong(map, MAX_SIZE, getLong(map, AvailableSettings.POOL_SIZE, 20));
+    minSize = (int) Math.min(getLong(map, MIN_SIZE, 1), maxSize);
+    timeout = getLong(map, TIMEOUT, 30000);
+    idleTimeout = getLong(map, IDLE_TIMEOUT, 600000);
+    leakThreshold = getLong(map, LEAK_THRESHOLD, 0);
+    validationTimeout = (int) getLong(map, VALIDATION_TIMEOUT, 5);
+    permits = new Semaphore(maxSize, true);
+
+    for (int i = 0; i < minSize; i++) {
+      try {
+        idle.offerLast(new IdleConnection(createConnection()));
+      } catch (SQLException e) {
+        logger.warn("unable to prefill connection pool: " + e.getMessage());
+        break;
+      }
+    }
+
+    housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "fdo-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    housekeeper.scheduleWithFixedDelay(this::houseKeep,
+        HOUSEKEEPING_MILLIS, HOUSEKEEPING_MILLIS, TimeUnit.MILLISECONDS);
+
+    logger.info("connection pool configured with min " + minSize + " max " + maxSize);
+  }
+
+  private Connection createConnection() throws SQLException {
+    Connection conn = DriverManager.getConnection(url, driverProperties);
+    total.incrementAndGet();
+    try {
+      if (isolation != null) {
+        conn.setTransactionIsolation(isolation);
+      } else if (defaultIsolation == Connection.TRANSACTION_NONE) {
+        defaultIsolation = conn.getTransactionIsolation();
+      }
+      if (conn.getAutoCommit() != autoCommit) {
+        conn.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException e) {
+      destroy(conn);
+      throw e;
+    }
+    return conn;
+  }
+
+  private void destroy(Connection conn) {
+    total.decrementAndGet();
+    try {
+      conn.close();
+    } catch (SQLException e) {
+      logger.debug("error closing pooled connection: " + e.getMessage());
+    }
+  }
+
+  // undoes what the borrower left behind, so it does not leak into the next borrower
+  private boolean reset(Connection conn) {
+    try {
+      if (!conn.getAutoCommit()) {
+        conn.rollback();
+      }
+      if (conn.getAutoCommit() != autoCommit) {
+        conn.setAutoCommit(autoCommit);
+      }
+      final int level = isolation != null ? isolation : defaultIsolation;
+      if (level != Connection.TRANSACTION_NONE && conn.getTransactionIsolation() != level) {
+        conn.setTransactionIsolation(level);
+      }
+      if (conn.isReadOnly()) {
+        conn.setReadOnly(false);
+      }
+      conn.clearWarnings();
+      return true;
+    } catch (SQLException e) {
+      logger.debug("unable to reset pooled connection: " + e.getMessage());
+      return false;
+    }
+  }
+
+  private boolean isValid(IdleConnection entry) {
+    try {
+      if (entry.connection.isClosed()) {
+        return false;
+      }
+      if (System.currentTimeMillis() - entry.returnedOn < VALIDATION_BYPASS_MILLIS) {
+        return true;
+      }
+      return entry.connection.isValid(validationTimeout);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    final long start = System.nanoTime();
+    try {
+      if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+        timeoutCount.incrementAndGet();
+        throw new SQLTransientConnectionException("connection not available after "
+            + timeout + " ms (active " + active.size() + ", max " + maxSize + ")");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLTransientConnectionException(e);
+    }
+
+    final long wait = System.nanoTime() - start;
+    waitNanos.addAndGet(wait);
+    maxWaitNanos.accumulateAndGet(wait, Math::max);
+    borrowCount.incrementAndGet();
+
+    try {
+      Connection conn = null;
+      for (IdleConnection entry = idle.pollFirst(); entry != null; entry = idle.pollFirst()) {
+        if (isValid(entry)) {
+          conn = entry.connection;
+          break;
+        }
+        invalidCount.incrementAndGet();
+        destroy(entry.connection);
+      }
+      if (conn == null) {
+        conn = createConnection();
+      }
+      active.put(conn, new Borrow(leakThreshold > 0
+          ? new Exception("connection borrowed by " + Thread.currentThread().getName())
+          : null));
+      return conn;
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public void closeConnection(Connection conn) throws SQLException {
+    Borrow borrow = active.remove(conn);
+    if (borrow == null) {
+      conn.close();
+      return;
+    }
+    try {
+      if (conn.isClosed()) {
+        total.decrementAndGet();
+      } else if (reset(conn)) {
+        idle.offerFirst(new IdleConnection(conn));
+      } else {
+        invalidCount.incrementAndGet();
+        destroy(conn);
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  private void houseKeep() {
+    try {
+      final long now = System.currentTimeMillis();
+
+      //retire connections idle too long, oldest are at the tail
+      Iterator<IdleConnection> it = idle.descendingIterator();
+      while (it.hasNext() && total.get() > minSize) {
+        IdleConnection entry = it.next();
+        if (now - entry.returnedOn > idleTimeout && idle.removeLastOccurrence(entry)) {
+          destroy(entry.connection);
+        }
+      }
+
+      while (total.get() < minSize) {
+        idle.offerLast(new IdleConnection(createConnection()));
+      }
+
+      if (leakThreshold > 0) {
+        for (Borrow borrow : active.values()) {
+          if (!borrow.reported && now - borrow.borrowedOn > leakThreshold) {
+            borrow.reported = true;
+            leakCount.incrementAndGet();
+            logger.warn("possible connection leak, held for " + (now - borrow.borrowedOn)
+                + " ms " + ExceptionUtils.getStackTrace(borrow.site));
+          }
+        }
+      }
+    } catch (Throwable e) {
+      logger.warn("connection pool housekeeping failed: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public boolean supportsAggressiveRelease() {
+    return false;
+  }
+
+  @Override
+  public boolean isUnwrappableAs(Class<?> unwrapType) {
+    return ConnectionProvider.class.equals(unwrapType)
+        || PooledConnectionProvider.class.isAssignableFrom(unwrapType);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T unwrap(Class<T> unwrapType) {
+    if (isUnwrappableAs(unwrapType)) {
+      return (T) this;
+    }
+    throw new UnknownUnwrapTypeException(unwrapType);
+  }
+
+  @Override
+  public void stop() {
+    if (housekeeper != null) {
+      housekeeper.shutdownNow();
+    }
+    for (IdleConnection entry = idle.pollFirst(); entry != null; entry = idle.pollFirst()) {
+      destroy(entry.connection);
+    }
+    if (!active.isEmpty()) {
+      logger.warn("connection pool stopped with " + active.size() + " active connections");
+    }
+  }
+
+  public int getActiveCount() {
+    return active.size();
+  }
+
+  public int getIdleCount() {
+    return idle.size();
+  }
+
+  public int getTotalCount() {
+    return total.get();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public int getPendingCount() {
+    return permits.getQueueLength();
+  }
+
+  public long getBorrowCount() {
+    return borrowCount.get();
+  }
+
+  public long getTimeoutCount() {
+    return timeoutCount.get();
+  }
+
+  public long getLeakCount() {
+    return leakCount.get();
+  }
+
+  public long getInvalidCount() {
+    return invalidCount.get();
+  }
+
+  /**
+   * Gets the average time spent waiting for a connection.
+   *
+   * @return The average wait in milliseconds.
+   */
+  public double getAverageWaitMillis() {
+    long count = borrowCount.get();
+    if (count == 0) {
+      return 0;
+    }
+    return waitNanos.get() / (count * 1e6);
+  }
+
+  public long getMaxWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+  }
+}
@@ -0,0 +1,244 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.fidoalliance.fdo.protocol.LoggerService;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Routes read-only sessions to an optional replica database.
+ *
+ * <p>An entity whose table was committed on the primary within the staleness bound is read
+ * from the primary, as is a lookup that misses or fails on the replica. Writes are tracked by
+ * table, so a write through one entity class also covers the classes mapping the same table.
+ * Writes made through sessions are tracked, stateless and bulk writes must call
+ * {@link #markWritten(Class)}.</p>
+ */
+public class ReplicaRouter {
+
+  private static final LoggerService logger = new LoggerService(ReplicaRouter.class);
+
+  // commit times by table, and the tables of each entity of the tracked factory
+  private static final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+  private static final Map<String, String[]> entityTables = new ConcurrentHashMap<>();
+
+  private final SessionFactory primary;
+  private final SessionFactory replica;
+  private final long maxStaleness;
+
+  private final AtomicLong replicaReads = new AtomicLong();
+  private final AtomicLong primaryReads = new AtomicLong();
+  private final AtomicLong fallbacks = new AtomicLong();
+
+  /**
+   * Records the commit time of entities written through the primary.
+   */
+  private static class WriteListener implements PostCommitInsertEventListener,
+      PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+      markWritten(event.getPersister().getSynchronizationSpaces());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+      markWritten(event.getPersister().getSynchronizationSpaces());
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+      markWritten(event.getPersister().getSynchronizationSpaces());
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+      return true;
+    }
+  }
+
+  /**
+   * Constructs a router.
+   *
+   * @param primary      The primary session factory.
+   * @param replica      The replica session factory or null to read from the primary.
+   * @param maxStaleness How long after a write, in milliseconds, an entity is read from the
+   *                     primary.
+   */
+  public ReplicaRouter(SessionFactory primary, SessionFactory replica, long maxStaleness) {
+    this.primary = primary;
+    this.replica = replica;
+    this.maxStaleness = maxStaleness;
+  }
+
+  /**
+   * Tracks the entities committed through a session factory.
+   *
+   * @param factory The primary session factory.
+   */
+  public static void trackWrites(SessionFactory factory) {
+    final SessionFactoryImplementor implementor = factory.unwrap(SessionFactoryImplementor.class);
+    implementor.getMappingMetamodel().forEachEntityDescriptor(persister ->
+        entityTables.put(persister.getEntityName(), persister.getSynchronizationSpaces()));
+
+    final WriteListener listener = new WriteListener();
+    final EventListenerRegistry registry = implementor.getServiceRegistry()
+        .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+    registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+    registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+  }
+
+  private static String[] getTables(String entityName) {
+    final String[] tables = entityTables.get(entityName);
+    return tables != null ? tables : new String[]{entityName};
+  }
+
+  private static void markWritten(String[] tables) {
+    final long now = System.currentTimeMillis();
+    for (String table : tables) {
+      lastWrites.put(table, now);
+    }
+  }
+
+  /**
+   * Records a write the session listeners do not see.
+   *
+   * @param entity The entity class written.
+   */
+  public static void markWritten(Class<?> entity) {
+    markWritten(getTables(entity.getName()));
+  }
+
+  /**
+   * Forgets the recorded writes, reads go to the replica until the next write.
+   */
+  public static void clearWrites() {
+    lastWrites.clear();
+  }
+
+  private boolean isFresh(Class<?> entity) {
+    final long now = System.currentTimeMillis();
+    for (String table : getTables(entity.getName())) {
+      final Long lastWrite = lastWrites.get(table);
+      if (lastWrite != null && now - lastWrite < maxStaleness) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the session factory to read an entity from.
+   *
+   * @param entity The entity class to be read.
+   * @return The replica, or the primary if there is no replica or the entity was recently
+   *     written.
+   */
+  public SessionFactory getSessionFactory(Class<?> entity) {
+    if (replica == null || isFresh(entity)) {
+      primaryReads.incrementAndGet();
+      return primary;
+    }
+    replicaReads.incrementAndGet();
+    return replica;
+  }
+
+  /**
+   * Opens a session for reading an entity.
+   *
+   * @param entity The entity class to be read.
+   * @return A session, read only when opened on the replica.
+   */
+  public Session openSession(Class<?> entity) {
+    final SessionFactory factory = getSessionFactory(entity);
+    final Session session = factory.openSession();
+    if (factory == replica) {
+      session.setDefaultReadOnly(true);
+    }
+    return session;
+  }
+
+  private static <T> T find(SessionFactory factory, Class<T> entity, Object id) {
+    final Session session = factory.openSession();
+    try {
+      session.setDefaultReadOnly(true);
+      final Transaction trans = session.beginTransaction();
+      final T result = session.find(entity, id);
+      trans.commit();
+      return result;
+    } finally {
+      session.close();
+    }
+  }
+
+  /**
+   * Finds an entity by id, falling back to the primary if the replica misses or fails.
+   *
+   * @param entity The entity class.
+   * @param id     The entity id.
+   * @param <T>    The entity type.
+   * @return The detached entity or null if not found.
+   */
+  public <T> T find(Class<T> entity, Object id) {
+    final SessionFactory factory = getSessionFactory(entity);
+    if (factory == primary) {
+      return find(primary, entity, id);
+    }
+    try {
+      final T result = find(replica, entity, id);
+      if (result != null) {
+        return result;
+      }
+    } catch (HibernateException e) {
+      logger.warn("replica read failed " + e.getMessage());
+    }
+    fallbacks.incrementAndGet();
+    return find(primary, entity, id);
+  }
+
+  public boolean hasReplica() {
+    return replica != null;
+  }
+
+  public long getReplicaReads() {
+    return replicaReads.get();
+  }
+
+  public long getPrimaryReads() {
+    return primaryReads.get();
+  }
+
+  public long getFallbackCount() {
+    return fallbacks.get();
+  }
+}
@@ -0,0 +1,605 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.function.FailableConsumer;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.InternalServerErrorException;
+import org.fidoalliance.fdo.protocol.LoggerService;
+
+/**
+ * Process local, least recently used cache of the files sent to devices.
+ *
+ * <p>Entries are keyed by resource name and content hash, so a new version of a resource is a
+ * new entry and the old one ages out. Resources up to owner: resource-cache: heap-entry-bytes
+ * are held on the heap, larger ones are spooled to a file in dir and memory mapped. The heap
+ * and mapped entries are bounded by max-heap-bytes and max-mapped-bytes. An entry is only
+ * evicted once every handle on it has been closed.</p>
+ *
+ * <p>A transfer spanning several messages pins its handle, so the entry is not evicted
+ * between messages. A pin is released when the transfer ends, or once it has not been used
+ * for pin-timeout seconds because the session was abandoned.</p>
+ *
+ * <p>The mapped bound is approximate. The file of an evicted entry is deleted at once, but
+ * its mapping, and with it the disk blocks and address space, is only released when the
+ * buffers are garbage collected. Each process spools to its own directory under dir, which
+ * is removed when the process exits.</p>
+ */
+public final class ResourceCache {
+
+  private static final LoggerService logger = new LoggerService(ResourceCache.class);
+
+  // the largest region mapped at once
+  private static final int SEGMENT_SIZE = 1 << 30;
+
+  private static class RootConfig {
+
+    @JsonProperty("owner")
+    private OwnerConfig owner = new OwnerConfig();
+  }
+
+  private static class OwnerConfig {
+
+    @JsonProperty("resource-cache")
+    private CacheConfig cache = new CacheConfig();
+  }
+
+  private static class CacheConfig {
+
+    @JsonProperty("heap-entry-bytes")
+    private long heapEntryBytes = 1024 * 1024;
+
+    @JsonProperty("max-heap-bytes")
+    private long maxHeapBytes = 64 * 1024 * 1024;
+
+    @JsonProperty("max-mapped-bytes")
+    private long maxMappedBytes = 4L * 1024 * 1024 * 1024;
+
+    @JsonProperty("dir")
+    private String dir = Path.of(System.getProperty("java.io.tmpdir"), "fdo-resources")
+        .toString();
+
+    @JsonProperty("pin-timeout")
+    private long pinTimeout = 600;
+  }
+
+  private static class Pin {
+
+    private final Handle handle;
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    Pin(Handle handle) {
+      this.handle = handle;
+    }
+  }
+
+  private static class Entry {
+
+    private final String key;
+    private final long length;
+    private final boolean heap;
+
+    // guarded by entries
+    private int refs;
+    private boolean resident;
+    private boolean removed;
+
+    // guarded by the entry
+    private boolean loaded;
+    private byte[] data;
+    private Path file;
+    private MappedByteBuffer[] segments;
+
+    Entry(String key, long length, boolean heap) {
+      this.key = key;
+      this.length = length;
+      this.heap = heap;
+    }
+
+    private synchronized void load(FailableConsumer<OutputStream, IOException> loader)
+        throws IOException {
+      if (loaded) {
+        return;
+      }
+      if (heap) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream((int) length);
+        loader.accept(out);
+        data = out.toByteArray();
+      } else {
+        final Path temp = Files.createTempFile(getDir(), "resource", ".tmp");
+        try {
+          try (OutputStream out = Files.newOutputStream(temp)) {
+            loader.accept(out);
+          }
+          adopt(temp);
+        } finally {
+          Files.deleteIfExists(temp);
+        }
+      }
+      if (getSize() != length) {
+        release();
+        throw new InternalServerErrorException("resource length changed " + key);
+      }
+      loaded = true;
+    }
+
+    private synchronized void adopt(Path spool) throws IOException {
+      if (heap) {
+        data = Files.readAllBytes(spool);
+      } else {
+        file = Files.createTempFile(getDir(), "resource", ".cache");
+        Files.move(spool, file, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          final long size = channel.size();
+          segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+          for (int i = 0; i < segments.length; i++) {
+            final long position = (long) i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(SEGMENT_SIZE, size - position));
+          }
+        }
+      }
+      loaded = true;
+    }
+
+    private synchronized long getSize() {
+      if (data != null) {
+        return data.length;
+      }
+      long size = 0;
+      if (segments != null) {
+        for (MappedByteBuffer segment : segments) {
+          size += segment.capacity();
+        }
+      }
+      return size;
+    }
+
+    private synchronized void release() {
+      loaded = false;
+      data = null;
+      segments = null;
+      if (file != null) {
+        // the mapping stays valid until it is collected, the file is unlinked now
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          logger.warn("unable to delete cached resource " + file + " " + e.getMessage());
+        }
+        file = null;
+      }
+    }
+
+    private byte[] read(long offset, int count) {
+      final byte[] buffer = new byte[count];
+      final MappedByteBuffer[] mapped;
+      synchronized (this) {
+        if (data != null) {
+          System.arraycopy(data, (int) offset, buffer, 0, count);
+          return buffer;
+        }
+        mapped = segments;
+      }
+      int pos = 0;
+      while (pos < count) {
+        final long at = offset + pos;
+        final MappedByteBuffer segment = mapped[(int) (at / SEGMENT_SIZE)];
+        final int index = (int) (at % SEGMENT_SIZE);
+        final int len = Math.min(count - pos, segment.capacity() - index);
+        segment.get(index, buffer, pos, len);
+        pos += len;
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * A reference on a cached resource, the resource is not evicted until it is closed.
+   */
+  public static final class Handle implements Closeable {
+
+    private final Entry entry;
+    private boolean closed;
+
+    private Handle(Entry entry) {
+      this.entry = entry;
+    }
+
+    public long getLength() {
+      return entry.length;
+    }
+
+    /**
+     * Reads part of the resource.
+     *
+     * @param offset The zero based offset to read from.
+     * @param length The maximum number of bytes to read.
+     * @return The bytes read, empty at the end of the resource.
+     */
+    public byte[] read(long offset, int length) {
+      final int count = (int) Math.max(0, Math.min(length, entry.length - offset));
+      return entry.read(offset, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        ResourceCache.release(entry);
+      }
+    }
+  }
+
+  private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private static final Map<String, Pin> pins = new ConcurrentHashMap<>();
+  private static final AtomicLong lastPinSweep = new AtomicLong(System.currentTimeMillis());
+  private static final CacheConfig config = getConfig();
+  private static long heapBytes;
+  private static long mappedBytes;
+  private static Path dir;
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final AtomicLong evictions = new AtomicLong();
+
+  private ResourceCache() {
+  }
+
+  private static CacheConfig getConfig() {
+    final RootConfig root = Config.getConfig(RootConfig.class);
+    if (root == null || root.owner == null || root.owner.cache == null) {
+      return new CacheConfig();
+    }
+    return root.owner.cache;
+  }
+
+  private static synchronized Path getDir() throws IOException {
+    if (dir == null) {
+      // each process spools to its own directory
+      final Path base = Files.createDirectories(Path.of(config.dir));
+      dir = Files.createTempDirectory(base, "cache");
+      final Path created = dir;
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteDir(created),
+          "fdo-resource-cache-cleanup"));
+    }
+    return dir;
+  }
+
+  private static void deleteDir(Path path) {
+    try (Stream<Path> files = Files.walk(path)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    } catch (IOException e) {
+      logger.warn("unable to delete resource cache " + path + " " + e.getMessage());
+    }
+  }
+
+  private static String getKey(String name, byte[] sha384) {
+    return name + "@" + Hex.encodeHexString(sha384);
+  }
+
+  private static Entry reference(String key, long length, boolean count) {
+    synchronized (entries) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        if (count) {
+          hits.incrementAndGet();
+        }
+      } else {
+        if (count) {
+          misses.incrementAndGet();
+        }
+        entry = new Entry(key, length, length <= config.heapEntryBytes);
+        entries.put(key, entry);
+      }
+      entry.refs++;
+      return entry;
+    }
+  }
+
+  private static void loaded(Entry entry) {
+    synchronized (entries) {
+      if (!entry.resident && !entry.removed) {
+        entry.resident = true;
+        if (entry.heap) {
+          heapBytes += entry.length;
+        } else {
+          mappedBytes += entry.length;
+        }
+      }
+    }
+    evict();
+  }
+
+  private static void failed(Entry entry) {
+    synchronized (entries) {
+      entry.refs--;
+      if (entry.refs == 0 && !entry.resident && !entry.removed) {
+        entries.remove(entry.key);
+        entry.removed = true;
+      }
+    }
+  }
+
+  private static void release(Entry entry) {
+    synchronized (entries) {
+      entry.refs--;
+    }
+    evict();
+  }
+
+  private static void evict() {
+    final List<Entry> evicted = new ArrayList<>();
+    synchronized (entries) {
+      final Iterator<Entry> it = entries.values().iterator();
+      while ((heapBytes > config.maxHeapBytes || mappedBytes > config.maxMappedBytes)
+          && it.hasNext()) {
+        final Entry entry = it.next();
+        if (entry.refs > 0 || !entry.resident) {
+          continue;
+        }
+        if (entry.heap ? heapBytes <= config.maxHeapBytes
+            : mappedBytes <= config.maxMappedBytes) {
+          continue;
+        }
+        it.remove();
+        entry.removed = true;
+        if (entry.heap) {
+          heapBytes -= entry.length;
+        } else {
+          mappedBytes -= entry.length;
+        }
+        evictions.incrementAndGet();
+        evicted.add(entry);
+      }
+    }
+
+    // the files are deleted outside the lock, a removed entry is not found again
+    for (Entry entry : evicted) {
+      entry.release();
+    }
+  }
+
+  /**
+   * Gets a handle on a resource, loading it on a miss.
+   *
+   * <p>Concurrent misses on the same resource load it once.</p>
+   *
+   * @param name   The resource name or url.
+   * @param sha384 The SHA-384 of the resource content.
+   * @param length The resource length.
+   * @param loader Writes the resource content.
+   * @return The handle, to be closed once the resource has been read.
+   * @throws IOException An error occurred.
+   */
+  public static Handle acquire(String name, byte[] sha384, long length,
+      FailableConsumer<OutputStream, IOException> loader) throws IOException {
+    final Entry entry = reference(getKey(name, sha384), length, true);
+    try {
+      entry.load(loader);
+    } catch (IOException | RuntimeException e) {
+      failed(entry);
+      throw e;
+    }
+    loaded(entry);
+    return new Handle(entry);
+  }
+
+  /**
+   * Adds a resource already spooled to a local file, taking ownership of the file.
+   *
+   * @param name   The resource name or url.
+   * @param sha384 The SHA-384 of the resource content.
+   * @param spool  The file holding the content, moved into the cache or deleted.
+   * @throws IOException An error occurred.
+   */
+  public static void put(String name, byte[] sha384, Path spool) throws IOException {
+    final Entry entry = reference(getKey(name, sha384), Files.size(spool), false);
+    try {
+      synchronized (entry) {
+        if (!entry.loaded) {
+          entry.adopt(spool);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      failed(entry);
+      throw e;
+    } finally {
+      Files.deleteIfExists(spool);
+    }
+    loaded(entry);
+    release(entry);
+  }
+
+  /**
+   * Pins a resource for a transfer spanning several messages.
+   *
+   * @param handle The handle to keep open, closed when the pin is released.
+   * @return The pin id, kept with the transfer.
+   */
+  public static String pin(Handle handle) {
+    sweepPins();
+    final String id = UUID.randomUUID().toString();
+    pins.put(id, new Pin(handle));
+    return id;
+  }
+
+  /**
+   * Gets the handle of a pinned transfer.
+   *
+   * @param id The pin id.
+   * @return The handle, or null if the pin was released, expired or made by another process.
+   */
+  public static Handle getPinned(String id) {
+    sweepPins();
+    final Pin pin = pins.get(id);
+    if (pin == null) {
+      return null;
+    }
+    pin.lastUsed = System.currentTimeMillis();
+    return pin.handle;
+  }
+
+  /**
+   * Releases a pin once its transfer has ended.
+   *
+   * @param id The pin id.
+   * @throws IOException An error occurred.
+   */
+  public static void unpin(String id) throws IOException {
+    final Pin pin = pins.remove(id);
+    if (pin != null) {
+      pin.handle.close();
+    }
+  }
+
+  /**
+   * Releases the pins that have not been used for pin-timeout seconds.
+   *
+   * @return The number of pins released.
+   * @throws IOException An error occurred.
+   */
+  public static int expirePins() throws IOException {
+    final long before = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(config.pinTimeout);
+    int expired = 0;
+    for (Map.Entry<String, Pin> entry : pins.entrySet()) {
+      if (entry.getValue().lastUsed <= before && pins.remove(entry.getKey(), entry.getValue())) {
+        entry.getValue().handle.close();
+        expired++;
+      }
+    }
+    return expired;
+  }
+
+  // abandoned transfers are looked for at most once a minute
+  private static void sweepPins() {
+    final long now = System.currentTimeMillis();
+    final long last = lastPinSweep.get();
+    if (now - last < TimeUnit.MINUTES.toMillis(1) || !lastPinSweep.compareAndSet(last, now)) {
+      return;
+    }
+    try {
+      final int expired = expirePins();
+      if (expired > 0) {
+        logger.info("released " + expired + " abandoned resource transfers");
+      }
+    } catch (IOException e) {
+      logger.warn("unable to release resource transfers " + e.getMessage());
+    }
+  }
+
+  /**
+   * Sets how long an unused pin is kept.
+   *
+   * @param seconds The pin timeout in seconds.
+   */
+  public static void setPinTimeout(long seconds) {
+    config.pinTimeout = seconds;
+  }
+
+  /**
+   * Discards the cached resources that are not in use.
+   *
+   * @throws IOException An error occurred.
+   */
+  public static void invalidateAll() throws IOException {
+    final List<Entry> removed = new ArrayList<>();
+    synchronized (entries) {
+      for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+        final Entry entry = it.next();
+        if (entry.refs > 0) {
+          continue;
+        }
+        it.remove();
+        entry.removed = true;
+        if (entry.resident) {
+          if (entry.heap) {
+            heapBytes -= entry.length;
+          } else {
+            mappedBytes -= entry.length;
+          }
+        }
+        removed.add(entry);
+      }
+    }
+    for (Entry entry : removed) {
+      entry.release();
+    }
+    logger.debug("resource cache cleared");
+  }
+
+  /**
+   * Sets the size bounds, evicting resources as needed.
+   *
+   * @param heapEntryBytes The largest resource held on the heap.
+   * @param maxHeapBytes   The maximum total size of the resources held on the heap.
+   * @param maxMappedBytes The maximum total size of the memory mapped resources.
+   * @throws IOException An error occurred.
+   */
+  public static void setLimits(long heapEntryBytes, long maxHeapBytes, long maxMappedBytes)
+      throws IOException {
+    synchronized (entries) {
+      config.heapEntryBytes = heapEntryBytes;
+      config.maxHeapBytes = maxHeapBytes;
+      config.maxMappedBytes = maxMappedBytes;
+    }
+    evict();
+  }
+
+  public static int getPinCount() {
+    return pins.size();
+  }
+
+  public static int getEntryCount() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public static long getHeapBytes() {
+    synchronized (entries) {
+      return heapBytes;
+    }
+  }
+
+  public static long getMappedBytes() {
+    synchronized (entries) {
+      return mappedBytes;
+    }
+  }
+
+  public static long getHitCount() {
+    return hits.get();
+  }
+
+  public static long getMissCount() {
+    return misses.get();
+  }
+
+  public static long getEvictionCount() {
+    return evictions.get();
+  }
+}
@@ -0,0 +1,273 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.InternalServerErrorException;
+import org.fidoalliance.fdo.protocol.LoggerService;
+import org.fidoalliance.fdo.protocol.Mapper;
+import org.fidoalliance.fdo.protocol.dispatch.ServiceInfoSendFunction;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoKeyValuePair;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoQueue;
+
+/**
+ * The read position of a file being sent to a device.
+ *
+ * <p>Only the resource reference and offset are kept in the session. The data of each
+ * message is read by offset when the message is built, through the resource cache shared by
+ * all sessions, so the session stays the same size whatever the size of the file.</p>
+ *
+ * <p>The cached resource is pinned from the first chunk to the last and the pin id is kept
+ * with the offset. If the pin is not found, because it expired or the session was resumed
+ * on another server, the resource is acquired and pinned again.</p>
+ */
+public class ResourceCursor {
+
+  private static final LoggerService logger = new LoggerService(ResourceCursor.class);
+
+  @JsonProperty("name")
+  private String name;
+
+  @JsonProperty("url")
+  private boolean url;
+
+  @JsonProperty("sha384")
+  private byte[] sha384;
+
+  @JsonProperty("length")
+  private long length;
+
+  @JsonProperty("offset")
+  private long offset;
+
+  @JsonProperty("pin")
+  private String pin;
+
+  /**
+   * Opens a cursor on a system resource.
+   *
+   * @param name The resource name.
+   * @return The cursor at the start of the resource.
+   * @throws IOException The resource does not exist.
+   */
+  public static ResourceCursor ofResource(String name) throws IOException {
+    final ResourceStore.Content content = new ResourceStore().getContent(name);
+    if (content == null) {
+      throw new InternalServerErrorException("svi resource missing " + name);
+    }
+    final ResourceCursor cursor = new ResourceCursor();
+    cursor.name = name;
+    cursor.sha384 = content.getSha384();
+    cursor.length = content.getLength();
+    return cursor;
+  }
+
+  /**
+   * Opens a cursor on an http(s) resource, downloading it into the resource cache.
+   *
+   * @param url The resource url.
+   * @return The cursor at the start of the resource.
+   * @throws IOException The resource could not be downloaded.
+   */
+  public static ResourceCursor ofUrl(String url) throws IOException {
+    final ResourceCursor cursor = new ResourceCursor();
+    cursor.name = url;
+    cursor.url = true;
+    cursor.spool();
+    cursor.getHandle();
+    return cursor;
+  }
+
+  /**
+   * Reads a cursor kept in a queued value.
+   *
+   * @param kv The queued pair holding the cursor.
+   * @return The cursor.
+   * @throws IOException An error occurred.
+   */
+  public static ResourceCursor fromPair(ServiceInfoKeyValuePair kv) throws IOException {
+    return Mapper.INSTANCE.readValue(kv.getValue(), ResourceCursor.class);
+  }
+
+  /**
+   * Keeps the cursor in a queued value, standing in for the data not yet sent.
+   *
+   * @param key The key identifying cursors in the module queue.
+   * @return The pair to queue.
+   * @throws IOException An error occurred.
+   */
+  public ServiceInfoKeyValuePair toPair(String key) throws IOException {
+    ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName(key);
+    kv.setValue(Mapper.INSTANCE.writeValue(this));
+    return kv;
+  }
+
+  /**
+   * Sends the next chunk of the cursor at the head of the queue.
+   *
+   * <p>The cursor is advanced by the chunk sent and removed, releasing its pin, once the file
+   * has been sent.</p>
+   *
+   * @param queue        The module queue, headed by a cursor.
+   * @param dataKey      The key of the data values sent to the device.
+   * @param chunkSize    The maximum number of bytes per data value.
+   * @param sendFunction The function used to send values.
+   * @return False if the message has no room left for the chunk.
+   * @throws IOException An error occurred.
+   */
+  public static boolean sendNext(ServiceInfoQueue queue, String dataKey, int chunkSize,
+      ServiceInfoSendFunction sendFunction) throws IOException {
+    final ServiceInfoKeyValuePair head = queue.peek();
+    final ResourceCursor cursor = fromPair(head);
+    if (!cursor.isDone()) {
+      final byte[] data = cursor.read(chunkSize);
+      ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+      kv.setKeyName(dataKey);
+      kv.setValue(Mapper.INSTANCE.writeValue(data));
+      if (!sendFunction.apply(kv)) {
+        // keeps the pin taken for the chunk
+        queue.set(0, cursor.toPair(head.getKey()));
+        return false;
+      }
+      cursor.offset += data.length;
+    }
+
+    if (cursor.isDone()) {
+      cursor.release();
+      queue.poll();
+    } else {
+      queue.set(0, cursor.toPair(head.getKey()));
+    }
+    return true;
+  }
+
+  @JsonIgnore
+  public String getName() {
+    return name;
+  }
+
+  @JsonIgnore
+  public byte[] getSha384() {
+    return sha384.clone();
+  }
+
+  @JsonIgnore
+  public long getLength() {
+    return length;
+  }
+
+  @JsonIgnore
+  public long getOffset() {
+    return offset;
+  }
+
+  @JsonIgnore
+  public boolean isDone() {
+    return offset >= length;
+  }
+
+  private ResourceCache.Handle getHandle() throws IOException {
+    ResourceCache.Handle handle = pin != null ? ResourceCache.getPinned(pin) : null;
+    if (handle == null) {
+      handle = ResourceCache.acquire(name, sha384, length, this::load);
+      pin = ResourceCache.pin(handle);
+    }
+    return handle;
+  }
+
+  private void release() throws IOException {
+    if (pin != null) {
+      ResourceCache.unpin(pin);
+      pin = null;
+    }
+  }
+
+  private byte[] read(int size) throws IOException {
+    final int count = (int) Math.min(size, length - offset);
+    return getHandle().read(offset, count);
+  }
+
+  private void load(OutputStream out) throws IOException {
+    if (!url) {
+      final ResourceStore store = new ResourceStore();
+      final ResourceStore.Content content = store.getContent(name);
+      if (content == null || !Arrays.equals(content.getSha384(), sha384)) {
+        throw new InternalServerErrorException("svi resource changed " + name);
+      }
+      store.transferTo(content, out);
+      return;
+    }
+
+    // evicted, or the session was resumed on another server
+    final Path temp = download();
+    try {
+      Files.copy(temp, out);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private void spool() throws IOException {
+    // the hash is known once downloaded
+    final Path temp = download();
+    ResourceCache.put(name, sha384, temp);
+  }
+
+  private Path download() throws IOException {
+    final Path temp = Files.createTempFile("resource", ".tmp");
+    try (CloseableHttpClient httpClient = Config.getWorker(ServiceInfoHttpClientSupplier.class)
+        .get()) {
+
+      logger.info("HTTP(S) GET: " + name);
+      try (CloseableHttpResponse httpResponse = httpClient.execute(new HttpGet(name))) {
+        logger.info(httpResponse.getStatusLine().toString());
+        if (httpResponse.getStatusLine().getStatusCode() != 200) {
+          throw new InternalServerErrorException(httpResponse.getStatusLine().toString());
+        }
+
+        final MessageDigest digest = MessageDigest.getInstance("SHA-384");
+        long count = 0;
+        final HttpEntity entity = httpResponse.getEntity();
+        if (entity != null) {
+          try (InputStream in = new DigestInputStream(entity.getContent(), digest);
+              OutputStream out = Files.newOutputStream(temp)) {
+            count = in.transferTo(out);
+          }
+        }
+
+        final byte[] hash = digest.digest();
+        if (sha384 != null && !Arrays.equals(hash, sha384)) {
+          throw new InternalServerErrorException("svi resource changed " + name);
+        }
+        sha384 = hash;
+        length = count;
+      }
+      logger.info("http content downloaded successfully!");
+      return temp;
+    } catch (InternalServerErrorException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    } catch (NoSuchAlgorithmException | IOException | RuntimeException e) {
+      Files.deleteIfExists(temp);
+      logger.error("failed to get http content" + e.getMessage());
+      throw new InternalServerErrorException(e);
+    }
+  }
+}
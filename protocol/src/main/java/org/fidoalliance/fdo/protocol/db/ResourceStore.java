@@ -0,0 +1,175 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.List;
+import org.apache.commons.codec.binary.Hex;
+import org.fidoalliance.fdo.protocol.InternalServerErrorException;
+import org.fidoalliance.fdo.protocol.LoggerService;
+import org.fidoalliance.fdo.protocol.entity.SystemResource;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+/**
+ * Content addressed access to system resources.
+ *
+ * <p>Resources are resolved by name to their SHA-384 and length once, then read by hash
+ * and offset. The hash and length are computed at upload, legacy rows are hashed on first
+ * use and updated.</p>
+ */
+public class ResourceStore {
+
+  private static final LoggerService logger = new LoggerService(ResourceStore.class);
+
+  /**
+   * A resolved resource.
+   */
+  public static final class Content {
+
+    private final String name;
+    private final byte[] sha384;
+    private final long length;
+
+    private Content(String name, byte[] sha384, long length) {
+      this.name = name;
+      this.sha384 = sha384;
+      this.length = length;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public byte[] getSha384() {
+      return sha384.clone();
+    }
+
+    public String getHash() {
+      return Hex.encodeHexString(sha384);
+    }
+
+    public long getLength() {
+      return length;
+    }
+  }
+
+  /**
+   * Resolves a resource by name.
+   *
+   * @param name The resource name.
+   * @return The resource content descriptor or null if the resource does not exist.
+   * @throws IOException An error occurred.
+   */
+  public Content getContent(String name) throws IOException {
+    return EntityCache.get(SystemResource.class, name, () -> load(name));
+  }
+
+  private Content load(String name) throws IOException {
+    final Session session = HibernateUtil.getSessionFactory().openSession();
+    try {
+      final Transaction trans = session.beginTransaction();
+      final SystemResource resource = session.get(SystemResource.class, name);
+      if (resource == null) {
+        trans.commit();
+        return null;
+      }
+
+      if (resource.getSha384() == null || resource.getSize() == null) {
+        logger.info("computing hash of resource " + name);
+        final MessageDigest digest = MessageDigest.getInstance("SHA-384");
+        long length = 0;
+        try (InputStream in = new DigestInputStream(resource.getData().getBinaryStream(),
+            digest)) {
+          byte[] buffer = new byte[8192];
+          for (int br = in.read(buffer); br >= 0; br = in.read(buffer)) {
+            length += br;
+          }
+        }
+        resource.setSize(length);
+        resource.setSha384(digest.digest());
+      }
+      trans.commit();
+      return new Content(name, resource.getSha384(), resource.getSize());
+
+    } catch (SQLException | NoSuchAlgorithmException e) {
+      throw new InternalServerErrorException(e);
+    } finally {
+      session.close();
+    }
+  }
+
+  /**
+   * Writes a whole resource by its content hash.
+   *
+   * @param content The resolved resource.
+   * @param out     The stream the content is written to.
+   * @throws IOException An error occurred.
+   */
+  public void transferTo(Content content, OutputStream out) throws IOException {
+    final Session session = HibernateUtil.getSessionFactory().openSession();
+    try {
+      final Transaction trans = session.beginTransaction();
+      try (InputStream in = getBlob(session, content).getBinaryStream()) {
+        in.transferTo(out);
+      }
+      trans.commit();
+    } catch (SQLException e) {
+      throw new InternalServerErrorException(e);
+    } finally {
+      session.close();
+    }
+  }
+
+  private Blob getBlob(Session session, Content content) throws IOException {
+    final List<SystemResource> list = session.createQuery(
+            "from SystemResource where sha384 = :hash", SystemResource.class)
+        .setParameter("hash", content.sha384)
+        .setMaxResults(1)
+        .getResultList();
+    if (list.isEmpty()) {
+      throw new InternalServerErrorException("svi resource missing " + content.getName());
+    }
+    return list.get(0).getData();
+  }
+
+  /**
+   * Reads part of a resource by its content hash.
+   *
+   * @param content The resolved resource.
+   * @param offset  The zero based offset to read from.
+   * @param length  The maximum number of bytes to read.
+   * @return The bytes read, empty at the end of the resource.
+   * @throws IOException An error occurred.
+   */
+  public byte[] read(Content content, long offset, int length) throws IOException {
+    final int count = (int) Math.max(0, Math.min(length, content.getLength() - offset));
+    if (count == 0) {
+      return new byte[0];
+    }
+
+    final Session session = HibernateUtil.getSessionFactory().openSession();
+    try {
+      final Transaction trans = session.beginTransaction();
+      final Blob blob = getBlob(session, content);
+      final byte[] data;
+      try (InputStream in = blob.getBinaryStream(offset + 1, count)) {
+        data = in.readNBytes(count);
+      }
+      trans.commit();
+      return data;
+    } catch (SQLException e) {
+      throw new InternalServerErrorException(e);
+    } finally {
+      session.close();
+    }
+  }
+}
@@ -0,0 +1,240 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.function.FailableSupplier;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.Mapper;
+import org.fidoalliance.fdo.protocol.entity.RvRedirect;
+import org.fidoalliance.fdo.protocol.message.To2RedirectEntry;
+
+/**
+ * Process local, least recently used cache of decoded TO1 redirects keyed by guid.
+ *
+ * <p>An entry is dropped when its redirect expires, or after rv-redirect: cache-ttl seconds
+ * so redirects replaced through another server are picked up. The number of entries is
+ * bounded by rv-redirect: cache-entries (0 disables the cache). Cached redirects are shared
+ * between threads and must not be modified by callers.</p>
+ */
+public final class RvRedirectCache {
+
+  private static final int DEFAULT_MAX_ENTRIES = 100000;
+  private static final long DEFAULT_TTL = Duration.ofMinutes(1).toSeconds();
+
+  private static class RootConfig {
+
+    @JsonProperty("rv-redirect")
+    private CacheConfig root = new CacheConfig();
+  }
+
+  private static class CacheConfig {
+
+    @JsonProperty("cache-entries")
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    @JsonProperty("cache-ttl")
+    private long ttl = DEFAULT_TTL;
+  }
+
+  private static class Entry {
+
+    private final To2RedirectEntry redirect;
+    private final long expiry;
+
+    Entry(To2RedirectEntry redirect, long expiry) {
+      this.redirect = redirect;
+      this.expiry = expiry;
+    }
+  }
+
+  private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private static int maxEntries;
+  private static long ttl;
+  private static long generation;
+  private static volatile Clock clock = Clock.systemUTC();
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  static {
+    final RootConfig config = Config.getConfig(RootConfig.class);
+    final CacheConfig cacheConfig = config != null && config.root != null
+        ? config.root : new CacheConfig();
+    maxEntries = cacheConfig.maxEntries;
+    ttl = Duration.ofSeconds(cacheConfig.ttl).toMillis();
+  }
+
+  private RvRedirectCache() {
+  }
+
+  /**
+   * Gets an unexpired redirect, loading it on a miss.
+   *
+   * @param guid   The device guid.
+   * @param loader Loads the stored redirect, or returns null if none is stored.
+   * @return The redirect or null if none is stored or it has expired.
+   * @throws IOException An error occurred.
+   */
+  public static To2RedirectEntry get(String guid,
+      FailableSupplier<RvRedirect, IOException> loader) throws IOException {
+
+    final long loadGeneration;
+    synchronized (entries) {
+      final Entry entry = entries.get(guid);
+      if (entry != null) {
+        if (entry.expiry > clock.millis()) {
+          hits.incrementAndGet();
+          return entry.redirect;
+        }
+        entries.remove(guid);
+      }
+      loadGeneration = generation;
+    }
+
+    misses.incrementAndGet();
+    final RvRedirect stored = loader.get();
+    if (stored == null || stored.getExpiry().getTime() <= clock.millis()) {
+      return null;
+    }
+    final To2RedirectEntry redirect =
+        Mapper.INSTANCE.readValue(stored.getData(), To2RedirectEntry.class);
+
+    synchronized (entries) {
+      // an invalidation during the load means the loaded redirect may be stale
+      if (loadGeneration == generation) {
+        add(guid, redirect, stored.getExpiry().getTime());
+      }
+    }
+    return redirect;
+  }
+
+  private static void add(String guid, To2RedirectEntry redirect, long expiry) {
+    if (maxEntries <= 0) {
+      return;
+    }
+    entries.put(guid, new Entry(redirect, Math.min(expiry, clock.millis() + ttl)));
+    final Iterator<Entry> it = entries.values().iterator();
+    while (entries.size() > maxEntries && it.hasNext()) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  /**
+   * Caches a redirect that was just stored.
+   *
+   * @param guid     The device guid.
+   * @param redirect The stored redirect.
+   * @param expiry   The time the redirect expires, in milliseconds since the epoch.
+   */
+  public static void put(String guid, To2RedirectEntry redirect, long expiry) {
+    synchronized (entries) {
+      generation++;
+      add(guid, redirect, expiry);
+    }
+  }
+
+  /**
+   * Discards a cached redirect.
+   *
+   * @param guid The guid of the redirect that was written or deleted.
+   */
+  public static void invalidate(String guid) {
+    synchronized (entries) {
+      generation++;
+      entries.remove(guid);
+    }
+  }
+
+  /**
+   * Discards all cached redirects.
+   */
+  public static void invalidateAll() {
+    synchronized (entries) {
+      generation++;
+      entries.clear();
+    }
+  }
+
+  /**
+   * Removes the expired redirects.
+   *
+   * @return The number of redirects removed.
+   */
+  public static int purgeExpired() {
+    final long now = clock.millis();
+    int removed = 0;
+    synchronized (entries) {
+      for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+        if (it.next().expiry <= now) {
+          it.remove();
+          removed++;
+        }
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Sets the entry bound, evicting redirects as needed.
+   *
+   * @param max The maximum number of cached redirects, or 0 to disable the cache.
+   */
+  public static void setMaxEntries(int max) {
+    synchronized (entries) {
+      maxEntries = max;
+      final Iterator<Entry> it = entries.values().iterator();
+      while (entries.size() > Math.max(max, 0) && it.hasNext()) {
+        it.next();
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Sets the clock redirect expiry is checked against, by the cache and the sweeper.
+   *
+   * @param newClock The clock to use.
+   */
+  public static void setClock(Clock newClock) {
+    clock = newClock;
+  }
+
+  public static Clock getClock() {
+    return clock;
+  }
+
+  public static int getSize() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public static long getHitCount() {
+    return hits.get();
+  }
+
+  public static long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Gets the fraction of lookups served from the cache.
+   *
+   * @return The hit ratio, or 0 if there were no lookups.
+   */
+  public static double getHitRatio() {
+    final long hitCount = hits.get();
+    final long total = hitCount + misses.get();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+}
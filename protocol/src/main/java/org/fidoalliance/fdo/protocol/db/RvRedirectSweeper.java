@@ -0,0 +1,155 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.LoggerService;
+import org.fidoalliance.fdo.protocol.entity.RvRedirect;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+/**
+ * Deletes expired TO1 redirects.
+ *
+ * <p>Runs every rv-redirect: sweep-interval seconds and deletes at most sweep-batch rows per
+ * transaction, so a large backlog does not hold locks on the table for long.</p>
+ */
+public class RvRedirectSweeper implements Closeable {
+
+  private static final LoggerService logger = new LoggerService(RvRedirectSweeper.class);
+
+  private static class RootConfig {
+
+    @JsonProperty("rv-redirect")
+    private SweepConfig root = new SweepConfig();
+  }
+
+  private static class SweepConfig {
+
+    @JsonProperty("sweep-interval")
+    private long interval = Duration.ofMinutes(10).toSeconds();
+
+    @JsonProperty("sweep-batch")
+    private int batchSize = 1000;
+  }
+
+  private final SessionFactory factory;
+  private final int batchSize;
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rv-redirect-sweeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final AtomicLong sweeps = new AtomicLong();
+  private final AtomicLong removed = new AtomicLong();
+
+  /**
+   * Worker Constructor.
+   */
+  public RvRedirectSweeper() {
+    this(Config.getConfig(RootConfig.class).root);
+  }
+
+  private RvRedirectSweeper(SweepConfig config) {
+    this(null, Duration.ofSeconds(config.interval), config.batchSize);
+  }
+
+  /**
+   * Constructs a sweeper.
+   *
+   * @param factory   The session factory, or null for the configured factory.
+   * @param interval  How often expired redirects are deleted.
+   * @param batchSize The most redirects deleted per transaction.
+   */
+  public RvRedirectSweeper(SessionFactory factory, Duration interval, int batchSize) {
+    this.factory = factory;
+    this.batchSize = Math.max(batchSize, 1);
+
+    scheduler.scheduleWithFixedDelay(this::onSweep, interval.toSeconds(),
+        interval.toSeconds(), TimeUnit.SECONDS);
+    logger.info("RV redirect sweeper will run every " + interval.toSeconds() + " seconds");
+  }
+
+  private SessionFactory getSessionFactory() {
+    return factory != null ? factory : HibernateUtil.getSessionFactory();
+  }
+
+  private void onSweep() {
+    try {
+      final int count = sweep();
+      logger.info("expired rv redirects removed " + count + ", total " + removed.get()
+          + " in " + sweeps.get() + " sweeps, cache hit ratio "
+          + String.format("%.2f", RvRedirectCache.getHitRatio()));
+    } catch (RuntimeException e) {
+      logger.error("rv redirect sweep failed " + e.getMessage());
+    }
+  }
+
+  /**
+   * Deletes the redirects that have expired.
+   *
+   * @return The number of redirects deleted.
+   */
+  public int sweep() {
+    // the cache purged below checks expiry against the same clock
+    final Date now = new Date(RvRedirectCache.getClock().millis());
+    int count = 0;
+    boolean more = true;
+    while (more) {
+      try (Session session = getSessionFactory().openSession()) {
+        final Transaction trans = session.beginTransaction();
+        final List<String> guids = session.createQuery(
+                "select r.guid from RvRedirect r where r.expiry <= :now", String.class)
+            .setParameter("now", now)
+            .setMaxResults(batchSize)
+            .getResultList();
+
+        if (!guids.isEmpty()) {
+          // the expiry is checked again, the redirect may have been renewed since the select
+          count += session.createMutationQuery(
+                  "delete from RvRedirect r where r.guid in :guids and r.expiry <= :now")
+              .setParameter("guids", guids)
+              .setParameter("now", now)
+              .executeUpdate();
+        }
+        trans.commit();
+        more = guids.size() == batchSize;
+      }
+    }
+    if (count > 0) {
+      ReplicaRouter.markWritten(RvRedirect.class);
+    }
+    RvRedirectCache.purgeExpired();
+
+    sweeps.incrementAndGet();
+    removed.addAndGet(count);
+    return count;
+  }
+
+  public long getSweepCount() {
+    return sweeps.get();
+  }
+
+  public long getRemovedCount() {
+    return removed.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    scheduler.shutdown();
+  }
+}
@@ -0,0 +1,149 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.Mapper;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+
+/**
+ * Encodes protocol session storage for the session managers.
+ *
+ * <p>Storage below the compression threshold is written as plain CBOR, as sessions always
+ * were. Larger storage is deflated behind a format byte and the uncompressed length. The
+ * format byte can never start a CBOR map, so both forms, and rows written before
+ * compression was enabled, decode.</p>
+ */
+public class SessionCodec {
+
+  private static final byte FORMAT_DEFLATE = 0x01;
+  private static final int HEADER_LENGTH = 1 + Integer.BYTES;
+
+  private static class RootConfig {
+
+    @JsonProperty("session-compression")
+    private CompressionConfig root = new CompressionConfig();
+  }
+
+  private static class CompressionConfig {
+
+    @JsonProperty("threshold")
+    private int threshold = 0;
+
+    @JsonProperty("level")
+    private int level = Deflater.BEST_SPEED;
+  }
+
+  private static SessionCodec instance;
+
+  private final int threshold;
+  private final int level;
+
+  /**
+   * Constructs a codec.
+   *
+   * @param threshold The smallest encoded size, in bytes, that is compressed, or 0 to never
+   *                  compress.
+   * @param level     The deflate level.
+   */
+  public SessionCodec(int threshold, int level) {
+    this.threshold = threshold;
+    this.level = level;
+  }
+
+  /**
+   * Gets the codec configured by session-compression in the service.yml.
+   *
+   * @return The configured codec.
+   */
+  public static synchronized SessionCodec getInstance() {
+    if (instance == null) {
+      final CompressionConfig config = Config.getConfig(RootConfig.class).root;
+      instance = config == null ? new SessionCodec(0, Deflater.BEST_SPEED)
+          : new SessionCodec(config.threshold, config.level);
+    }
+    return instance;
+  }
+
+  /**
+   * Encodes session storage.
+   *
+   * @param storage The session storage.
+   * @return The encoded storage.
+   * @throws IOException An error occurred.
+   */
+  public byte[] encode(SimpleStorage storage) throws IOException {
+    final byte[] cbor = Mapper.INSTANCE.writeValue(storage);
+    if (threshold <= 0 || cbor.length < threshold) {
+      return cbor;
+    }
+
+    final Deflater deflater = new Deflater(level, true);
+    try {
+      deflater.setInput(cbor);
+      deflater.finish();
+      final byte[] buffer = new byte[cbor.length];
+      final int length = deflater.deflate(buffer);
+      if (!deflater.finished() || HEADER_LENGTH + length >= cbor.length) {
+        // incompressible, plain is smaller
+        return cbor;
+      }
+      return ByteBuffer.allocate(HEADER_LENGTH + length)
+          .put(FORMAT_DEFLATE)
+          .putInt(cbor.length)
+          .put(buffer, 0, length)
+          .array();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Decodes session storage written in any format.
+   *
+   * @param data The encoded storage.
+   * @return The session storage.
+   * @throws IOException An error occurred.
+   */
+  public SimpleStorage decode(byte[] data) throws IOException {
+    return Mapper.INSTANCE.readValue(unwrap(data), SimpleStorage.class);
+  }
+
+  /**
+   * Gets the CBOR of encoded session storage.
+   *
+   * @param data The encoded storage.
+   * @return The storage CBOR.
+   * @throws IOException An error occurred.
+   */
+  public static byte[] unwrap(byte[] data) throws IOException {
+    if (data.length == 0 || data[0] != FORMAT_DEFLATE) {
+      return data;
+    }
+
+    final ByteBuffer header = ByteBuffer.wrap(data, 1, Integer.BYTES);
+    final byte[] cbor = new byte[header.getInt()];
+    final Inflater inflater = new Inflater(true);
+    try {
+      // raw inflate wants a trailing dummy byte
+      inflater.setInput(Arrays.copyOfRange(data, HEADER_LENGTH, data.length + 1));
+      final int length = inflater.inflate(cbor);
+      if (length != cbor.length || !inflater.finished()) {
+        throw new IOException("truncated session data");
+      }
+      return cbor;
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -9,7 +9,7 @@ import java.util.Date;
 
 import org.fidoalliance.fdo.protocol.LoggerService;
 import org.fidoalliance.fdo.protocol.dispatch.AcceptOwnerFunction;
-import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucherStatus;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 
@@ -27,7 +27,8 @@ public class StandardAcceptOwnerFunction implements AcceptOwnerFunction {
         + Duration.ofSeconds(ws).toMillis());
     try {
 
-      OnboardingVoucher onboardingVoucher = session.find(OnboardingVoucher.class, guid);
+      OnboardingVoucherStatus onboardingVoucher =
+          session.find(OnboardingVoucherStatus.class, guid);
       if (onboardingVoucher != null) {
         final Transaction trans = session.beginTransaction();
         onboardingVoucher.setTo0Expiry(expiry);
@@ -80,6 +80,10 @@ public class StandardRendezvousInfoSupplier implements RendezvousInfoSupplier {
 
   @Override
   public RendezvousInfo get() throws IOException {
+    return EntityCache.getCopy(RvData.class, "rvInfo", RendezvousInfo.class, this::load);
+  }
+
+  private RendezvousInfo load() throws IOException {
     final Session session = HibernateUtil.getSessionFactory().openSession();
     try {
       final Transaction trans = session.beginTransaction();
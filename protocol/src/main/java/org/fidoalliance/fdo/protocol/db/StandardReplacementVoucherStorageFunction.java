@@ -9,6 +9,7 @@ import org.fidoalliance.fdo.protocol.LoggerService;
 import org.fidoalliance.fdo.protocol.Mapper;
 import org.fidoalliance.fdo.protocol.dispatch.ReplacementVoucherStorageFunction;
 import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucherStatus;
 import org.fidoalliance.fdo.protocol.message.OwnershipVoucher;
 import org.fidoalliance.fdo.protocol.message.OwnershipVoucherHeader;
 import org.hibernate.Session;
@@ -29,17 +30,22 @@ public class StandardReplacementVoucherStorageFunction implements
       OwnershipVoucherHeader header1 = Mapper.INSTANCE.readValue(voucher1.getHeader(),
           OwnershipVoucherHeader.class);
 
-      OnboardingVoucher onboardingVoucher = session.find(OnboardingVoucher.class,
+      // the status and replacement are written without loading the voucher data
+      OnboardingVoucherStatus onboardingVoucher = session.find(OnboardingVoucherStatus.class,
           header1.getGuid().toString());
       if (onboardingVoucher != null) {
-        if (voucher2.getHmac() != null) {
-          onboardingVoucher.setReplacement(Mapper.INSTANCE.writeValue(voucher2));
-        } else {
-          onboardingVoucher.setReplacement(null);
-        }
         onboardingVoucher.setTo2CompletedOn(new Date(System.currentTimeMillis()));
-        session.update(onboardingVoucher);
+        session.createMutationQuery(
+                "update OnboardingVoucher set replacement = :replacement where guid = :guid")
+            .setParameter("replacement", voucher2.getHmac() != null
+                ? Mapper.INSTANCE.writeValue(voucher2) : null)
+            .setParameter("guid", onboardingVoucher.getGuid())
+            .executeUpdate();
         trans.commit();
+        ReplicaRouter.markWritten(OnboardingVoucher.class);
+        // the device has onboarded, its voucher is not needed again soon
+        VoucherCache.invalidate(onboardingVoucher.getGuid());
+        To0Registry.cancel(onboardingVoucher.getGuid());
       }
       if (voucher2.getHmac() != null) {
         OwnershipVoucherHeader header2 = Mapper.INSTANCE.readValue(voucher2.getHeader(),
@@ -33,25 +33,24 @@ public class StandardRvBlobStorageFunction implements RvBlobStorageFunction {
           Mapper.INSTANCE.readValue(to0d.getVoucher().getHeader(), OwnershipVoucherHeader.class);
 
       final byte[] data = Mapper.INSTANCE.writeValue(blobEntry);
+      final Date expiry = new Date(System.currentTimeMillis()
+          + Duration.ofSeconds(waitSeconds).toMillis());
       RvRedirect redirect = session.get(RvRedirect.class, header.getGuid().toString());
       if (redirect == null) {
         redirect = new RvRedirect();
         redirect.setGuid(header.getGuid().toString());
         redirect.setData(data);
-        redirect.setExpiry(
-            new Date(System.currentTimeMillis()
-                + Duration.ofSeconds(waitSeconds).toMillis()));
+        redirect.setExpiry(expiry);
         redirect.setCreatedOn(new Date(System.currentTimeMillis()));
 
         session.save(redirect);
       } else {
         redirect.setData(data);
-        redirect.setExpiry(
-            new Date(System.currentTimeMillis()
-                + Duration.ofSeconds(waitSeconds).toMillis()));
+        redirect.setExpiry(expiry);
         session.update(redirect);
       }
       trans.commit();
+      RvRedirectCache.put(redirect.getGuid(), blobEntry, expiry.getTime());
 
       return waitSeconds;
 
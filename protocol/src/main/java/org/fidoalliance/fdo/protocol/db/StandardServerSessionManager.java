@@ -3,23 +3,48 @@
 
 package org.fidoalliance.fdo.protocol.db;
 
+import jakarta.persistence.OptimisticLockException;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.Date;
 import org.fidoalliance.fdo.protocol.InvalidJwtTokenException;
-import org.fidoalliance.fdo.protocol.Mapper;
+import org.fidoalliance.fdo.protocol.SessionConflictException;
 import org.fidoalliance.fdo.protocol.dispatch.SessionManager;
 import org.fidoalliance.fdo.protocol.entity.ProtocolSession;
 import org.fidoalliance.fdo.protocol.message.SimpleStorage;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
 import org.hibernate.Transaction;
 
 public class StandardServerSessionManager implements SessionManager {
 
+  private final SessionFactory factory;
+
+  /**
+   * Worker Constructor.
+   */
+  public StandardServerSessionManager() {
+    this(null);
+  }
+
+  /**
+   * Constructs a session manager on a session factory.
+   *
+   * @param factory The session factory, or null for the configured factory.
+   */
+  public StandardServerSessionManager(SessionFactory factory) {
+    this.factory = factory;
+  }
+
+  private SessionFactory getSessionFactory() {
+    return factory != null ? factory : HibernateUtil.getSessionFactory();
+  }
+
   @Override
   public SimpleStorage getSession(String name) throws IOException {
 
-    Session session = HibernateUtil.getSessionFactory().openSession();
+    Session session = getSessionFactory().openSession();
     Transaction trans = null;
     try {
       trans = session.beginTransaction();
@@ -28,9 +53,10 @@ public class StandardServerSessionManager implements SessionManager {
         throw new InvalidJwtTokenException(name);
       }
 
-      return Mapper.INSTANCE.readValue(
-          HibernateUtil.unwrap(protocolSession.getData()),
-          SimpleStorage.class);
+      final SimpleStorage storage =
+          SessionCodec.getInstance().decode(HibernateUtil.unwrap(protocolSession.getData()));
+      storage.setVersion(protocolSession.getVersion());
+      return storage;
 
 
     } finally {
@@ -45,16 +71,17 @@ public class StandardServerSessionManager implements SessionManager {
   @Override
   public void saveSession(String name, SimpleStorage storage) throws IOException {
 
-    final Session session = HibernateUtil.getSessionFactory().openSession();
+    final Session session = getSessionFactory().openSession();
     try {
       final Transaction trans = session.beginTransaction();
       final ProtocolSession protocolSession = new ProtocolSession();
       protocolSession.setName(name);
       protocolSession.setCreatedOn(Date.from(Instant.now()));
       protocolSession.setData(session.getLobHelper().createBlob(
-          Mapper.INSTANCE.writeValue(storage)));
+          SessionCodec.getInstance().encode(storage)));
       session.save(protocolSession);
       trans.commit();
+      storage.setVersion(protocolSession.getVersion());
     } finally {
       session.close();
     }
@@ -62,16 +89,29 @@ public class StandardServerSessionManager implements SessionManager {
 
   @Override
   public void updateSession(String name, SimpleStorage storage) throws IOException {
-    final Session session = HibernateUtil.getSessionFactory().openSession();
+    final Session session = getSessionFactory().openSession();
     try {
       final Transaction trans = session.beginTransaction();
-      final ProtocolSession protocolSession = new ProtocolSession();
-      protocolSession.setName(name);
+      ProtocolSession protocolSession;
+      if (storage.getVersion() != null) {
+        // the version check makes the update fail if the session changed since it was read
+        protocolSession = new ProtocolSession();
+        protocolSession.setName(name);
+        protocolSession.setVersion(storage.getVersion());
+        session.update(protocolSession);
+      } else {
+        protocolSession = session.find(ProtocolSession.class, name);
+        if (protocolSession == null) {
+          throw new InvalidJwtTokenException(name);
+        }
+      }
       protocolSession.setCreatedOn(Date.from(Instant.now()));
       protocolSession.setData(session.getLobHelper().createBlob(
-          Mapper.INSTANCE.writeValue(storage)));
-      session.update(protocolSession);
+          SessionCodec.getInstance().encode(storage)));
       trans.commit();
+      storage.setVersion(protocolSession.getVersion());
+    } catch (StaleStateException | OptimisticLockException e) {
+      throw new SessionConflictException(name);
     } finally {
       session.close();
     }
@@ -80,7 +120,7 @@ public class StandardServerSessionManager implements SessionManager {
 
   @Override
   public void expireSession(String name) {
-    Session session = HibernateUtil.getSessionFactory().openSession();
+    Session session = getSessionFactory().openSession();
     try {
       Transaction trans = session.beginTransaction();
       ProtocolSession protocolSession = session.get(ProtocolSession.class, name);
@@ -21,7 +21,17 @@ public class StandardServiceInfoDocumentSupplier implements ServiceInfoDocumentS
 
   @Override
   public ServiceInfoDocument get() throws IOException {
+    // compiled once per upload, the modules find the plan by version
+    final InstructionPlan plan = EntityCache.get(SystemPackage.class, "plan",
+        () -> InstructionPlan.compile(load()));
     ServiceInfoDocument document = new ServiceInfoDocument();
+    document.setInstructions(plan.getDocument());
+    document.setVersion(plan.getVersion());
+    return document;
+  }
+
+  private String load() throws IOException {
+    String instructions = null;
     final Session session = HibernateUtil.getSessionFactory().openSession();
     try {
       Transaction trans = session.beginTransaction();
@@ -32,7 +42,7 @@ public class StandardServiceInfoDocumentSupplier implements ServiceInfoDocumentS
         String body = systemPackage.getData().getSubString(1,
             Long.valueOf(systemPackage.getData().length()).intValue());
 
-        document.setInstructions(body);
+        instructions = body;
 
       }
       trans.commit();
@@ -42,6 +52,6 @@ public class StandardServiceInfoDocumentSupplier implements ServiceInfoDocumentS
     } finally {
       session.close();
     }
-    return document;
+    return instructions;
   }
 }
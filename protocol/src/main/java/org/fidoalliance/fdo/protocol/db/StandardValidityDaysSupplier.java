@@ -13,6 +13,10 @@ public class StandardValidityDaysSupplier implements ValidityDaysSupplier {
 
   @Override
   public Integer get() throws IOException {
+    return EntityCache.get(CertificateValidity.class, "days", this::load);
+  }
+
+  private Integer load() throws IOException {
 
     final Session session = HibernateUtil.getSessionFactory().openSession();
     try {
@@ -4,34 +4,28 @@
 package org.fidoalliance.fdo.protocol.db;
 
 import java.io.IOException;
-import org.fidoalliance.fdo.protocol.Mapper;
 import org.fidoalliance.fdo.protocol.ResourceNotFoundException;
 import org.fidoalliance.fdo.protocol.dispatch.VoucherQueryFunction;
 import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
 import org.fidoalliance.fdo.protocol.message.OwnershipVoucher;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
 
 public class StandardVoucherQueryFunction implements VoucherQueryFunction {
 
   @Override
   public OwnershipVoucher apply(String s) throws IOException {
-    final Session session = HibernateUtil.getSessionFactory().openSession();
-    try {
-      final Transaction trans = session.beginTransaction();
-      OnboardingVoucher onboardingVoucher =
-          session.find(OnboardingVoucher.class, s);
-
-      trans.commit();
-      if (onboardingVoucher == null) {
-        throw new ResourceNotFoundException("guid: " + s);
-      }
-      return Mapper.INSTANCE.readValue(
-          onboardingVoucher.getData(), OwnershipVoucher.class);
-
+    final OwnershipVoucher voucher = VoucherCache.get(s, () -> load(s));
+    if (voucher == null) {
+      throw new ResourceNotFoundException("guid: " + s);
+    }
+    return voucher;
+  }
 
-    } finally {
-      session.close();
+  private byte[] load(String guid) {
+    OnboardingVoucher onboardingVoucher =
+        HibernateUtil.getReadRouter().find(OnboardingVoucher.class, guid);
+    if (onboardingVoucher == null) {
+      return null;
     }
+    return onboardingVoucher.getData();
   }
 }
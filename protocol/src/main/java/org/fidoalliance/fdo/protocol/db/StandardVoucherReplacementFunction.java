@@ -40,36 +40,45 @@ public class StandardVoucherReplacementFunction implements VoucherReplacementFun
 
     replaceHeader.setGuid(Guid.fromRandomUuid());
 
+    final RendezvousInfo replacement = EntityCache.getCopy(OnboardingConfig.class,
+        "replacementRvInfo", RendezvousInfo.class, this::getReplacementRvInfo);
+    if (replacement == null) {
+      replaceHeader.setRendezvousInfo(header.getRendezvousInfo());
+    } else {
+      replaceHeader.setRendezvousInfo(replacement);
+    }
+
+    OwnerPublicKey ownerPublicKey = header.getPublicKey();
+    CryptoService cs = Config.getWorker(CryptoService.class);
+    KeyResolver resolver = Config.getWorker(ReplacementKeySupplier.class).get();
+    String alias = KeyResolver.getAlias(ownerPublicKey.getType(),
+        new AlgorithmFinder().getKeySizeType(cs.decodeKey(ownerPublicKey)));
+    OwnerPublicKey owner2Key = cs.encodeKey(ownerPublicKey.getType(),ownerPublicKey.getEnc(),
+        resolver.getCertificateChain(alias));
+    replaceHeader.setPublicKey(owner2Key);
+
+    return replaceHeader;
+  }
+
+  private RendezvousInfo getReplacementRvInfo() throws IOException {
     final Session session = HibernateUtil.getSessionFactory().openSession();
     try {
       final Transaction trans = session.beginTransaction();
       OnboardingConfig onboardConfig =
               session.get(OnboardingConfig.class, Long.valueOf(1));
 
-      if (onboardConfig.getReplacementRvInfo() == null) {
-        replaceHeader.setRendezvousInfo(header.getRendezvousInfo());
-      } else {
+      RendezvousInfo replacement = null;
+      if (onboardConfig.getReplacementRvInfo() != null) {
         String body = onboardConfig.getReplacementRvInfo().getSubString(1,
                 Long.valueOf(onboardConfig.getReplacementRvInfo().length()).intValue());
-        RendezvousInfo replacement = Mapper.INSTANCE.readJsonValue(body, RendezvousInfo.class);
-        replaceHeader.setRendezvousInfo(replacement);
+        replacement = Mapper.INSTANCE.readJsonValue(body, RendezvousInfo.class);
       }
       trans.commit();
+      return replacement;
     } catch (SQLException e) {
       throw new RuntimeException(e);
     } finally {
       session.close();
     }
-
-    OwnerPublicKey ownerPublicKey = header.getPublicKey();
-    CryptoService cs = Config.getWorker(CryptoService.class);
-    KeyResolver resolver = Config.getWorker(ReplacementKeySupplier.class).get();
-    String alias = KeyResolver.getAlias(ownerPublicKey.getType(),
-        new AlgorithmFinder().getKeySizeType(cs.decodeKey(ownerPublicKey)));
-    OwnerPublicKey owner2Key = cs.encodeKey(ownerPublicKey.getType(),ownerPublicKey.getEnc(),
-        resolver.getCertificateChain(alias));
-    replaceHeader.setPublicKey(owner2Key);
-
-    return replaceHeader;
   }
 }
@@ -0,0 +1,167 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.Date;
+
+/**
+ * The state of a TO0 run triggered through the api.
+ *
+ * <p>A job is replaced by a new instance on every change, so a job may be shared freely.</p>
+ */
+@JsonPropertyOrder({"guid", "state", "queuedOn", "startedOn", "finishedOn", "waitSeconds",
+    "error", "triggers"})
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class To0Job {
+
+  /**
+   * The job states.
+   */
+  public enum State {
+    @JsonProperty("queued")
+    QUEUED,
+    @JsonProperty("running")
+    RUNNING,
+    @JsonProperty("succeeded")
+    SUCCEEDED,
+    @JsonProperty("failed")
+    FAILED
+  }
+
+  @JsonProperty("guid")
+  private final String guid;
+
+  @JsonProperty("state")
+  private final State state;
+
+  @JsonProperty("queuedOn")
+  private final Date queuedOn;
+
+  @JsonProperty("startedOn")
+  private final Date startedOn;
+
+  @JsonProperty("finishedOn")
+  private final Date finishedOn;
+
+  @JsonProperty("waitSeconds")
+  private final Long waitSeconds;
+
+  @JsonProperty("error")
+  private final String error;
+
+  @JsonProperty("triggers")
+  private final int triggers;
+
+  private To0Job(String guid, State state, Date queuedOn, Date startedOn, Date finishedOn,
+      Long waitSeconds, String error, int triggers) {
+    this.guid = guid;
+    this.state = state;
+    this.queuedOn = queuedOn;
+    this.startedOn = startedOn;
+    this.finishedOn = finishedOn;
+    this.waitSeconds = waitSeconds;
+    this.error = error;
+    this.triggers = triggers;
+  }
+
+  /**
+   * Creates a queued job.
+   *
+   * @param guid The voucher guid.
+   * @param now  The time the job was queued.
+   * @return The job.
+   */
+  public static To0Job queued(String guid, Date now) {
+    return new To0Job(guid, State.QUEUED, now, null, null, null, null, 1);
+  }
+
+  /**
+   * Records another trigger that was coalesced into the job.
+   *
+   * @return The updated job.
+   */
+  public To0Job coalesced() {
+    return new To0Job(guid, state, queuedOn, startedOn, finishedOn, waitSeconds, error,
+        triggers + 1);
+  }
+
+  /**
+   * Records the start of the run.
+   *
+   * @param now The time the run started.
+   * @return The updated job.
+   */
+  public To0Job running(Date now) {
+    return new To0Job(guid, State.RUNNING, queuedOn, now, null, null, null, triggers);
+  }
+
+  /**
+   * Records a registration accepted by the rendezvous server.
+   *
+   * @param now         The time the run finished.
+   * @param waitSeconds The wait seconds accepted by the rendezvous server.
+   * @return The updated job.
+   */
+  public To0Job succeeded(Date now, long waitSeconds) {
+    return new To0Job(guid, State.SUCCEEDED, queuedOn, startedOn, now, waitSeconds, null,
+        triggers);
+  }
+
+  /**
+   * Records a failed run.
+   *
+   * @param now   The time the run finished.
+   * @param error Why the run failed.
+   * @return The updated job.
+   */
+  public To0Job failed(Date now, String error) {
+    return new To0Job(guid, State.FAILED, queuedOn, startedOn, now, null, error, triggers);
+  }
+
+  public String getGuid() {
+    return guid;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public Date getQueuedOn() {
+    return queuedOn;
+  }
+
+  public Date getStartedOn() {
+    return startedOn;
+  }
+
+  public Date getFinishedOn() {
+    return finishedOn;
+  }
+
+  public Long getWaitSeconds() {
+    return waitSeconds;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  public int getTriggers() {
+    return triggers;
+  }
+
+  /**
+   * Tells whether the job is queued or running.
+   *
+   * @return True if the job has not finished.
+   */
+  @JsonIgnore
+  public boolean isActive() {
+    return state == State.QUEUED || state == State.RUNNING;
+  }
+}
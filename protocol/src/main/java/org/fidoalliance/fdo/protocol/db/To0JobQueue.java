@@ -0,0 +1,295 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.LoggerService;
+import org.fidoalliance.fdo.protocol.StandardTo0Client;
+
+/**
+ * Runs the TO0 registrations triggered through the api and keeps their status.
+ *
+ * <p>Jobs run on owner: to0-jobs: threads threads, with up to queue-size jobs waiting. A
+ * trigger for a voucher whose job is queued or running is coalesced into that job. Finished
+ * jobs are kept for retention seconds so their outcome can be queried.</p>
+ */
+public class To0JobQueue implements Closeable {
+
+  private static final LoggerService logger = new LoggerService(To0JobQueue.class);
+
+  /**
+   * Registers a voucher with its rendezvous server.
+   */
+  public interface Registrar {
+
+    /**
+     * Runs TO0 for a voucher.
+     *
+     * @param guid The voucher guid.
+     * @return The wait seconds accepted by the rendezvous server.
+     * @throws IOException The registration was not accepted.
+     */
+    long register(String guid) throws IOException;
+  }
+
+  private static class RootConfig {
+
+    @JsonProperty("owner")
+    private OwnerConfig root = new OwnerConfig();
+  }
+
+  private static class OwnerConfig {
+
+    @JsonProperty("to0-jobs")
+    private JobConfig jobs = new JobConfig();
+  }
+
+  private static class JobConfig {
+
+    @JsonProperty("threads")
+    private int threads = 5;
+
+    @JsonProperty("queue-size")
+    private int queueSize = 1000;
+
+    @JsonProperty("retention")
+    private long retention = Duration.ofHours(1).toSeconds();
+  }
+
+  /**
+   * The current job of a guid, replaced when a new job is queued.
+   */
+  private static class Entry {
+
+    private To0Job job;
+
+    Entry(To0Job job) {
+      this.job = job;
+    }
+  }
+
+  private static To0JobQueue instance;
+
+  // guarded by entries
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  private final ThreadPoolExecutor executor;
+  private final Registrar registrar;
+  private final long retention;
+
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong succeeded = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+
+  /**
+   * Constructs a job queue.
+   *
+   * @param threads   The number of jobs run at once.
+   * @param queueSize The number of jobs that may wait for a thread.
+   * @param retention How long finished jobs are kept.
+   * @param registrar Runs TO0.
+   */
+  public To0JobQueue(int threads, int queueSize, Duration retention, Registrar registrar) {
+    final AtomicInteger count = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(Math.max(threads, 1), Math.max(threads, 1),
+        0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(queueSize, 1)), r -> {
+          Thread thread = new Thread(r, "to0-job-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    this.retention = retention.toMillis();
+    this.registrar = registrar;
+  }
+
+  /**
+   * Gets the job queue of the process, configured by owner: to0-jobs.
+   *
+   * @return The job queue.
+   */
+  public static synchronized To0JobQueue getInstance() {
+    if (instance == null) {
+      final RootConfig rootConfig = Config.getConfig(RootConfig.class);
+      final JobConfig config = rootConfig != null && rootConfig.root != null
+          && rootConfig.root.jobs != null ? rootConfig.root.jobs : new JobConfig();
+      instance = new To0JobQueue(config.threads, config.queueSize,
+          Duration.ofSeconds(config.retention), To0JobQueue::registerVoucher);
+    }
+    return instance;
+  }
+
+  private static long registerVoucher(String guid) throws IOException {
+    final StandardTo0Client to0Client = To0Scheduler.runTo0(guid);
+    if (!to0Client.isAccepted()) {
+      throw new IOException(to0Client.getError() != null
+          ? to0Client.getError() : "registration not accepted");
+    }
+    return to0Client.getAcceptedWaitSeconds();
+  }
+
+  /**
+   * Queues a TO0 run for a voucher.
+   *
+   * @param guid The voucher guid.
+   * @return The queued job, the job the trigger was coalesced into, or null if the voucher is
+   *     being registered by the scheduler.
+   * @throws RejectedExecutionException The queue is full.
+   */
+  public To0Job submit(String guid) {
+    final Date now = new Date(System.currentTimeMillis());
+    synchronized (entries) {
+      purge(now.getTime());
+
+      final Entry current = entries.get(guid);
+      // a cancelled job no longer holds the guid, the trigger is for the replaced voucher
+      if (current != null && current.job.isActive() && To0Registry.isInFlight(guid)) {
+        current.job = current.job.coalesced();
+        coalesced.incrementAndGet();
+        return current.job;
+      }
+
+      final To0Registry.Run run = To0Registry.acquire(guid);
+      if (run == null) {
+        return null;
+      }
+
+      final Entry entry = new Entry(To0Job.queued(guid, now));
+      try {
+        executor.execute(() -> run(entry, run));
+      } catch (RejectedExecutionException e) {
+        To0Registry.release(run);
+        rejected.incrementAndGet();
+        throw e;
+      }
+      // jobs are listed in the order they were queued
+      entries.remove(guid);
+      entries.put(guid, entry);
+      submitted.incrementAndGet();
+      return entry.job;
+    }
+  }
+
+  private void update(Entry entry, UnaryOperator<To0Job> change) {
+    synchronized (entries) {
+      entry.job = change.apply(entry.job);
+    }
+  }
+
+  private void run(Entry entry, To0Registry.Run run) {
+    final String guid = run.getGuid();
+    try {
+      if (!run.start()) {
+        update(entry, job -> job.failed(new Date(System.currentTimeMillis()), "cancelled"));
+        failed.incrementAndGet();
+        return;
+      }
+      update(entry, job -> job.running(new Date(System.currentTimeMillis())));
+      logger.info("Triggering TO0 for GUID: " + guid);
+
+      final long waitSeconds = registrar.register(guid);
+      if (run.isCancelled()) {
+        throw new IOException("cancelled");
+      }
+      update(entry, job -> job.succeeded(new Date(System.currentTimeMillis()), waitSeconds));
+      succeeded.incrementAndGet();
+    } catch (IOException | RuntimeException e) {
+      final String error = run.isCancelled() ? "cancelled" : e.getMessage();
+      logger.error("TO0 failed for GUID: " + guid + " " + error);
+      update(entry, job -> job.failed(new Date(System.currentTimeMillis()), error));
+      failed.incrementAndGet();
+    } finally {
+      run.finish();
+    }
+  }
+
+  private void purge(long now) {
+    for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+      final To0Job job = it.next().job;
+      if (!job.isActive() && job.getFinishedOn().getTime() + retention <= now) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Gets the job of a voucher.
+   *
+   * @param guid The voucher guid.
+   * @return The latest job, or null if none is kept.
+   */
+  public To0Job getJob(String guid) {
+    synchronized (entries) {
+      purge(System.currentTimeMillis());
+      final Entry entry = entries.get(guid);
+      return entry != null ? entry.job : null;
+    }
+  }
+
+  /**
+   * Gets the jobs kept, oldest first.
+   *
+   * @return The jobs.
+   */
+  public List<To0Job> getJobs() {
+    synchronized (entries) {
+      purge(System.currentTimeMillis());
+      final List<To0Job> jobs = new ArrayList<>(entries.size());
+      for (Entry entry : entries.values()) {
+        jobs.add(entry.job);
+      }
+      return jobs;
+    }
+  }
+
+  public int getQueuedCount() {
+    return executor.getQueue().size();
+  }
+
+  public int getRunningCount() {
+    return executor.getActiveCount();
+  }
+
+  public long getSubmittedCount() {
+    return submitted.get();
+  }
+
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  public long getSucceededCount() {
+    return succeeded.get();
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    executor.shutdown();
+  }
+}
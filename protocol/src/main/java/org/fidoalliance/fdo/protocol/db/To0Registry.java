@@ -0,0 +1,160 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide registry of the TO0 registrations that are queued or running, keyed by guid.
+ *
+ * <p>The scheduler and the TO0 api acquire a guid before starting a registration, so a voucher
+ * is never registered by two runs at once. When a voucher is replaced or deleted its run is
+ * cancelled, which interrupts the thread running it and releases the guid for a new run.</p>
+ */
+public final class To0Registry {
+
+  /**
+   * A queued or running registration.
+   */
+  public static final class Run {
+
+    private final String guid;
+    private Thread thread;
+    private boolean cancelled;
+
+    private Run(String guid) {
+      this.guid = guid;
+    }
+
+    public String getGuid() {
+      return guid;
+    }
+
+    /**
+     * Marks the calling thread as running the registration.
+     *
+     * @return False if the registration was cancelled before it started.
+     */
+    public synchronized boolean start() {
+      if (cancelled) {
+        return false;
+      }
+      thread = Thread.currentThread();
+      return true;
+    }
+
+    /**
+     * Marks the registration as no longer running and releases its guid.
+     */
+    public void finish() {
+      synchronized (this) {
+        thread = null;
+      }
+      release(this);
+    }
+
+    public synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    private synchronized void cancel() {
+      cancelled = true;
+      if (thread != null) {
+        thread.interrupt();
+      }
+    }
+  }
+
+  // guarded by runs
+  private static final Map<String, Run> runs = new HashMap<>();
+
+  private static final AtomicLong acquired = new AtomicLong();
+  private static final AtomicLong deduplicated = new AtomicLong();
+  private static final AtomicLong cancelled = new AtomicLong();
+
+  private To0Registry() {
+  }
+
+  /**
+   * Acquires a guid for a new registration.
+   *
+   * @param guid The voucher guid.
+   * @return The run, or null if a registration of the guid is already queued or running.
+   */
+  public static Run acquire(String guid) {
+    synchronized (runs) {
+      if (runs.containsKey(guid)) {
+        deduplicated.incrementAndGet();
+        return null;
+      }
+      final Run run = new Run(guid);
+      runs.put(guid, run);
+      acquired.incrementAndGet();
+      return run;
+    }
+  }
+
+  /**
+   * Releases the guid of a run that was never started.
+   *
+   * @param run The run.
+   */
+  public static void release(Run run) {
+    synchronized (runs) {
+      // a cancelled run has already been replaced
+      runs.remove(run.guid, run);
+    }
+  }
+
+  /**
+   * Cancels the registration of a voucher that was replaced or deleted.
+   *
+   * @param guid The voucher guid.
+   * @return True if a registration was cancelled.
+   */
+  public static boolean cancel(String guid) {
+    final Run run;
+    synchronized (runs) {
+      run = runs.remove(guid);
+    }
+    if (run == null) {
+      return false;
+    }
+    run.cancel();
+    cancelled.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Tells whether a registration of a voucher is queued or running.
+   *
+   * @param guid The voucher guid.
+   * @return True if the guid is in flight.
+   */
+  public static boolean isInFlight(String guid) {
+    synchronized (runs) {
+      return runs.containsKey(guid);
+    }
+  }
+
+  public static int getInFlightCount() {
+    synchronized (runs) {
+      return runs.size();
+    }
+  }
+
+  public static long getAcquiredCount() {
+    return acquired.get();
+  }
+
+  public static long getDeduplicatedCount() {
+    return deduplicated.get();
+  }
+
+  public static long getCancelledCount() {
+    return cancelled.get();
+  }
+}
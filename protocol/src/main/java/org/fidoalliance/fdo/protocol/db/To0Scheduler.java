@@ -4,43 +4,67 @@
 package org.fidoalliance.fdo.protocol.db;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Root;
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.HttpInstruction;
+import org.fidoalliance.fdo.protocol.HttpUtils;
 import org.fidoalliance.fdo.protocol.LoggerService;
 import org.fidoalliance.fdo.protocol.Mapper;
 import org.fidoalliance.fdo.protocol.StandardTo0Client;
+import org.fidoalliance.fdo.protocol.dispatch.VoucherQueryFunction;
 import org.fidoalliance.fdo.protocol.entity.OnboardingConfig;
-import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucherStatus;
 import org.fidoalliance.fdo.protocol.message.OwnershipVoucher;
+import org.fidoalliance.fdo.protocol.message.OwnershipVoucherHeader;
 import org.fidoalliance.fdo.protocol.message.To0d;
-import org.fidoalliance.fdo.protocol.message.To2AddressEntries;
-import org.hibernate.Session;
-
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+/**
+ * Registers vouchers with their rendezvous servers before the registrations expire.
+ *
+ * <p>Every interval seconds the vouchers whose registration expires within the margin, or
+ * within the margin of the next refresh, are added to a queue ordered by expiry less the
+ * margin, plus a random jitter so refreshes do not arrive at the rendezvous servers at once.
+ * Registrations are started as they become due, at most rate-limit per second per rendezvous
+ * host with bursts of up to burst. A failed registration is retried after min-backoff
+ * seconds, doubling on each failure up to max-backoff.</p>
+ *
+ * <p>At most queue-size started registrations wait for one of the thread-count threads. When
+ * the queue is full, dispatching stops until the next tick. A voucher that is already being
+ * registered, through the TO0 api for example, is skipped and found again by a later refresh
+ * if it is still due.</p>
+ */
 public class To0Scheduler implements Closeable {
 
   private static final LoggerService logger = new LoggerService(To0Scheduler.class);
 
-  private final ThreadPoolExecutor executor;
-  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  // number of due vouchers read per query
+  private static final int BATCH_SIZE = 100;
 
-  @Override
-  public void close() throws IOException {
-    if (executor != null) {
-      executor.shutdown();
-      scheduler.shutdown();
-    }
-  }
+  // how often due registrations are started
+  private static final long DISPATCH_PERIOD = 1;
 
   private static class RootConfig {
 
@@ -64,6 +88,27 @@ public class To0Scheduler implements Closeable {
     @JsonProperty("interval")
     private String interval;
 
+    @JsonProperty("margin")
+    private long margin = Duration.ofMinutes(10).toSeconds();
+
+    @JsonProperty("jitter")
+    private long jitter = 30;
+
+    @JsonProperty("rate-limit")
+    private double rateLimit = 5;
+
+    @JsonProperty("burst")
+    private int burst = 10;
+
+    @JsonProperty("min-backoff")
+    private long minBackoff = Duration.ofMinutes(1).toSeconds();
+
+    @JsonProperty("max-backoff")
+    private long maxBackoff = Duration.ofHours(1).toSeconds();
+
+    @JsonProperty("queue-size")
+    private int queueSize = 1000;
+
     public long getInterval() {
       Long intervalValue;
       try {
@@ -95,72 +140,407 @@ public class To0Scheduler implements Closeable {
     }
   }
 
+  /**
+   * A voucher waiting to be registered.
+   */
+  private static class Registration {
+
+    private final String guid;
+    private long due;
+    private int failures;
+
+    Registration(String guid, long due) {
+      this.guid = guid;
+      this.due = due;
+    }
+  }
 
   private static final To0SchedulerConfig config = Config.getConfig(
       RootConfig.class).config.scheduler;
 
+  private final Clock clock;
+  private final Executor executor;
+  private final Random random;
+  private final long interval;
+  private final ScheduledExecutorService scheduler;
+
+  // guarded by this
+  private final PriorityQueue<Registration> queue =
+      new PriorityQueue<>(Comparator.comparingLong(r -> r.due));
+  private final Map<String, Registration> pending = new HashMap<>();
+  private final Map<String, TokenBucket> buckets = new HashMap<>();
+
+  private final AtomicLong started = new AtomicLong();
+  private final AtomicLong succeeded = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong throttled = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong cancelled = new AtomicLong();
+
+  /**
+   * Worker Constructor.
+   */
+  public To0Scheduler() {
+    this(Clock.systemUTC(), new ThreadPoolExecutor(config.getThreadCount(),
+            config.getThreadCount(), 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(config.queueSize, 1))),
+        new Random(), Executors.newSingleThreadScheduledExecutor());
+
+    scheduler.scheduleWithFixedDelay(this::onInterval, interval, interval, TimeUnit.SECONDS);
+    scheduler.scheduleWithFixedDelay(this::onDispatch, DISPATCH_PERIOD, DISPATCH_PERIOD,
+        TimeUnit.SECONDS);
+    logger.info("To0Scheduler will run every " + interval + " seconds");
+  }
+
+  /**
+   * Constructs a scheduler that is driven by calling refresh and dispatch.
+   *
+   * @param clock    The clock that decides when registrations are due.
+   * @param executor Runs the registrations.
+   * @param random   The source of the jitter.
+   */
+  protected To0Scheduler(Clock clock, Executor executor, Random random) {
+    this(clock, executor, random, null);
+  }
+
+  private To0Scheduler(Clock clock, Executor executor, Random random,
+      ScheduledExecutorService scheduler) {
+    this.clock = clock;
+    this.executor = executor;
+    this.random = random;
+    this.interval = config.getInterval();
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+    if (executor instanceof ExecutorService) {
+      ((ExecutorService) executor).shutdown();
+    }
+  }
+
   private void onInterval() {
+    try {
+      refresh();
+      logger.info("To0Scheduler started " + started.get() + ", succeeded " + succeeded.get()
+          + ", failed " + failed.get() + ", throttled " + throttled.get() + ", rejected "
+          + rejected.get() + ", skipped " + skipped.get() + ", cancelled " + cancelled.get());
+    } catch (IOException | RuntimeException e) {
+      logger.error("T0 scheduler failure due to " + e.getMessage());
+    }
+  }
 
-    final Session session = HibernateUtil.getSessionFactory().openSession();
+  private void onDispatch() {
     try {
+      dispatch();
+    } catch (RuntimeException e) {
+      logger.error("T0 scheduler failure due to " + e.getMessage());
+    }
+  }
 
-      CriteriaBuilder cb = session.getCriteriaBuilder();
-      CriteriaQuery<OnboardingVoucher> cq = cb.createQuery(OnboardingVoucher.class);
-      Root<OnboardingVoucher> rootEntry = cq.from(OnboardingVoucher.class);
-      CriteriaQuery<OnboardingVoucher> all = cq.select(rootEntry);
+  private long jitter() {
+    return config.jitter > 0 ? (long) (random.nextDouble() * config.jitter * 1000) : 0;
+  }
 
-      TypedQuery<OnboardingVoucher> allQuery = session.createQuery(all);
-      List<OnboardingVoucher> list = allQuery.getResultList();
-      Date now = new Date(System.currentTimeMillis());
-      To2AddressEntries addressEntries = new To2BlobSupplier().get();
-      OnboardingConfig onboardConfig = new OnboardConfigSupplier().get();
-      for (OnboardingVoucher onboardingVoucher : list) {
-        if ((onboardingVoucher.getTo0Expiry() == null
-            || now.after(onboardingVoucher.getTo0Expiry()))
-                && onboardingVoucher.getTo2CompletedOn() == null) {
+  private long backoff(int failures) {
+    final long max = Duration.ofSeconds(config.maxBackoff).toMillis();
+    long delay = Duration.ofSeconds(config.minBackoff).toMillis();
+    for (int i = 1; i < failures && delay < max; i++) {
+      delay *= 2;
+    }
+    return Math.min(delay, max);
+  }
 
-          OwnershipVoucher voucher = Mapper.INSTANCE.readValue(onboardingVoucher.getData(),
-              OwnershipVoucher.class);
+  /**
+   * Queues the vouchers whose registration expires before the next refresh is due.
+   *
+   * @throws IOException An error occurred.
+   */
+  public void refresh() throws IOException {
+    final long now = clock.millis();
+    final long margin = Duration.ofSeconds(config.margin).toMillis();
+    final Map<String, Date> due = findDue(
+        new Date(now + margin + Duration.ofSeconds(interval).toMillis()));
+
+    int added = 0;
+    synchronized (this) {
+      for (Map.Entry<String, Date> entry : due.entrySet()) {
+        if (pending.containsKey(entry.getKey())) {
+          // already queued, running or backing off
+          continue;
+        }
+        long start = now;
+        if (entry.getValue() != null) {
+          start = Math.max(now, entry.getValue().getTime() - margin);
+        }
+        final Registration registration = new Registration(entry.getKey(), start + jitter());
+        pending.put(registration.guid, registration);
+        queue.add(registration);
+        added++;
+      }
+    }
+    if (added > 0) {
+      logger.info("To0Scheduler queued " + added + " vouchers, " + getPendingCount()
+          + " pending");
+    }
+  }
+
+  /**
+   * Starts the registrations that are due, within the rate limit of their rendezvous host.
+   */
+  public void dispatch() {
+    final long now = clock.millis();
+    while (true) {
+      final Registration registration;
+      synchronized (this) {
+        registration = queue.peek();
+        if (registration == null || registration.due > now) {
+          return;
+        }
+        queue.poll();
+      }
 
-          StandardTo0Client to0Client = new StandardTo0Client();
+      String host;
+      try {
+        host = getRendezvousHost(registration.guid);
+      } catch (IOException | RuntimeException e) {
+        logger.error("TO0 skipped for GUID: " + registration.guid + " " + e.getMessage());
+        host = null;
+      }
 
-          To0d to0d = new To0d();
-          to0d.setVoucher(voucher);
+      if (host == null) {
+        // no longer needs registering
+        synchronized (this) {
+          pending.remove(registration.guid);
+        }
+        continue;
+      }
 
-          to0Client.setAddressEntries(addressEntries);
+      final long wait;
+      synchronized (this) {
+        wait = buckets.computeIfAbsent(host,
+            k -> new TokenBucket(config.rateLimit, config.burst, now)).tryAcquire(now);
+        if (wait > 0) {
+          registration.due = now + wait;
+          queue.add(registration);
+        }
+      }
+      if (wait > 0) {
+        throttled.incrementAndGet();
+        continue;
+      }
 
-          to0d.setWaitSeconds(onboardConfig.getWaitSeconds());
-          to0Client.setTo0d(to0d);
+      final To0Registry.Run run = To0Registry.acquire(registration.guid);
+      if (run == null) {
+        // already being registered, a later refresh queues it again if it is still due
+        synchronized (this) {
+          pending.remove(registration.guid, registration);
+        }
+        skipped.incrementAndGet();
+        continue;
+      }
 
-          executor.submit(to0Client);
+      try {
+        executor.execute(() -> run(registration, run));
+      } catch (RejectedExecutionException e) {
+        To0Registry.release(run);
+        synchronized (this) {
+          registration.due = now + Duration.ofSeconds(DISPATCH_PERIOD).toMillis() + jitter();
+          queue.add(registration);
         }
+        rejected.incrementAndGet();
+        // the queue is full, the rest waits for the next tick
+        return;
       }
+      started.incrementAndGet();
+    }
+  }
 
-    } catch (IOException e) {
-      logger.error("T0 scheduler failure due to " + e.getMessage());
+  private void run(Registration registration, To0Registry.Run run) {
+    boolean accepted = false;
+    try {
+      if (run.start()) {
+        accepted = register(registration.guid);
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.error("TO0 failed for GUID: " + registration.guid + " " + e.getMessage());
     } finally {
-      session.close();
+      run.finish();
     }
 
-    executor.submit(new StandardTo0Client());
+    if (run.isCancelled()) {
+      // the voucher was replaced or deleted, a later refresh finds the current one
+      synchronized (this) {
+        pending.remove(registration.guid, registration);
+      }
+      cancelled.incrementAndGet();
+      return;
+    }
+
+    synchronized (this) {
+      if (accepted) {
+        pending.remove(registration.guid);
+      } else {
+        registration.failures++;
+        registration.due = clock.millis() + backoff(registration.failures) + jitter();
+        queue.add(registration);
+      }
+    }
+    if (accepted) {
+      succeeded.incrementAndGet();
+    } else {
+      failed.incrementAndGet();
+    }
   }
 
   /**
-   * Worker Constructor.
+   * Finds the vouchers to register.
+   *
+   * @param before Registrations that expire before this time are due.
+   * @return The guids of the due vouchers and when their registration expires, or null if
+   *     they are not registered.
+   * @throws IOException An error occurred.
    */
-  public To0Scheduler() {
+  protected Map<String, Date> findDue(Date before) throws IOException {
+
+    // only due vouchers are read, a page at a time by guid
+    final Map<String, Date> due = new LinkedHashMap<>();
+    try (StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession()) {
+      String after = "";
+      for (; ; ) {
+        final Transaction trans = session.beginTransaction();
+        final List<Object[]> batch = session.createQuery(
+                "select v.guid, v.to0Expiry from OnboardingVoucherStatus v"
+                    + " where v.to2CompletedOn is null"
+                    + " and (v.to0Expiry is null or v.to0Expiry < :before)"
+                    + " and v.guid > :after order by v.guid", Object[].class)
+            .setParameter("before", before)
+            .setParameter("after", after)
+            .setMaxResults(BATCH_SIZE)
+            .getResultList();
+        trans.commit();
+
+        for (Object[] row : batch) {
+          due.put((String) row[0], (Date) row[1]);
+        }
 
-    executor =
-        (ThreadPoolExecutor) Executors.newFixedThreadPool(config.getThreadCount());
+        if (batch.size() < BATCH_SIZE) {
+          break;
+        }
+        after = (String) batch.get(batch.size() - 1)[0];
+      }
+    }
+    return due;
+  }
+
+  /**
+   * Gets the rendezvous host a voucher registers with.
+   *
+   * @param guid The voucher guid.
+   * @return The host and port of the first owner rendezvous instruction, or null if the
+   *     voucher no longer needs registering.
+   * @throws IOException An error occurred.
+   */
+  protected String getRendezvousHost(String guid) throws IOException {
+    final OnboardingVoucherStatus status =
+        HibernateUtil.getReadRouter().find(OnboardingVoucherStatus.class, guid);
+    if (status == null || status.getTo2CompletedOn() != null) {
+      return null;
+    }
+    if (status.getTo0Expiry() != null && status.getTo0Expiry().getTime()
+        > clock.millis() + Duration.ofSeconds(config.margin).toMillis()) {
+      // registered since it was queued
+      return null;
+    }
 
-    Long interval = config.getInterval();
-    scheduler.scheduleWithFixedDelay(new Runnable() {
-      @Override
-      public void run() {
-        onInterval();
+    final OwnershipVoucher voucher = Config.getWorker(VoucherQueryFunction.class).apply(guid);
+    final OwnershipVoucherHeader header =
+        Mapper.INSTANCE.readValue(voucher.getHeader(), OwnershipVoucherHeader.class);
+    for (HttpInstruction instruction :
+        HttpUtils.getInstructions(header.getRendezvousInfo(), false, true)) {
+      if (!instruction.isRendezvousBypass()) {
+        final URI uri = URI.create(instruction.getAddress());
+        return uri.getHost() + ":" + uri.getPort();
       }
-    }, interval, interval, TimeUnit.SECONDS);
+    }
+    return "";
+  }
 
-    logger.info("To0Scheduler will run every " + interval + " seconds");
+  /**
+   * Registers a voucher with its rendezvous server.
+   *
+   * @param guid The voucher guid.
+   * @return True if the rendezvous server accepted the registration.
+   * @throws IOException An error occurred.
+   */
+  protected boolean register(String guid) throws IOException {
+    final StandardTo0Client to0Client = runTo0(guid);
+    if (!to0Client.isAccepted() && to0Client.getError() != null) {
+      logger.warn("TO0 not accepted for GUID: " + guid + " " + to0Client.getError());
+    }
+    return to0Client.isAccepted();
+  }
+
+  /**
+   * Runs TO0 for a voucher with the configured wait seconds and TO2 addresses.
+   *
+   * @param guid The voucher guid.
+   * @return The finished client, holding the outcome of the run.
+   * @throws IOException An error occurred.
+   */
+  static StandardTo0Client runTo0(String guid) throws IOException {
+    final OwnershipVoucher voucher = Config.getWorker(VoucherQueryFunction.class).apply(guid);
+    final OnboardingConfig onboardConfig = new OnboardConfigSupplier().get();
+
+    final To0d to0d = new To0d();
+    to0d.setVoucher(voucher);
+    to0d.setWaitSeconds(onboardConfig.getWaitSeconds());
+
+    final StandardTo0Client to0Client = new StandardTo0Client();
+    to0Client.setAddressEntries(new To2BlobSupplier().get());
+    to0Client.setTo0d(to0d);
+    to0Client.run();
+    return to0Client;
+  }
+
+  /**
+   * Gets the number of vouchers queued, running or backing off.
+   *
+   * @return The pending count.
+   */
+  public synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  public long getStartedCount() {
+    return started.get();
+  }
+
+  public long getSucceededCount() {
+    return succeeded.get();
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  public long getThrottledCount() {
+    return throttled.get();
+  }
+
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  public long getSkippedCount() {
+    return skipped.get();
+  }
+
+  public long getCancelledCount() {
+    return cancelled.get();
   }
 }
@@ -20,6 +20,11 @@ public class To2BlobSupplier implements FailableSupplier<To2AddressEntries, IOEx
 
   @Override
   public To2AddressEntries get() throws IOException {
+    return EntityCache.getCopy(OnboardingConfig.class, "rvBlob", To2AddressEntries.class,
+        this::load);
+  }
+
+  private To2AddressEntries load() throws IOException {
     final Session session = HibernateUtil.getSessionFactory().openSession();
     try {
       final Transaction trans = session.beginTransaction();
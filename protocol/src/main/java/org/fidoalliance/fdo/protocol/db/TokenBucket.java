@@ -0,0 +1,50 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+/**
+ * Token bucket rate limiter driven by caller supplied time.
+ */
+public class TokenBucket {
+
+  private final double ratePerMilli;
+  private final double capacity;
+  private double tokens;
+  private long updated;
+
+  /**
+   * Constructs a full bucket.
+   *
+   * @param ratePerSecond The tokens added per second, or 0 for no limit.
+   * @param burst         The most tokens the bucket holds.
+   * @param now           The current time in milliseconds.
+   */
+  public TokenBucket(double ratePerSecond, int burst, long now) {
+    this.ratePerMilli = ratePerSecond / 1000;
+    this.capacity = Math.max(burst, 1);
+    this.tokens = capacity;
+    this.updated = now;
+  }
+
+  /**
+   * Takes a token if one is available.
+   *
+   * @param now The current time in milliseconds.
+   * @return 0 if a token was taken, otherwise the milliseconds until one is available.
+   */
+  public synchronized long tryAcquire(long now) {
+    if (ratePerMilli <= 0) {
+      return 0;
+    }
+    if (now > updated) {
+      tokens = Math.min(capacity, tokens + (now - updated) * ratePerMilli);
+      updated = now;
+    }
+    if (tokens >= 1) {
+      tokens -= 1;
+      return 0;
+    }
+    return Math.max(1, (long) Math.ceil((1 - tokens) / ratePerMilli));
+  }
+}
@@ -3,15 +3,13 @@
 
 package org.fidoalliance.fdo.protocol.db;
 
-import jakarta.persistence.TypedQuery;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Root;
 import java.io.IOException;
 import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.fidoalliance.fdo.protocol.Config;
 import org.fidoalliance.fdo.protocol.Mapper;
 import org.fidoalliance.fdo.protocol.dispatch.CryptoService;
@@ -27,8 +25,27 @@ import org.fidoalliance.fdo.protocol.message.OwnershipVoucherHeader;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 
+/**
+ * Accepts TO0 requests from owners whose key is allowed and neither the key nor the
+ * device guid is denied.
+ *
+ * <p>The allow and deny lists are held as hash sets, reloaded after the AllowList and
+ * DenyList APIs write them. Lists larger than {@link #MAX_CACHED} are not held in memory
+ * and each hash is looked up by primary key instead.</p>
+ */
 public class TrustedRendezvousAcceptFunction implements RendezvousAcceptFunction {
 
+  private static final int MAX_CACHED = 100000;
+
+  /**
+   * The allowed and denied hashes.
+   */
+  private static final class HashLists {
+
+    private final Set<String> allowed = new HashSet<>();
+    private final Set<String> denied = new HashSet<>();
+  }
+
   private List<String> getKeyHashes(OwnershipVoucher voucher) throws IOException {
 
     List<String> hashList = new ArrayList<>();
@@ -49,56 +66,79 @@ public class TrustedRendezvousAcceptFunction implements RendezvousAcceptFunction
     return hashList;
   }
 
-  @Override
-  public Boolean apply(OwnershipVoucher voucher) throws IOException {
-
-    boolean trusted = false;
-    Session session = HibernateUtil.getSessionFactory().openSession();
+  private HashLists load() throws IOException {
+    final Session session = HibernateUtil.getSessionFactory().openSession();
     try {
-      Transaction trans = session.beginTransaction();
-      CriteriaBuilder cb = session.getCriteriaBuilder();
-      CriteriaQuery<AllowDenyList> cq = cb.createQuery(AllowDenyList.class);
-      Root<AllowDenyList> rootEntry = cq.from(AllowDenyList.class);
-      CriteriaQuery<AllowDenyList> all = cq.select(rootEntry);
-
-      TypedQuery<AllowDenyList> allQuery = session.createQuery(all);
-
-      OwnershipVoucherHeader header = Mapper.INSTANCE.readValue(
-          voucher.getHeader(), OwnershipVoucherHeader.class);
-      String uuid = header.getGuid().toString();
-      List<String> hashes = getKeyHashes(voucher);
-
-      //look for allowed
-      for (AllowDenyList adList : allQuery.getResultList()) {
-
-        for (String hash : hashes) {
-          if (adList.getHash().equals(hash) && adList.isAllowed()) {
-            trusted = true;
-            break;
-          }
-        }
-      }
+      final Transaction trans = session.beginTransaction();
+      final List<AllowDenyList> rows = session.createQuery(
+              "from AllowDenyList", AllowDenyList.class)
+          .setMaxResults(MAX_CACHED + 1)
+          .getResultList();
+      trans.commit();
 
-      //look for denied
-      for (AllowDenyList adList : allQuery.getResultList()) {
-        if (adList.getHash().equals(uuid) && !adList.isAllowed()) {
-          trusted = false;
-          break;
+      if (rows.size() > MAX_CACHED) {
+        return null;
+      }
+      final HashLists lists = new HashLists();
+      for (AllowDenyList row : rows) {
+        if (row.isAllowed()) {
+          lists.allowed.add(row.getHash());
+        } else {
+          lists.denied.add(row.getHash());
         }
+      }
+      return lists;
+    } finally {
+      session.close();
+    }
+  }
 
+  private boolean isTrusted(HashLists lists, String uuid, List<String> hashes) {
+    if (lists.denied.contains(uuid)) {
+      return false;
+    }
+    boolean trusted = false;
+    for (String hash : hashes) {
+      if (lists.denied.contains(hash)) {
+        return false;
+      }
+      trusted |= lists.allowed.contains(hash);
+    }
+    return trusted;
+  }
 
-        for (String hash : hashes) {
-          if (adList.getHash().equals(hash) && !adList.isAllowed()) {
-            trusted = false;
-            break;
-          }
+  private boolean isTrusted(String uuid, List<String> hashes) {
+    final Session session = HibernateUtil.getSessionFactory().openSession();
+    try {
+      final Transaction trans = session.beginTransaction();
+      final HashLists lists = new HashLists();
+      final List<String> keys = new ArrayList<>(hashes);
+      keys.add(uuid);
+      for (String key : keys) {
+        AllowDenyList row = session.find(AllowDenyList.class, key);
+        if (row != null) {
+          (row.isAllowed() ? lists.allowed : lists.denied).add(key);
         }
       }
       trans.commit();
+      return isTrusted(lists, uuid, hashes);
     } finally {
       session.close();
     }
+  }
 
-    return trusted;
+  @Override
+  public Boolean apply(OwnershipVoucher voucher) throws IOException {
+
+    OwnershipVoucherHeader header = Mapper.INSTANCE.readValue(
+        voucher.getHeader(), OwnershipVoucherHeader.class);
+    String uuid = header.getGuid().toString();
+    List<String> hashes = getKeyHashes(voucher);
+
+    final HashLists lists = EntityCache.get(AllowDenyList.class, "lists", this::load);
+    if (lists == null) {
+      return isTrusted(uuid, hashes);
+    }
+    return isTrusted(lists, uuid, hashes);
   }
 }
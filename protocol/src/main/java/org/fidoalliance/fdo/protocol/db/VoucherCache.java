@@ -0,0 +1,184 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.function.FailableSupplier;
+import org.fidoalliance.fdo.protocol.Config;
+import org.fidoalliance.fdo.protocol.Mapper;
+import org.fidoalliance.fdo.protocol.message.OwnershipVoucher;
+
+/**
+ * Process local, least recently used cache of decoded ownership vouchers keyed by guid.
+ *
+ * <p>The cache is bounded by the total encoded size of the vouchers it holds, set by
+ * owner: voucher-cache: max-bytes (0 disables it). Writers of a voucher must invalidate
+ * its guid once the write is committed. Cached vouchers are shared between threads and
+ * must not be modified by callers.</p>
+ */
+public final class VoucherCache {
+
+  private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+  private static class RootConfig {
+
+    @JsonProperty("owner")
+    private OwnerConfig owner = new OwnerConfig();
+  }
+
+  private static class OwnerConfig {
+
+    @JsonProperty("voucher-cache")
+    private CacheConfig cache = new CacheConfig();
+  }
+
+  private static class CacheConfig {
+
+    @JsonProperty("max-bytes")
+    private long maxBytes = DEFAULT_MAX_BYTES;
+  }
+
+  private static class Entry {
+
+    private final OwnershipVoucher voucher;
+    private final int size;
+
+    Entry(OwnershipVoucher voucher, int size) {
+      this.voucher = voucher;
+      this.size = size;
+    }
+  }
+
+  private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private static long maxBytes = getConfiguredMaxBytes();
+  private static long size;
+  private static long generation;
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final AtomicLong evictions = new AtomicLong();
+
+  private VoucherCache() {
+  }
+
+  private static long getConfiguredMaxBytes() {
+    final RootConfig config = Config.getConfig(RootConfig.class);
+    if (config == null || config.owner == null || config.owner.cache == null) {
+      return DEFAULT_MAX_BYTES;
+    }
+    return config.owner.cache.maxBytes;
+  }
+
+  /**
+   * Gets a decoded voucher, loading and decoding it on a miss.
+   *
+   * @param guid   The voucher guid.
+   * @param loader Loads the encoded voucher, or returns null if it does not exist.
+   * @return The decoded voucher or null if it does not exist.
+   * @throws IOException An error occurred.
+   */
+  public static OwnershipVoucher get(String guid,
+      FailableSupplier<byte[], IOException> loader) throws IOException {
+
+    final long loadGeneration;
+    synchronized (entries) {
+      final Entry entry = entries.get(guid);
+      if (entry != null) {
+        hits.incrementAndGet();
+        return entry.voucher;
+      }
+      loadGeneration = generation;
+    }
+
+    misses.incrementAndGet();
+    final byte[] data = loader.get();
+    if (data == null) {
+      return null;
+    }
+    final OwnershipVoucher voucher = Mapper.INSTANCE.readValue(data, OwnershipVoucher.class);
+
+    synchronized (entries) {
+      // an invalidation during the load means the loaded voucher may be stale
+      if (loadGeneration == generation && data.length <= maxBytes) {
+        final Entry previous = entries.put(guid, new Entry(voucher, data.length));
+        if (previous != null) {
+          size -= previous.size;
+        }
+        size += data.length;
+        evict();
+      }
+    }
+    return voucher;
+  }
+
+  private static void evict() {
+    final Iterator<Entry> it = entries.values().iterator();
+    while (size > maxBytes && it.hasNext()) {
+      size -= it.next().size;
+      it.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Discards a cached voucher.
+   *
+   * @param guid The guid of the voucher that was written or deleted.
+   */
+  public static void invalidate(String guid) {
+    synchronized (entries) {
+      generation++;
+      final Entry entry = entries.remove(guid);
+      if (entry != null) {
+        size -= entry.size;
+      }
+    }
+  }
+
+  /**
+   * Discards all cached vouchers.
+   */
+  public static void invalidateAll() {
+    synchronized (entries) {
+      generation++;
+      entries.clear();
+      size = 0;
+    }
+  }
+
+  /**
+   * Sets the size bound, evicting vouchers as needed.
+   *
+   * @param bytes The maximum total encoded size of the cached vouchers.
+   */
+  public static void setMaxBytes(long bytes) {
+    synchronized (entries) {
+      maxBytes = bytes;
+      evict();
+    }
+  }
+
+  public static long getSize() {
+    synchronized (entries) {
+      return size;
+    }
+  }
+
+  public static long getHitCount() {
+    return hits.get();
+  }
+
+  public static long getMissCount() {
+    return misses.get();
+  }
+
+  public static long getEvictionCount() {
+    return evictions.get();
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.Date;
+import java.util.List;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+/**
+ * Projection of the onboarding voucher columns needed for listing.
+ *
+ * <p>Loaded without the voucher LOBs.</p>
+ */
+@JsonPropertyOrder({"guid", "createdOn", "to0Expiry", "to2CompletedOn"})
+public class VoucherSummary {
+
+  @JsonProperty("guid")
+  private final String guid;
+
+  @JsonProperty("createdOn")
+  private final Date createdOn;
+
+  @JsonProperty("to0Expiry")
+  private final Date to0Expiry;
+
+  @JsonProperty("to2CompletedOn")
+  private final Date to2CompletedOn;
+
+  /**
+   * Constructs a summary, used by the select new projection.
+   *
+   * @param guid           The voucher guid.
+   * @param createdOn      When the voucher was created.
+   * @param to0Expiry      When the TO0 registration expires.
+   * @param to2CompletedOn When TO2 completed.
+   */
+  public VoucherSummary(String guid, Date createdOn, Date to0Expiry, Date to2CompletedOn) {
+    this.guid = guid;
+    this.createdOn = createdOn;
+    this.to0Expiry = to0Expiry;
+    this.to2CompletedOn = to2CompletedOn;
+  }
+
+  public String getGuid() {
+    return guid;
+  }
+
+  public Date getCreatedOn() {
+    return createdOn;
+  }
+
+  public Date getTo0Expiry() {
+    return to0Expiry;
+  }
+
+  public Date getTo2CompletedOn() {
+    return to2CompletedOn;
+  }
+
+  /**
+   * Gets a page of voucher summaries ordered by guid.
+   *
+   * @param session   The session to use.
+   * @param after     The keyset cursor, the last guid of the previous page or null.
+   * @param limit     The maximum number of summaries to return.
+   * @param completed Filter on TO2 completion, or null for all vouchers.
+   * @param since     Only vouchers created on or after this time, or null for all vouchers.
+   * @return The page of summaries.
+   */
+  public static List<VoucherSummary> getPage(Session session, String after, int limit,
+      Boolean completed, Date since) {
+
+    final StringBuilder hql = new StringBuilder("select new ")
+        .append(VoucherSummary.class.getName())
+        .append("(v.guid, v.createdOn, v.to0Expiry, v.to2CompletedOn)")
+        .append(" from OnboardingVoucher v where 1 = 1");
+    if (after != null) {
+      hql.append(" and v.guid > :after");
+    }
+    if (completed != null) {
+      hql.append(completed ? " and v.to2CompletedOn is not null"
+          : " and v.to2CompletedOn is null");
+    }
+    if (since != null) {
+      hql.append(" and v.createdOn >= :since");
+    }
+    hql.append(" order by v.guid");
+
+    final Query<VoucherSummary> query = session.createQuery(hql.toString(),
+        VoucherSummary.class);
+    if (after != null) {
+      query.setParameter("after", after);
+    }
+    if (since != null) {
+      query.setParameter("since", since);
+    }
+    return query.setMaxResults(limit).setReadOnly(true).getResultList();
+  }
+}
@@ -14,6 +14,7 @@ import java.security.cert.Certificate;
 import javax.crypto.SecretKey;
 
 import org.fidoalliance.fdo.protocol.EpidService;
+import org.fidoalliance.fdo.protocol.HashSink;
 import org.fidoalliance.fdo.protocol.InvalidMessageException;
 import org.fidoalliance.fdo.protocol.KeyExchangeResult;
 import org.fidoalliance.fdo.protocol.message.AnyType;
@@ -92,6 +93,23 @@ public interface CryptoService {
    */
   Hash hash(HashType hashType, byte[] secret, byte[] data) throws IOException;
 
+  /**
+   * Creates a sink that computes a SHA hash of the data written to it.
+   *
+   * @param hashType The hash algorithm to use.
+   * @return A HashSink.
+   */
+  HashSink getHashSink(HashType hashType) throws IOException;
+
+  /**
+   * Creates a sink that computes a HMAC of the data written to it.
+   *
+   * @param hashType The hash algorithm id to use
+   * @param secret   The Secret key.
+   * @return A HashSink.
+   */
+  HashSink getHashSink(HashType hashType, byte[] secret) throws IOException;
+
   /**
    * Encodes the key by its certificate.
    * @param keyType The PublicKeyType.
@@ -6,6 +6,7 @@ package org.fidoalliance.fdo.protocol.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
@@ -14,7 +15,9 @@ import java.util.Date;
 
 
 @Entity
-@Table(name = "onboarding_voucher")
+@Table(name = "onboarding_voucher",
+    indexes = {@Index(name = "idx_onboarding_voucher_due",
+        columnList = "to2_completed_on, to0_expiry")})
 public class OnboardingVoucher {
 
   @Id
@@ -0,0 +1,65 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import java.util.Date;
+import org.hibernate.annotations.DynamicUpdate;
+
+/**
+ * The status columns of an onboarding voucher, without the voucher LOBs.
+ *
+ * <p>Maps the onboarding_voucher table so status reads and updates never select or write
+ * the data and replacement columns. Rows are created through {@link OnboardingVoucher}.</p>
+ */
+@Entity
+@Table(name = "onboarding_voucher")
+@DynamicUpdate
+public class OnboardingVoucherStatus {
+
+  @Id
+  @Column(name = "guid")
+  private String guid;
+
+  @Column(name = "created_on", nullable = false, updatable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date createdOn;
+
+  @Column(name = "to2_completed_on")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date to2CompletedOn;
+
+  @Column(name = "to0_expiry")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date to0Expiry;
+
+  public String getGuid() {
+    return guid;
+  }
+
+  public Date getCreatedOn() {
+    return createdOn;
+  }
+
+  public Date getTo2CompletedOn() {
+    return to2CompletedOn;
+  }
+
+  public Date getTo0Expiry() {
+    return to0Expiry;
+  }
+
+  public void setTo2CompletedOn(Date to2CompletedOn) {
+    this.to2CompletedOn = to2CompletedOn;
+  }
+
+  public void setTo0Expiry(Date to0Expiry) {
+    this.to0Expiry = to0Expiry;
+  }
+}
@@ -10,6 +10,7 @@ import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.Version;
 import java.sql.Blob;
 import java.util.Date;
 
@@ -29,6 +30,10 @@ public class ProtocolSession {
   @Temporal(TemporalType.TIMESTAMP)
   private Date createdOn;
 
+  @Version
+  @Column(name = "version", nullable = false)
+  private long version;
+
   public String getName() {
     return name;
   }
@@ -41,6 +46,10 @@ public class ProtocolSession {
     return createdOn;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
   public void setName(String name) {
     this.name = name;
   }
@@ -52,4 +61,8 @@ public class ProtocolSession {
   public void setCreatedOn(Date date) {
     this.createdOn = date;
   }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
 }
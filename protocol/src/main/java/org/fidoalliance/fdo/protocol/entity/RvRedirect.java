@@ -6,6 +6,7 @@ package org.fidoalliance.fdo.protocol.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
@@ -13,7 +14,8 @@ import jakarta.persistence.TemporalType;
 import java.util.Date;
 
 @Entity
-@Table(name = "rv_redirect")
+@Table(name = "rv_redirect",
+    indexes = {@Index(name = "idx_rv_redirect_expiry", columnList = "expiry")})
 public class RvRedirect {
 
   @Id
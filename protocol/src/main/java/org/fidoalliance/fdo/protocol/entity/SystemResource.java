@@ -6,13 +6,17 @@ package org.fidoalliance.fdo.protocol.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import java.sql.Blob;
+import org.hibernate.annotations.DynamicUpdate;
 
 
 @Entity
-@Table(name = "system_resource")
+@Table(name = "system_resource",
+    indexes = {@Index(name = "idx_system_resource_sha384", columnList = "sha384")})
+@DynamicUpdate
 public class SystemResource {
 
   @Id
@@ -23,6 +27,12 @@ public class SystemResource {
   @Column(name = "data", nullable = false)
   private Blob data;
 
+  @Column(name = "data_size")
+  private Long size;
+
+  @Column(name = "sha384", length = 48)
+  private byte[] sha384;
+
   public String getName() {
     return name;
   }
@@ -31,6 +41,14 @@ public class SystemResource {
     return data;
   }
 
+  public Long getSize() {
+    return size;
+  }
+
+  public byte[] getSha384() {
+    return sha384;
+  }
+
   public void setName(String name) {
     this.name = name;
   }
@@ -38,4 +56,12 @@ public class SystemResource {
   public void setData(Blob data) {
     this.data = data;
   }
+
+  public void setSize(Long size) {
+    this.size = size;
+  }
+
+  public void setSha384(byte[] sha384) {
+    this.sha384 = sha384;
+  }
 }
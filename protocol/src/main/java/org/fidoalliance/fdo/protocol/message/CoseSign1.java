@@ -7,13 +7,16 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import org.fidoalliance.fdo.protocol.serialization.GenericArraySerializer;
+import org.fidoalliance.fdo.protocol.serialization.CoseSign1Deserializer;
+import org.fidoalliance.fdo.protocol.serialization.CoseSign1Serializer;
 import org.fidoalliance.fdo.protocol.serialization.TaggedItem;
 
 @JsonFormat(shape = JsonFormat.Shape.ARRAY)
 @JsonPropertyOrder({"protectedHeader", "unprotectedHeader", "payload", "signature"})
-@JsonSerialize(using = GenericArraySerializer.class)
+@JsonSerialize(using = CoseSign1Serializer.class)
+@JsonDeserialize(using = CoseSign1Deserializer.class)
 public class CoseSign1 implements TaggedItem {
 
   @JsonProperty("protectedHeader")
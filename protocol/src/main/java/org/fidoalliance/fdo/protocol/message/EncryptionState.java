@@ -6,12 +6,15 @@ package org.fidoalliance.fdo.protocol.message;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import org.fidoalliance.fdo.protocol.serialization.GenericArraySerializer;
+import org.fidoalliance.fdo.protocol.serialization.EncryptionStateDeserializer;
+import org.fidoalliance.fdo.protocol.serialization.EncryptionStateSerializer;
 
 @JsonFormat(shape = JsonFormat.Shape.ARRAY)
 @JsonPropertyOrder({"cipherSuite", "sek", "sev", "iv", "counter"})
-@JsonSerialize(using = GenericArraySerializer.class)
+@JsonSerialize(using = EncryptionStateSerializer.class)
+@JsonDeserialize(using = EncryptionStateDeserializer.class)
 public class EncryptionState {
 
   @JsonProperty("cipherSuite")
@@ -7,13 +7,16 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import org.fidoalliance.fdo.protocol.serialization.GenericArraySerializer;
+import org.fidoalliance.fdo.protocol.serialization.HelloDeviceDeserializer;
+import org.fidoalliance.fdo.protocol.serialization.HelloDeviceSerializer;
 
 @JsonFormat(shape = JsonFormat.Shape.ARRAY)
 @JsonPropertyOrder({"maxMessageSize", "guid", "proveTo2Ov", "kexSuiteName", "cipherSuiteType",
     "sigInfoA"})
-@JsonSerialize(using = GenericArraySerializer.class)
+@JsonSerialize(using = HelloDeviceSerializer.class)
+@JsonDeserialize(using = HelloDeviceDeserializer.class)
 public class HelloDevice {
 
   @JsonProperty("maxMessageSize")
@@ -0,0 +1,55 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.message;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The last request applied to a session and the response sent for it.
+ *
+ * <p>Kept in the session storage so a repeated request is answered with the same response
+ * instead of being applied twice.</p>
+ */
+public class LastExchange {
+
+  @JsonProperty("msgType")
+  private MsgType msgType;
+
+  @JsonProperty("requestHash")
+  private Hash requestHash;
+
+  @JsonProperty("response")
+  private byte[] response;
+
+  @JsonIgnore
+  public MsgType getMsgType() {
+    return msgType;
+  }
+
+  @JsonIgnore
+  public Hash getRequestHash() {
+    return requestHash;
+  }
+
+  @JsonIgnore
+  public byte[] getResponse() {
+    return response;
+  }
+
+  @JsonIgnore
+  public void setMsgType(MsgType msgType) {
+    this.msgType = msgType;
+  }
+
+  @JsonIgnore
+  public void setRequestHash(Hash requestHash) {
+    this.requestHash = requestHash;
+  }
+
+  @JsonIgnore
+  public void setResponse(byte[] response) {
+    this.response = response;
+  }
+}
@@ -7,12 +7,15 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import org.fidoalliance.fdo.protocol.serialization.GenericArraySerializer;
+import org.fidoalliance.fdo.protocol.serialization.OwnerServiceInfoDeserializer;
+import org.fidoalliance.fdo.protocol.serialization.OwnerServiceInfoSerializer;
 
 @JsonFormat(shape = JsonFormat.Shape.ARRAY)
 @JsonPropertyOrder({"more", "done", "svi"})
-@JsonSerialize(using = GenericArraySerializer.class)
+@JsonSerialize(using = OwnerServiceInfoSerializer.class)
+@JsonDeserialize(using = OwnerServiceInfoDeserializer.class)
 public class OwnerServiceInfo {
 
   @JsonProperty("more")
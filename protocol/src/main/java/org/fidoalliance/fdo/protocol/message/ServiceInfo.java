@@ -3,11 +3,14 @@
 
 package org.fidoalliance.fdo.protocol.message;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.util.LinkedList;
-import org.fidoalliance.fdo.protocol.serialization.GenericListSerializer;
+import org.fidoalliance.fdo.protocol.serialization.ServiceInfoDeserializer;
+import org.fidoalliance.fdo.protocol.serialization.ServiceInfoSerializer;
 
-@JsonSerialize(using = GenericListSerializer.class)
+@JsonSerialize(using = ServiceInfoSerializer.class)
+@JsonDeserialize(using = ServiceInfoDeserializer.class)
 public class ServiceInfo extends LinkedList<ServiceInfoKeyValuePair> {
 
 }
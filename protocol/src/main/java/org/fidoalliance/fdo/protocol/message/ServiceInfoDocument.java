@@ -17,6 +17,9 @@ public class ServiceInfoDocument {
   @JsonProperty("index")
   private int index;
 
+  @JsonProperty("version")
+  private String version;
+
 
   @JsonIgnore
   public String getInstructions() {
@@ -29,6 +32,11 @@ public class ServiceInfoDocument {
     return index;
   }
 
+  @JsonIgnore
+  public String getVersion() {
+    return version;
+  }
+
   @JsonIgnore
   public void setInstructions(String instructions) {
     this.instructions = instructions;
@@ -39,4 +47,9 @@ public class ServiceInfoDocument {
     this.index = index;
   }
 
+  @JsonIgnore
+  public void setVersion(String version) {
+    this.version = version;
+  }
+
 }
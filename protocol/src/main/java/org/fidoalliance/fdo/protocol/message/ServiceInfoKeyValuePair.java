@@ -7,12 +7,15 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import org.fidoalliance.fdo.protocol.serialization.GenericArraySerializer;
+import org.fidoalliance.fdo.protocol.serialization.ServiceInfoKeyValuePairDeserializer;
+import org.fidoalliance.fdo.protocol.serialization.ServiceInfoKeyValuePairSerializer;
 
 @JsonFormat(shape = JsonFormat.Shape.ARRAY)
 @JsonPropertyOrder({"key", "value"})
-@JsonSerialize(using = GenericArraySerializer.class)
+@JsonSerialize(using = ServiceInfoKeyValuePairSerializer.class)
+@JsonDeserialize(using = ServiceInfoKeyValuePairDeserializer.class)
 public class ServiceInfoKeyValuePair {
 
   @JsonProperty("key")
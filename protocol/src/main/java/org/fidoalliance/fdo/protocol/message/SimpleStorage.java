@@ -21,6 +21,8 @@ public class SimpleStorage {
 
   private final Map<String, Object> map;
 
+  private Long version;
+
   /**
    * Default constructor.
    */
@@ -65,5 +67,26 @@ public class SimpleStorage {
     return map.values();
   }
 
+  /**
+   * Gets the version of the stored session the storage was read from.
+   *
+   * <p>The version is not serialized, session managers use it to detect a concurrent
+   * update of the same session.</p>
+   *
+   * @return The session version or null if the storage was not read from a session.
+   */
+  @JsonIgnore
+  public Long getVersion() {
+    return version;
+  }
 
+  /**
+   * Sets the version of the stored session.
+   *
+   * @param version The session version.
+   */
+  @JsonIgnore
+  public void setVersion(Long version) {
+    this.version = version;
+  }
 }
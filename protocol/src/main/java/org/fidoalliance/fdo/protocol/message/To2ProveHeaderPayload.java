@@ -7,13 +7,16 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import org.fidoalliance.fdo.protocol.serialization.GenericArraySerializer;
+import org.fidoalliance.fdo.protocol.serialization.To2ProveHeaderPayloadDeserializer;
+import org.fidoalliance.fdo.protocol.serialization.To2ProveHeaderPayloadSerializer;
 
 @JsonFormat(shape = JsonFormat.Shape.ARRAY)
 @JsonPropertyOrder({"header", "numEntries", "hmac", "nonce", "sigInfoB", "kexA", "helloHash",
     "maxMessageSize"})
-@JsonSerialize(using = GenericArraySerializer.class)
+@JsonSerialize(using = To2ProveHeaderPayloadSerializer.class)
+@JsonDeserialize(using = To2ProveHeaderPayloadDeserializer.class)
 public class To2ProveHeaderPayload {
 
   @JsonProperty("header")
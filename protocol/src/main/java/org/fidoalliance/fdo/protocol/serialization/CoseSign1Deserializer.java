@@ -0,0 +1,54 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.CoseSign1;
+import org.fidoalliance.fdo.protocol.message.CoseUnprotectedHeader;
+
+public class CoseSign1Deserializer extends StdDeserializer<CoseSign1>
+    implements ResolvableDeserializer {
+
+  private JsonDeserializer<Object> headerDeserializer;
+
+  public CoseSign1Deserializer() {
+    this(null);
+  }
+
+  public CoseSign1Deserializer(Class<?> t) {
+    super(t);
+  }
+
+  @Override
+  public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+    headerDeserializer = SerializerUtils.findDeserializer(ctxt, CoseUnprotectedHeader.class);
+  }
+
+  @Override
+  public boolean isCachable() {
+    return true;
+  }
+
+  @Override
+  public CoseSign1 deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException {
+    SerializerUtils.readStartArray(jp);
+
+    CoseSign1 sign1 = new CoseSign1();
+    sign1.setProtectedHeader(SerializerUtils.readBinary(jp));
+    sign1.setUnprotectedHeader(
+        SerializerUtils.readObject(jp, ctxt, headerDeserializer, CoseUnprotectedHeader.class));
+    sign1.setPayload(SerializerUtils.readBinary(jp));
+    sign1.setSignature(SerializerUtils.readBinary(jp));
+
+    SerializerUtils.readEndArray(jp);
+    return sign1;
+  }
+}
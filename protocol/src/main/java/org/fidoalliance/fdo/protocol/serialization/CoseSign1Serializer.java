@@ -0,0 +1,41 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.CoseSign1;
+
+public class CoseSign1Serializer extends StdSerializer<CoseSign1> {
+
+  private static final int ELEMENT_COUNT = 4;
+
+  public CoseSign1Serializer() {
+    this(null);
+  }
+
+  public CoseSign1Serializer(Class<CoseSign1> t) {
+    super(t);
+  }
+
+  @Override
+  public void serialize(CoseSign1 value, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+
+    if (gen instanceof CBORGenerator) {
+      final CBORGenerator cbg = (CBORGenerator) gen;
+      cbg.writeTag(value.getTag().toInteger());
+    }
+
+    gen.writeStartArray(value, ELEMENT_COUNT);
+    SerializerUtils.writeBinary(gen, value.getProtectedHeader());
+    SerializerUtils.writeObject(gen, value.getUnprotectedHeader());
+    SerializerUtils.writeBinary(gen, value.getPayload());
+    SerializerUtils.writeBinary(gen, value.getSignature());
+    gen.writeEndArray();
+  }
+}
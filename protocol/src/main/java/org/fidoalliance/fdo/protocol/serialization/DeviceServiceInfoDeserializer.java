@@ -0,0 +1,34 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.DeviceServiceInfo;
+
+public class DeviceServiceInfoDeserializer extends StdDeserializer<DeviceServiceInfo> {
+
+  public DeviceServiceInfoDeserializer() {
+    this(null);
+  }
+
+  public DeviceServiceInfoDeserializer(Class<?> t) {
+    super(t);
+  }
+
+  @Override
+  public DeviceServiceInfo deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException {
+    SerializerUtils.readStartArray(jp);
+
+    DeviceServiceInfo info = new DeviceServiceInfo();
+    info.setMore(SerializerUtils.readBoolean(jp));
+    info.setServiceInfo(ServiceInfoDeserializer.readNext(jp));
+
+    SerializerUtils.readEndArray(jp);
+    return info;
+  }
+}
@@ -0,0 +1,32 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.DeviceServiceInfo;
+
+public class DeviceServiceInfoSerializer extends StdSerializer<DeviceServiceInfo> {
+
+  private static final int ELEMENT_COUNT = 2;
+
+  public DeviceServiceInfoSerializer() {
+    this(null);
+  }
+
+  public DeviceServiceInfoSerializer(Class<DeviceServiceInfo> t) {
+    super(t);
+  }
+
+  @Override
+  public void serialize(DeviceServiceInfo value, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+    gen.writeStartArray(value, ELEMENT_COUNT);
+    gen.writeBoolean(value.isMore());
+    ServiceInfoSerializer.write(value.getServiceInfo(), gen);
+    gen.writeEndArray();
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.CipherSuiteType;
+import org.fidoalliance.fdo.protocol.message.EncryptionState;
+
+public class EncryptionStateDeserializer extends StdDeserializer<EncryptionState> {
+
+  public EncryptionStateDeserializer() {
+    this(null);
+  }
+
+  public EncryptionStateDeserializer(Class<?> t) {
+    super(t);
+  }
+
+  @Override
+  public EncryptionState deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException {
+    SerializerUtils.readStartArray(jp);
+
+    EncryptionState state = new EncryptionState();
+    if (jp.nextToken() != JsonToken.VALUE_NULL) {
+      state.setCipherSuite(CipherSuiteType.fromNumber(jp.getNumberValue()));
+    }
+    state.setSek(SerializerUtils.readBinary(jp));
+    state.setSev(SerializerUtils.readBinary(jp));
+    state.setIv(SerializerUtils.readBinary(jp));
+    state.setCounter(SerializerUtils.readLong(jp));
+
+    SerializerUtils.readEndArray(jp);
+    return state;
+  }
+}
@@ -0,0 +1,39 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.EncryptionState;
+
+public class EncryptionStateSerializer extends StdSerializer<EncryptionState> {
+
+  private static final int ELEMENT_COUNT = 5;
+
+  public EncryptionStateSerializer() {
+    this(null);
+  }
+
+  public EncryptionStateSerializer(Class<EncryptionState> t) {
+    super(t);
+  }
+
+  @Override
+  public void serialize(EncryptionState value, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+    gen.writeStartArray(value, ELEMENT_COUNT);
+    if (value.getCipherSuite() == null) {
+      gen.writeNull();
+    } else {
+      gen.writeNumber(value.getCipherSuite().toInteger());
+    }
+    SerializerUtils.writeBinary(gen, value.getSek());
+    SerializerUtils.writeBinary(gen, value.getSev());
+    SerializerUtils.writeBinary(gen, value.getIv());
+    gen.writeNumber(value.getCounter());
+    gen.writeEndArray();
+  }
+}
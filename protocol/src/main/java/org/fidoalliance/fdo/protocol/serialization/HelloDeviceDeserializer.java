@@ -0,0 +1,65 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.CipherSuiteType;
+import org.fidoalliance.fdo.protocol.message.Guid;
+import org.fidoalliance.fdo.protocol.message.HelloDevice;
+import org.fidoalliance.fdo.protocol.message.Nonce;
+import org.fidoalliance.fdo.protocol.message.SigInfo;
+
+public class HelloDeviceDeserializer extends StdDeserializer<HelloDevice>
+    implements ResolvableDeserializer {
+
+  private JsonDeserializer<Object> guidDeserializer;
+  private JsonDeserializer<Object> nonceDeserializer;
+  private JsonDeserializer<Object> sigInfoDeserializer;
+
+  public HelloDeviceDeserializer() {
+    this(null);
+  }
+
+  public HelloDeviceDeserializer(Class<?> t) {
+    super(t);
+  }
+
+  @Override
+  public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+    guidDeserializer = SerializerUtils.findDeserializer(ctxt, Guid.class);
+    nonceDeserializer = SerializerUtils.findDeserializer(ctxt, Nonce.class);
+    sigInfoDeserializer = SerializerUtils.findDeserializer(ctxt, SigInfo.class);
+  }
+
+  @Override
+  public boolean isCachable() {
+    return true;
+  }
+
+  @Override
+  public HelloDevice deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException {
+    SerializerUtils.readStartArray(jp);
+
+    HelloDevice hello = new HelloDevice();
+    hello.setMaxMessageSize(SerializerUtils.readInt(jp));
+    hello.setGuid(SerializerUtils.readObject(jp, ctxt, guidDeserializer, Guid.class));
+    hello.setProveTo2Ov(SerializerUtils.readObject(jp, ctxt, nonceDeserializer, Nonce.class));
+    hello.setKexSuiteName(SerializerUtils.readText(jp));
+    if (jp.nextToken() != JsonToken.VALUE_NULL) {
+      hello.setCipherSuiteName(CipherSuiteType.fromNumber(jp.getNumberValue()));
+    }
+    hello.setSigInfo(SerializerUtils.readObject(jp, ctxt, sigInfoDeserializer, SigInfo.class));
+
+    SerializerUtils.readEndArray(jp);
+    return hello;
+  }
+}
@@ -0,0 +1,40 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.HelloDevice;
+
+public class HelloDeviceSerializer extends StdSerializer<HelloDevice> {
+
+  private static final int ELEMENT_COUNT = 6;
+
+  public HelloDeviceSerializer() {
+    this(null);
+  }
+
+  public HelloDeviceSerializer(Class<HelloDevice> t) {
+    super(t);
+  }
+
+  @Override
+  public void serialize(HelloDevice value, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+    gen.writeStartArray(value, ELEMENT_COUNT);
+    gen.writeNumber(value.getMaxMessageSize());
+    SerializerUtils.writeObject(gen, value.getGuid());
+    SerializerUtils.writeObject(gen, value.getProveTo2Ov());
+    SerializerUtils.writeText(gen, value.getKexSuiteName());
+    if (value.getCipherSuiteType() == null) {
+      gen.writeNull();
+    } else {
+      gen.writeNumber(value.getCipherSuiteType().toInteger());
+    }
+    SerializerUtils.writeObject(gen, value.getSigInfo());
+    gen.writeEndArray();
+  }
+}
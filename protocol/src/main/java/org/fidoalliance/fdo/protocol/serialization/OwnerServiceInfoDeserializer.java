@@ -0,0 +1,35 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.OwnerServiceInfo;
+
+public class OwnerServiceInfoDeserializer extends StdDeserializer<OwnerServiceInfo> {
+
+  public OwnerServiceInfoDeserializer() {
+    this(null);
+  }
+
+  public OwnerServiceInfoDeserializer(Class<?> t) {
+    super(t);
+  }
+
+  @Override
+  public OwnerServiceInfo deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException {
+    SerializerUtils.readStartArray(jp);
+
+    OwnerServiceInfo info = new OwnerServiceInfo();
+    info.setMore(SerializerUtils.readBoolean(jp));
+    info.setDone(SerializerUtils.readBoolean(jp));
+    info.setServiceInfo(ServiceInfoDeserializer.readNext(jp));
+
+    SerializerUtils.readEndArray(jp);
+    return info;
+  }
+}
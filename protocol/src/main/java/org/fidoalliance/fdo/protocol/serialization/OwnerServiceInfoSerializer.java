@@ -0,0 +1,33 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.OwnerServiceInfo;
+
+public class OwnerServiceInfoSerializer extends StdSerializer<OwnerServiceInfo> {
+
+  private static final int ELEMENT_COUNT = 3;
+
+  public OwnerServiceInfoSerializer() {
+    this(null);
+  }
+
+  public OwnerServiceInfoSerializer(Class<OwnerServiceInfo> t) {
+    super(t);
+  }
+
+  @Override
+  public void serialize(OwnerServiceInfo value, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+    gen.writeStartArray(value, ELEMENT_COUNT);
+    gen.writeBoolean(value.isMore());
+    gen.writeBoolean(value.isDone());
+    ServiceInfoSerializer.write(value.getServiceInfo(), gen);
+    gen.writeEndArray();
+  }
+}
@@ -5,6 +5,13 @@ package org.fidoalliance.fdo.protocol.serialization;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import java.io.IOException;
 import java.lang.reflect.Field;
 
@@ -87,5 +94,165 @@ public class SerializerUtils {
     return propertyOrder;
   }
 
+  /**
+   * Verifies the parser is positioned at the start of an array.
+   * @param jp The parser positioned at the current value.
+   * @throws IOException An error occurred.
+   */
+  public static void readStartArray(JsonParser jp) throws IOException {
+    if (!jp.isExpectedStartArrayToken()) {
+      throw new JsonParseException(jp, "expected array but found " + jp.currentToken());
+    }
+  }
+
+  /**
+   * Advances the parser to the end of the current array.
+   * @param jp The parser positioned at the last element of the array.
+   * @throws IOException An error occurred.
+   */
+  public static void readEndArray(JsonParser jp) throws IOException {
+    if (jp.nextToken() != JsonToken.END_ARRAY) {
+      throw new JsonParseException(jp, "unexpected array element " + jp.currentToken());
+    }
+  }
+
+  /**
+   * Advances the parser and reads a byte string.
+   * @param jp The parser.
+   * @return The bytes or null if the element is null.
+   * @throws IOException An error occurred.
+   */
+  public static byte[] readBinary(JsonParser jp) throws IOException {
+    if (jp.nextToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    return jp.getBinaryValue();
+  }
+
+  /**
+   * Advances the parser and reads a text string.
+   * @param jp The parser.
+   * @return The text or null if the element is null.
+   * @throws IOException An error occurred.
+   */
+  public static String readText(JsonParser jp) throws IOException {
+    if (jp.nextToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    return jp.getValueAsString();
+  }
+
+  /**
+   * Advances the parser and reads an integer.
+   * @param jp The parser.
+   * @return The integer or zero if the element is null.
+   * @throws IOException An error occurred.
+   */
+  public static int readInt(JsonParser jp) throws IOException {
+    if (jp.nextToken() == JsonToken.VALUE_NULL) {
+      return 0;
+    }
+    return jp.getIntValue();
+  }
+
+  /**
+   * Advances the parser and reads a long.
+   * @param jp The parser.
+   * @return The long or zero if the element is null.
+   * @throws IOException An error occurred.
+   */
+  public static long readLong(JsonParser jp) throws IOException {
+    if (jp.nextToken() == JsonToken.VALUE_NULL) {
+      return 0;
+    }
+    return jp.getLongValue();
+  }
+
+  /**
+   * Advances the parser and reads a boolean.
+   * @param jp The parser.
+   * @return The boolean or false if the element is null.
+   * @throws IOException An error occurred.
+   */
+  public static boolean readBoolean(JsonParser jp) throws IOException {
+    if (jp.nextToken() == JsonToken.VALUE_NULL) {
+      return false;
+    }
+    return jp.getBooleanValue();
+  }
+
+  /**
+   * Finds the deserializer of a nested value.
+   * <p>Custom deserializers are not cached by Jackson, so the lookup is done once when the
+   * enclosing deserializer is resolved rather than for every value read.</p>
+   * @param ctxt The deserialization context.
+   * @param t The target class.
+   * @return The deserializer.
+   * @throws JsonMappingException The deserializer could not be created.
+   */
+  public static JsonDeserializer<Object> findDeserializer(DeserializationContext ctxt,
+      Class<?> t) throws JsonMappingException {
+    return ctxt.findContextualValueDeserializer(ctxt.constructType(t), null);
+  }
+
+  /**
+   * Advances the parser and reads a nested value.
+   * @param jp The parser.
+   * @param ctxt The deserialization context.
+   * @param deserializer The deserializer found for the target class.
+   * @param t The target class.
+   * @param <T> The target Class type.
+   * @return The value or null if the element is null.
+   * @throws IOException An error occurred.
+   */
+  public static <T> T readObject(JsonParser jp, DeserializationContext ctxt,
+      JsonDeserializer<Object> deserializer, Class<T> t) throws IOException {
+    if (jp.nextToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    return t.cast(deserializer.deserialize(jp, ctxt));
+  }
+
+  /**
+   * Writes a byte string or null.
+   * @param gen The generator.
+   * @param value The value to write.
+   * @throws IOException An error occurred.
+   */
+  public static void writeBinary(JsonGenerator gen, byte[] value) throws IOException {
+    if (value == null) {
+      gen.writeNull();
+    } else {
+      gen.writeBinary(value);
+    }
+  }
+
+  /**
+   * Writes a text string or null.
+   * @param gen The generator.
+   * @param value The value to write.
+   * @throws IOException An error occurred.
+   */
+  public static void writeText(JsonGenerator gen, String value) throws IOException {
+    if (value == null) {
+      gen.writeNull();
+    } else {
+      gen.writeString(value);
+    }
+  }
+
+  /**
+   * Writes a nested value or null.
+   * @param gen The generator.
+   * @param value The value to write.
+   * @throws IOException An error occurred.
+   */
+  public static void writeObject(JsonGenerator gen, Object value) throws IOException {
+    if (value == null) {
+      gen.writeNull();
+    } else {
+      gen.writeObject(value);
+    }
+  }
 
 }
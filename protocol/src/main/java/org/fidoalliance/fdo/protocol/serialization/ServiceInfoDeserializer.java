@@ -0,0 +1,57 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.ServiceInfo;
+
+public class ServiceInfoDeserializer extends StdDeserializer<ServiceInfo> {
+
+  public ServiceInfoDeserializer() {
+    this(null);
+  }
+
+  public ServiceInfoDeserializer(Class<?> t) {
+    super(t);
+  }
+
+  @Override
+  public ServiceInfo deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException {
+    return read(jp);
+  }
+
+  /**
+   * Reads a ServiceInfo list.
+   * @param jp The parser positioned at the start of the list.
+   * @return The ServiceInfo.
+   * @throws IOException An error occurred.
+   */
+  public static ServiceInfo read(JsonParser jp) throws IOException {
+    SerializerUtils.readStartArray(jp);
+
+    ServiceInfo serviceInfo = new ServiceInfo();
+    while (jp.nextToken() != JsonToken.END_ARRAY) {
+      serviceInfo.add(ServiceInfoKeyValuePairDeserializer.read(jp));
+    }
+    return serviceInfo;
+  }
+
+  /**
+   * Advances the parser and reads a ServiceInfo list.
+   * @param jp The parser.
+   * @return The ServiceInfo or null if the element is null.
+   * @throws IOException An error occurred.
+   */
+  public static ServiceInfo readNext(JsonParser jp) throws IOException {
+    if (jp.nextToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    return read(jp);
+  }
+}
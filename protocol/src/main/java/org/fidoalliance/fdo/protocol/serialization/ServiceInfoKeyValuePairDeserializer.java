@@ -0,0 +1,45 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoKeyValuePair;
+
+public class ServiceInfoKeyValuePairDeserializer
+    extends StdDeserializer<ServiceInfoKeyValuePair> {
+
+  public ServiceInfoKeyValuePairDeserializer() {
+    this(null);
+  }
+
+  public ServiceInfoKeyValuePairDeserializer(Class<?> t) {
+    super(t);
+  }
+
+  @Override
+  public ServiceInfoKeyValuePair deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException {
+    return read(jp);
+  }
+
+  /**
+   * Reads a key value pair.
+   * @param jp The parser positioned at the start of the pair.
+   * @return The key value pair.
+   * @throws IOException An error occurred.
+   */
+  public static ServiceInfoKeyValuePair read(JsonParser jp) throws IOException {
+    SerializerUtils.readStartArray(jp);
+
+    ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName(SerializerUtils.readText(jp));
+    kv.setValue(SerializerUtils.readBinary(jp));
+
+    SerializerUtils.readEndArray(jp);
+    return kv;
+  }
+}
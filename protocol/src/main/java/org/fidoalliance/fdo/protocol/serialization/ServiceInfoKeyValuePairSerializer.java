@@ -0,0 +1,42 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoKeyValuePair;
+
+public class ServiceInfoKeyValuePairSerializer extends StdSerializer<ServiceInfoKeyValuePair> {
+
+  private static final int ELEMENT_COUNT = 2;
+
+  public ServiceInfoKeyValuePairSerializer() {
+    this(null);
+  }
+
+  public ServiceInfoKeyValuePairSerializer(Class<ServiceInfoKeyValuePair> t) {
+    super(t);
+  }
+
+  @Override
+  public void serialize(ServiceInfoKeyValuePair value, JsonGenerator gen,
+      SerializerProvider provider) throws IOException {
+    write(value, gen);
+  }
+
+  /**
+   * Writes a key value pair.
+   * @param value The key value pair.
+   * @param gen The generator.
+   * @throws IOException An error occurred.
+   */
+  public static void write(ServiceInfoKeyValuePair value, JsonGenerator gen) throws IOException {
+    gen.writeStartArray(value, ELEMENT_COUNT);
+    SerializerUtils.writeText(gen, value.getKey());
+    SerializerUtils.writeBinary(gen, value.getValue());
+    gen.writeEndArray();
+  }
+}
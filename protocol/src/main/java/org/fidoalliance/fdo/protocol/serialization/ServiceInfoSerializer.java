@@ -0,0 +1,46 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.ServiceInfo;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoKeyValuePair;
+
+public class ServiceInfoSerializer extends StdSerializer<ServiceInfo> {
+
+  public ServiceInfoSerializer() {
+    this(null);
+  }
+
+  public ServiceInfoSerializer(Class<ServiceInfo> t) {
+    super(t);
+  }
+
+  @Override
+  public void serialize(ServiceInfo value, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+    write(value, gen);
+  }
+
+  /**
+   * Writes a ServiceInfo list or null.
+   * @param value The ServiceInfo.
+   * @param gen The generator.
+   * @throws IOException An error occurred.
+   */
+  public static void write(ServiceInfo value, JsonGenerator gen) throws IOException {
+    if (value == null) {
+      gen.writeNull();
+      return;
+    }
+    gen.writeStartArray(value, value.size());
+    for (ServiceInfoKeyValuePair kv : value) {
+      ServiceInfoKeyValuePairSerializer.write(kv, gen);
+    }
+    gen.writeEndArray();
+  }
+}
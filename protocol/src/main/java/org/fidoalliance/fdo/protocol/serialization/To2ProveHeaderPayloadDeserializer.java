@@ -0,0 +1,63 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.Hash;
+import org.fidoalliance.fdo.protocol.message.Nonce;
+import org.fidoalliance.fdo.protocol.message.SigInfo;
+import org.fidoalliance.fdo.protocol.message.To2ProveHeaderPayload;
+
+public class To2ProveHeaderPayloadDeserializer extends StdDeserializer<To2ProveHeaderPayload>
+    implements ResolvableDeserializer {
+
+  private JsonDeserializer<Object> hashDeserializer;
+  private JsonDeserializer<Object> nonceDeserializer;
+  private JsonDeserializer<Object> sigInfoDeserializer;
+
+  public To2ProveHeaderPayloadDeserializer() {
+    this(null);
+  }
+
+  public To2ProveHeaderPayloadDeserializer(Class<?> t) {
+    super(t);
+  }
+
+  @Override
+  public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+    hashDeserializer = SerializerUtils.findDeserializer(ctxt, Hash.class);
+    nonceDeserializer = SerializerUtils.findDeserializer(ctxt, Nonce.class);
+    sigInfoDeserializer = SerializerUtils.findDeserializer(ctxt, SigInfo.class);
+  }
+
+  @Override
+  public boolean isCachable() {
+    return true;
+  }
+
+  @Override
+  public To2ProveHeaderPayload deserialize(JsonParser jp, DeserializationContext ctxt)
+      throws IOException {
+    SerializerUtils.readStartArray(jp);
+
+    To2ProveHeaderPayload payload = new To2ProveHeaderPayload();
+    payload.setHeader(SerializerUtils.readBinary(jp));
+    payload.setNumEntries(SerializerUtils.readInt(jp));
+    payload.setHmac(SerializerUtils.readObject(jp, ctxt, hashDeserializer, Hash.class));
+    payload.setNonce(SerializerUtils.readObject(jp, ctxt, nonceDeserializer, Nonce.class));
+    payload.setSigInfoB(SerializerUtils.readObject(jp, ctxt, sigInfoDeserializer, SigInfo.class));
+    payload.setKexA(SerializerUtils.readBinary(jp));
+    payload.setHelloHash(SerializerUtils.readObject(jp, ctxt, hashDeserializer, Hash.class));
+    payload.setMaxMessageSize(SerializerUtils.readInt(jp));
+
+    SerializerUtils.readEndArray(jp);
+    return payload;
+  }
+}
@@ -0,0 +1,38 @@
+// Copyright 2022 Intel Corporation
+// SPDX-License-Identifier: Apache 2.0
+
+package org.fidoalliance.fdo.protocol.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import org.fidoalliance.fdo.protocol.message.To2ProveHeaderPayload;
+
+public class To2ProveHeaderPayloadSerializer extends StdSerializer<To2ProveHeaderPayload> {
+
+  private static final int ELEMENT_COUNT = 8;
+
+  public To2ProveHeaderPayloadSerializer() {
+    this(null);
+  }
+
+  public To2ProveHeaderPayloadSerializer(Class<To2ProveHeaderPayload> t) {
+    super(t);
+  }
+
+  @Override
+  public void serialize(To2ProveHeaderPayload value, JsonGenerator gen,
+      SerializerProvider provider) throws IOException {
+    gen.writeStartArray(value, ELEMENT_COUNT);
+    SerializerUtils.writeBinary(gen, value.getHeader());
+    gen.writeNumber(value.getNumEntries());
+    SerializerUtils.writeObject(gen, value.getHmac());
+    SerializerUtils.writeObject(gen, value.getNonce());
+    SerializerUtils.writeObject(gen, value.getSigInfoB());
+    SerializerUtils.writeBinary(gen, value.getKexA());
+    SerializerUtils.writeObject(gen, value.getHelloHash());
+    gen.writeNumber(value.getMaxMessageSize());
+    gen.writeEndArray();
+  }
+}
@@ -1,9 +1,41 @@
 package org.fidoalliance.fdo.protocol;
 
 import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.codec.binary.Hex;
+import org.fidoalliance.fdo.protocol.db.EntityCache;
+import org.fidoalliance.fdo.protocol.db.FdoSimDownloadOwnerModule;
 import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.ResourceCache;
+import org.fidoalliance.fdo.protocol.db.ResourceCursor;
+import org.fidoalliance.fdo.protocol.db.ResourceStore;
+import org.fidoalliance.fdo.protocol.db.TrustedRendezvousAcceptFunction;
+import org.fidoalliance.fdo.protocol.entity.AllowDenyList;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
+import org.fidoalliance.fdo.protocol.dispatch.CryptoService;
+import org.fidoalliance.fdo.protocol.dispatch.ManufacturerKeySupplier;
+import org.fidoalliance.fdo.protocol.dispatch.OwnerKeySupplier;
 import org.fidoalliance.fdo.protocol.dispatch.ValidityDaysSupplier;
+import org.fidoalliance.fdo.protocol.message.Guid;
+import org.fidoalliance.fdo.protocol.message.Hash;
+import org.fidoalliance.fdo.protocol.message.HashType;
+import org.fidoalliance.fdo.protocol.message.KeySizeType;
+import org.fidoalliance.fdo.protocol.message.OwnershipVoucher;
+import org.fidoalliance.fdo.protocol.message.OwnershipVoucherEntries;
+import org.fidoalliance.fdo.protocol.message.OwnershipVoucherHeader;
+import org.fidoalliance.fdo.protocol.message.ProtocolVersion;
+import org.fidoalliance.fdo.protocol.message.PublicKeyEncoding;
+import org.fidoalliance.fdo.protocol.message.PublicKeyType;
+import org.fidoalliance.fdo.protocol.message.ServiceInfo;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoDocument;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoGlobalState;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoKeyValuePair;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoModuleState;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoQueue;
+import org.fidoalliance.fdo.protocol.serviceinfo.DevMod;
+import org.fidoalliance.fdo.protocol.serviceinfo.StandardServiceInfoSendFunction;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.MethodOrderer;
@@ -11,8 +43,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.HttpURLConnection;
 import java.net.URI;
@@ -23,7 +58,22 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 @TestMethodOrder(MethodOrderer.MethodName.class)
@@ -71,12 +121,12 @@ public class ApiTest {
     return response.statusCode();
   }
 
-  public void  doGetFileApi(String url, String fileName, int resp) throws IOException, InterruptedException {
+  public byte[] doGetFileApi(String url, int resp) throws IOException, InterruptedException {
     HttpClient client = HttpClient.newHttpClient();
     HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).build();
-    HttpResponse response = client.send(request, HttpResponse.BodyHandlers.ofString());
-    Files.writeString(Path.of(Config.getPath(), fileName), response.body().toString());
-    assert (resp == response.statusCode());
+    HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    assertEquals(resp, response.statusCode());
+    return response.body();
   }
 
   public int doPostApi(String url,String body) throws IOException, InterruptedException {
@@ -248,8 +298,10 @@ public class ApiTest {
   public void certificateTest() throws IOException, InterruptedException {
     doGetApi("http://localhost:8080/api/v1/certificate?alias=axb12-dsad-das", "",
             HttpServletResponse.SC_NOT_FOUND);
-    doGetFileApi("http://localhost:8080/api/v1/certificate?alias=SECP256R1", "owner_pub_key",
+    byte[] chain = doGetFileApi("http://localhost:8080/api/v1/certificate?alias=SECP256R1",
             HttpServletResponse.SC_OK);
+    String pem = new String(chain, StandardCharsets.US_ASCII);
+    assertTrue(pem.startsWith("-----BEGIN CERTIFICATE-----"), pem);
     doPostFileApi("http://localhost:8080/api/v1/certificate?filename=ssl.p12", "ssl.p12",
             HttpServletResponse.SC_OK);
     doPostFileApi("http://localhost:8080/api/v1/certificate?filename=mfs.p12", "ssl.p12",
@@ -292,8 +344,9 @@ public class ApiTest {
   public void systemResourceFileTest() throws IOException, InterruptedException {
     doPostFileApi("http://localhost:8080/api/v1/owner/resource?filename=ssl.p12", "ssl.p12",
             HttpServletResponse.SC_OK);
-    doGetFileApi("http://localhost:8080/api/v1/owner/resource?filename=ssl.p12", "ssl.p12",
+    byte[] data = doGetFileApi("http://localhost:8080/api/v1/owner/resource?filename=ssl.p12",
             HttpServletResponse.SC_OK);
+    assertEquals(Files.size(Path.of(Config.getPath(), "ssl.p12")), data.length);
     doPostFileApi("http://localhost:8080/api/v1/owner/resource?filename=mfg.p12", "ssl.p12",
             HttpServletResponse.SC_OK);
     doDeleteApi("http://localhost:8080/api/v1/owner/resource?filename=mfg.p12", "",
@@ -302,6 +355,439 @@ public class ApiTest {
             HttpServletResponse.SC_BAD_REQUEST);
   }
 
+  @Test
+  public void systemResourceStreamTest() throws Exception {
+    // larger than any single buffer, the api must stream it to and from the database
+    Path file = Files.createTempFile("resource", ".bin");
+    MessageDigest digest = MessageDigest.getInstance("SHA-384");
+    byte[] block = new byte[1024 * 1024];
+    try (OutputStream out = Files.newOutputStream(file)) {
+      for (int i = 0; i < 64; i++) {
+        Arrays.fill(block, (byte) i);
+        digest.update(block);
+        out.write(block);
+      }
+    }
+    byte[] hash = digest.digest();
+    String url = "http://localhost:8080/api/v1/owner/resource?filename=stream.bin";
+
+    try {
+      doPostFileApi(url, file.toString(), HttpServletResponse.SC_OK);
+
+      HttpClient client = HttpClient.newHttpClient();
+      HttpResponse<InputStream> response = client.send(
+          HttpRequest.newBuilder().uri(URI.create(url)).build(),
+          HttpResponse.BodyHandlers.ofInputStream());
+      assertEquals(HttpServletResponse.SC_OK, response.statusCode());
+      assertEquals(Long.toString(64 * block.length),
+          response.headers().firstValue("Content-Length").orElse(""));
+      digest.reset();
+      try (InputStream in = new DigestInputStream(response.body(), digest)) {
+        in.transferTo(OutputStream.nullOutputStream());
+      }
+      assertArrayEquals(hash, digest.digest());
+      assertEquals("\"" + Hex.encodeHexString(hash) + "\"",
+          response.headers().firstValue("ETag").orElse(""));
+
+      HttpResponse<byte[]> partial = client.send(
+          HttpRequest.newBuilder().uri(URI.create(url))
+              .header("Range", "bytes=1048570-1048580").build(),
+          HttpResponse.BodyHandlers.ofByteArray());
+      assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, partial.statusCode());
+      assertEquals("bytes 1048570-1048580/" + 64 * block.length,
+          partial.headers().firstValue("Content-Range").orElse(""));
+      assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 1}, partial.body());
+
+      // the owner modules read the same content by hash and offset
+      ResourceStore store = new ResourceStore();
+      ResourceStore.Content content = store.getContent("stream.bin");
+      assertArrayEquals(hash, content.getSha384());
+      assertEquals(64 * block.length, content.getLength());
+      assertArrayEquals(partial.body(), store.read(content, 1048570, 11));
+      assertEquals(0, store.read(content, content.getLength(), 10).length);
+
+      partial = client.send(
+          HttpRequest.newBuilder().uri(URI.create(url)).header("Range", "bytes=-2").build(),
+          HttpResponse.BodyHandlers.ofByteArray());
+      assertArrayEquals(new byte[]{63, 63}, partial.body());
+
+      partial = client.send(
+          HttpRequest.newBuilder().uri(URI.create(url))
+              .header("Range", "bytes=" + 64 * block.length + "-").build(),
+          HttpResponse.BodyHandlers.ofByteArray());
+      assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, partial.statusCode());
+    } finally {
+      doDeleteApi(url, "", HttpServletResponse.SC_OK);
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private ServiceInfoKeyValuePair pair(String key, Object value) throws IOException {
+    ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName(key);
+    kv.setValue(Mapper.INSTANCE.writeValue(value));
+    return kv;
+  }
+
+  @Test
+  public void systemResourceCursorTest() throws Exception {
+    // a file many messages long, streamed to the device from the resource store
+    final int mtu = 1300;
+    final byte[] file = new byte[256 * 1024 + 17];
+    new Random(7).nextBytes(file);
+    final String url = "http://localhost:8080/api/v1/owner/resource?filename=cursor.bin";
+    final Path path = Files.createTempFile("resource", ".bin");
+    Files.write(path, file);
+    doPostFileApi(url, path.toString(), HttpServletResponse.SC_OK);
+
+    // every unused resource is evicted under the bounds
+    ResourceCache.setLimits(1024, 0, 0);
+    try {
+      final long misses = ResourceCache.getMissCount();
+      final int pins = ResourceCache.getPinCount();
+      final FdoSimDownloadOwnerModule module = new FdoSimDownloadOwnerModule();
+      final ServiceInfoDocument document = new ServiceInfoDocument();
+      document.setInstructions("[{\"filedesc\":\"image.bin\",\"resource\":\"cursor.bin\","
+          + "\"module\":\"" + FdoSimDownloadOwnerModule.MODULE_NAME + "\"}]");
+
+      ServiceInfoModuleState state = new ServiceInfoModuleState();
+      state.setName(module.getName());
+      state.setGuid(Guid.fromRandomUuid());
+      state.setMtu(mtu);
+      state.setGlobalState(new ServiceInfoGlobalState());
+      state.setDocument(document);
+      module.prepare(state);
+      state.setActive(true);
+      for (String key : new String[]{DevMod.KEY_DEVICE, DevMod.KEY_OS, DevMod.KEY_VERSION,
+          DevMod.KEY_ARCH}) {
+        module.receive(state, pair(key, "test"));
+      }
+
+      final ByteArrayOutputStream received = new ByteArrayOutputStream();
+      byte[] sha384 = null;
+      int minSession = Integer.MAX_VALUE;
+      int maxSession = 0;
+      int messages = 0;
+      boolean sent = false;
+      while (!state.isDone()) {
+        ServiceInfo serviceInfo = new ServiceInfo();
+        module.send(state, new StandardServiceInfoSendFunction(mtu, serviceInfo));
+        assertTrue(Mapper.INSTANCE.writeValue(serviceInfo).length <= mtu);
+
+        for (ServiceInfoKeyValuePair kv : serviceInfo) {
+          if (kv.getKey().equals(FdoSimDownloadOwnerModule.SHA_384)) {
+            sha384 = Mapper.INSTANCE.readValue(kv.getValue(), byte[].class);
+          } else if (kv.getKey().equals(FdoSimDownloadOwnerModule.DATA)) {
+            byte[] data = Mapper.INSTANCE.readValue(kv.getValue(), byte[].class);
+            sent = data.length == 0;
+            received.write(data);
+          }
+        }
+
+        // the session is written and read back between messages
+        final byte[] global = Mapper.INSTANCE.writeValue(state.getGlobalState());
+        final byte[] moduleState = Mapper.INSTANCE.writeValue(state);
+        if (messages > 0 && !sent) {
+          minSession = Math.min(minSession, global.length + moduleState.length);
+          maxSession = Math.max(maxSession, global.length + moduleState.length);
+        }
+        final ServiceInfoModuleState next =
+            Mapper.INSTANCE.readValue(moduleState, ServiceInfoModuleState.class);
+        next.setGlobalState(Mapper.INSTANCE.readValue(global, ServiceInfoGlobalState.class));
+        next.setDocument(document);
+        state = next;
+        messages++;
+
+        // the file being sent stays cached whatever else is evicted
+        if (messages == 10) {
+          ResourceCache.invalidateAll();
+        }
+
+        // the device reports the bytes received once the empty data value arrives
+        if (sent && !state.isDone()) {
+          module.receive(state, pair(FdoSimDownloadOwnerModule.DONE, file.length));
+        }
+      }
+
+      assertArrayEquals(file, received.toByteArray());
+      assertArrayEquals(MessageDigest.getInstance("SHA-384").digest(file), sha384);
+      assertTrue(messages > file.length / mtu);
+
+      // only the cursor offset changes, the session does not hold the file
+      assertTrue(maxSession - minSession < 16, minSession + " to " + maxSession);
+      assertTrue(maxSession < 1024, Integer.toString(maxSession));
+      assertEquals(0, state.getGlobalState().getQueue().size());
+
+      // loaded once for the whole transfer, and released once it was sent
+      assertEquals(misses + 1, ResourceCache.getMissCount());
+      assertEquals(pins, ResourceCache.getPinCount());
+    } finally {
+      ResourceCache.setLimits(1024 * 1024, 64 * 1024 * 1024, 4L * 1024 * 1024 * 1024);
+      doDeleteApi(url, "", HttpServletResponse.SC_OK);
+      Files.deleteIfExists(path);
+    }
+  }
+
+  private long countSpools(Path dir) throws IOException {
+    try (var files = Files.list(dir)) {
+      return files.filter(f -> f.getFileName().toString().matches("resource.*\\.tmp")).count();
+    }
+  }
+
+  private void sendChunk(ServiceInfoQueue queue, OutputStream out) throws IOException {
+    assertTrue(ResourceCursor.sendNext(queue, "data", 1000, kv -> {
+      out.write(Mapper.INSTANCE.readValue(kv.getValue(), byte[].class));
+      return true;
+    }));
+  }
+
+  @Test
+  public void urlResourceCursorTest() throws Exception {
+    // sessions streaming the same url resource at once, one of them abandoned
+    final byte[] file = new byte[64 * 1024 + 5];
+    new Random(11).nextBytes(file);
+    final String url = "http://localhost:8080/api/v1/owner/resource?filename=url-cursor.bin";
+    final Path path = Files.createTempFile("resource", ".bin");
+    Files.write(path, file);
+    doPostFileApi(url, path.toString(), HttpServletResponse.SC_OK);
+
+    final Path temp = Path.of(System.getProperty("java.io.tmpdir"));
+    final long spools = countSpools(temp);
+    final int pins = ResourceCache.getPinCount();
+    try {
+      final ServiceInfoQueue first = new ServiceInfoQueue();
+      final ServiceInfoQueue second = new ServiceInfoQueue();
+      final ServiceInfoQueue abandoned = new ServiceInfoQueue();
+      first.add(ResourceCursor.ofUrl(url).toPair("cursor"));
+      second.add(ResourceCursor.ofUrl(url).toPair("cursor"));
+      abandoned.add(ResourceCursor.ofUrl(url).toPair("cursor"));
+      assertEquals(pins + 3, ResourceCache.getPinCount());
+
+      final ByteArrayOutputStream firstReceived = new ByteArrayOutputStream();
+      final ByteArrayOutputStream secondReceived = new ByteArrayOutputStream();
+      sendChunk(abandoned, new ByteArrayOutputStream());
+      while (!first.isEmpty()) {
+        sendChunk(first, firstReceived);
+        if (firstReceived.size() % 3000 == 0) {
+          sendChunk(second, secondReceived);
+        }
+      }
+
+      // the first transfer ending leaves the file to the others
+      while (!second.isEmpty()) {
+        sendChunk(second, secondReceived);
+      }
+      assertArrayEquals(file, firstReceived.toByteArray());
+      assertArrayEquals(file, secondReceived.toByteArray());
+      assertEquals(spools, countSpools(temp));
+
+      // the abandoned transfer is released once it expires
+      assertEquals(pins + 1, ResourceCache.getPinCount());
+      ResourceCache.setPinTimeout(0);
+      assertEquals(pins + 1, ResourceCache.expirePins());
+      assertEquals(0, ResourceCache.getPinCount());
+    } finally {
+      ResourceCache.setPinTimeout(600);
+      doDeleteApi(url, "", HttpServletResponse.SC_OK);
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void voucherPageTest() throws Exception {
+    // seed past the last real guid so the listing order is known
+    final String prefix = "ffffffff-0000-0000-0000-";
+    final int count = 5000;
+    try (StatelessSession session = sessionFactory.openStatelessSession()) {
+      Transaction trans = session.beginTransaction();
+      Date now = new Date();
+      Date future = new Date(System.currentTimeMillis() + Duration.ofDays(1).toMillis());
+      for (int i = 0; i < count; i++) {
+        OnboardingVoucher voucher = new OnboardingVoucher();
+        voucher.setGuid(prefix + String.format("%012d", i));
+        voucher.setData(new byte[]{0});
+        voucher.setCreatedOn(now);
+        voucher.setTo0Expiry(future);
+        if (i % 2 == 0) {
+          voucher.setTo2CompletedOn(now);
+        }
+        session.insert(voucher);
+      }
+      trans.commit();
+    }
+
+    try {
+      String url = "http://localhost:8080/api/v1/owner/vouchers?limit=500";
+      doGetApi(url + "&status=unknown", "", HttpServletResponse.SC_BAD_REQUEST);
+      doGetApi(url.replace("500", "0"), "", HttpServletResponse.SC_BAD_REQUEST);
+
+      HttpClient client = HttpClient.newHttpClient();
+      String after = prefix;
+      int seen = 0;
+      int completed = 0;
+      while (after != null) {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+            .uri(URI.create(url + "&after=" + after)).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpServletResponse.SC_OK, response.statusCode());
+        Map<?, ?> page = Mapper.INSTANCE.readJsonValue(response.body(), Map.class);
+        List<?> vouchers = (List<?>) page.get("vouchers");
+        assertTrue(vouchers.size() <= 500);
+        for (Object item : vouchers) {
+          Map<?, ?> summary = (Map<?, ?>) item;
+          assertEquals(prefix + String.format("%012d", seen), summary.get("guid"));
+          if (summary.get("to2CompletedOn") != null) {
+            completed++;
+          }
+          seen++;
+        }
+        after = (String) page.get("next");
+      }
+      assertEquals(count, seen);
+      assertEquals(count / 2, completed);
+
+      HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+          .uri(URI.create(url + "&status=pending&after=" + prefix)).build(),
+          HttpResponse.BodyHandlers.ofString());
+      Map<?, ?> page = Mapper.INSTANCE.readJsonValue(response.body(), Map.class);
+      for (Object item : (List<?>) page.get("vouchers")) {
+        assertNull(((Map<?, ?>) item).get("to2CompletedOn"));
+      }
+    } finally {
+      try (StatelessSession session = sessionFactory.openStatelessSession()) {
+        Transaction trans = session.beginTransaction();
+        session.createMutationQuery("delete from OnboardingVoucher where guid >= :prefix")
+            .setParameter("prefix", prefix)
+            .executeUpdate();
+        trans.commit();
+      }
+    }
+  }
+
+  private OwnershipVoucher newVoucher(String guid, KeyResolver resolver) throws IOException {
+    CryptoService cs = Config.getWorker(CryptoService.class);
+    OwnershipVoucherHeader header = new OwnershipVoucherHeader();
+    header.setVersion(ProtocolVersion.current());
+    header.setGuid(Guid.fromUuid(UUID.fromString(guid)));
+    header.setDeviceInfo("import");
+    header.setPublicKey(cs.encodeKey(PublicKeyType.SECP384R1, PublicKeyEncoding.X509,
+        resolver.getCertificateChain(
+            KeyResolver.getAlias(PublicKeyType.SECP384R1, KeySizeType.SIZE_384))));
+
+    OwnershipVoucher voucher = new OwnershipVoucher();
+    voucher.setHeader(Mapper.INSTANCE.writeValue(header));
+    voucher.setEntries(new OwnershipVoucherEntries());
+    return voucher;
+  }
+
+  @Test
+  public void rvAcceptTest() throws Exception {
+    KeyResolver owner = Config.getWorker(OwnerKeySupplier.class).get();
+    KeyResolver manufacturer = Config.getWorker(ManufacturerKeySupplier.class).get();
+    String guid = "dddddddd-0000-0000-0000-000000000001";
+    Certificate[] ownerChain =
+        owner.getCertificateChain(KeyResolver.getAlias(PublicKeyType.SECP384R1,
+            KeySizeType.SIZE_384));
+
+    OwnershipVoucher voucher = newVoucher(guid, manufacturer);
+    Hash hmac = new Hash();
+    hmac.setHashType(HashType.HMAC_SHA384);
+    hmac.setHashValue(new byte[48]);
+    voucher.setHmac(hmac);
+    voucher = VoucherUtils.extend(voucher, manufacturer, ownerChain);
+
+    String url = "http://localhost:8080/api/v1/rv/allow";
+    String ownerPem = PemFormatter.format(ownerChain[0]);
+    TrustedRendezvousAcceptFunction accept = new TrustedRendezvousAcceptFunction();
+    try {
+      assertFalse(accept.apply(voucher));
+      assertEquals(HttpServletResponse.SC_OK, doPostApi(url, ownerPem));
+      assertTrue(accept.apply(voucher));
+
+      assertEquals(HttpServletResponse.SC_OK,
+          doPostApi("http://localhost:8080/api/v1/rv/deny", guid));
+      assertFalse(accept.apply(voucher));
+    } finally {
+      assertEquals(HttpServletResponse.SC_OK, doDeleteApi(url, ownerPem));
+      try (StatelessSession session = sessionFactory.openStatelessSession()) {
+        Transaction trans = session.beginTransaction();
+        session.createMutationQuery("delete from AllowDenyList where hash = :guid")
+            .setParameter("guid", guid)
+            .executeUpdate();
+        trans.commit();
+      }
+      EntityCache.invalidate(AllowDenyList.class);
+    }
+    assertFalse(accept.apply(voucher));
+  }
+
+  @Test
+  public void voucherImportTest() throws Exception {
+    final String prefix = "eeeeeeee-0000-0000-0000-";
+    final int count = 250;
+    KeyResolver owner = Config.getWorker(OwnerKeySupplier.class).get();
+    KeyResolver manufacturer = Config.getWorker(ManufacturerKeySupplier.class).get();
+
+    StringBuilder pem = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      pem.append(VoucherUtils.toString(Mapper.INSTANCE.writeValue(
+          newVoucher(prefix + String.format("%012d", i), owner)))).append("\r\n");
+    }
+    // not owned by this owner, then undecodable
+    pem.append(VoucherUtils.toString(Mapper.INSTANCE.writeValue(
+        newVoucher(prefix + "999999999999", manufacturer)))).append("\r\n");
+    pem.append("-----BEGIN OWNERSHIP VOUCHER-----\nAAAA\n-----END OWNERSHIP VOUCHER-----\n");
+
+    String url = "http://localhost:8080/api/v1/owner/import";
+    HttpClient client = HttpClient.newHttpClient();
+    try {
+      HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+              .uri(URI.create(url))
+              .header("Content-Type", "text/plain")
+              .POST(HttpRequest.BodyPublishers.ofString(pem.toString()))
+              .build(),
+          HttpResponse.BodyHandlers.ofString());
+      assertEquals(HttpServletResponse.SC_OK, response.statusCode());
+      String[] lines = response.body().split("\r?\n");
+      assertEquals(count + 2, lines.length);
+      for (int i = 0; i < count; i++) {
+        assertEquals(i + " " + prefix + String.format("%012d", i) + " OK", lines[i]);
+      }
+      assertEquals(count + " " + prefix + "999999999999 owner key not found", lines[count]);
+      assertEquals((count + 1) + " - invalid voucher", lines[count + 1]);
+
+      // a cbor sequence, replacing an imported voucher
+      ByteArrayOutputStream seq = new ByteArrayOutputStream();
+      seq.write(Mapper.INSTANCE.writeValue(newVoucher(prefix + "000000000000", owner)));
+      seq.write(Mapper.INSTANCE.writeValue(newVoucher(prefix + "000000001000", owner)));
+      response = client.send(HttpRequest.newBuilder()
+              .uri(URI.create(url))
+              .header("Content-Type", "application/cbor-seq")
+              .POST(HttpRequest.BodyPublishers.ofByteArray(seq.toByteArray()))
+              .build(),
+          HttpResponse.BodyHandlers.ofString());
+      assertEquals(HttpServletResponse.SC_OK, response.statusCode());
+      assertEquals("0 " + prefix + "000000000000 OK\n1 " + prefix + "000000001000 OK\n",
+          response.body().replace("\r", ""));
+
+      try (StatelessSession session = sessionFactory.openStatelessSession()) {
+        Long stored = session.createQuery(
+                "select count(*) from OnboardingVoucher where guid >= :prefix", Long.class)
+            .setParameter("prefix", prefix)
+            .getSingleResult();
+        assertEquals(count + 1, stored.intValue());
+      }
+    } finally {
+      try (StatelessSession session = sessionFactory.openStatelessSession()) {
+        Transaction trans = session.beginTransaction();
+        session.createMutationQuery("delete from OnboardingVoucher where guid >= :prefix")
+            .setParameter("prefix", prefix)
+            .executeUpdate();
+        trans.commit();
+      }
+    }
+  }
+
   @Test
   public void zipDiSampleTest() throws IOException, InterruptedException {
 
@@ -0,0 +1,151 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fidoalliance.fdo.protocol.message.MsgType;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+import org.fidoalliance.fdo.protocol.message.To0Hello;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the asynchronous client runs many protocol clients on a few threads and falls back
+ * through the rendezvous instructions.
+ */
+public class AsyncHttpClientTest {
+
+  /**
+   * Sends a hello, the stub server answers with an error that ends the protocol.
+   */
+  private static class StubClient extends HttpClient {
+
+    private final List<String> addresses;
+    private final long delay;
+    private volatile String finishedOn;
+
+    StubClient(long delay, String... addresses) {
+      this.addresses = List.of(addresses);
+      this.delay = delay;
+    }
+
+    @Override
+    protected void generateHello() throws IOException {
+      List<HttpInstruction> instructions = new ArrayList<>();
+      for (String address : addresses) {
+        HttpInstruction instruction = new HttpInstruction();
+        instruction.setAddress(address);
+        instruction.setDelay(delay);
+        instructions.add(instruction);
+      }
+      setInstructions(instructions);
+      setRequest(new DispatchMessage());
+      getRequest().setMsgType(MsgType.TO0_HELLO);
+      getRequest().setMessage(Mapper.INSTANCE.writeValue(new To0Hello()));
+      getRequest().setExtra(new SimpleStorage());
+    }
+
+    @Override
+    protected void finishedOk() {
+      finishedOn = Thread.currentThread().getName();
+    }
+  }
+
+  private final AtomicInteger hellos = new AtomicInteger();
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+  private String address;
+  private AsyncHttpClient client;
+
+  @BeforeEach
+  public void start() throws IOException {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+    serverExecutor = Executors.newFixedThreadPool(4);
+    server.setExecutor(serverExecutor);
+    server.createContext("/fdo/101/msg/20", exchange -> {
+      hellos.incrementAndGet();
+      exchange.getRequestBody().readAllBytes();
+      exchange.getResponseHeaders().add(HttpUtils.HTTP_MESSAGE_TYPE,
+          Integer.toString(MsgType.ERROR.toInteger()));
+      byte[] body = Mapper.INSTANCE.writeValue(new To0Hello());
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.start();
+    address = "http://localhost:" + server.getAddress().getPort();
+    client = new AsyncHttpClient(4, Duration.ofSeconds(5), Duration.ofSeconds(30), false);
+  }
+
+  @AfterEach
+  public void stop() throws IOException {
+    client.close();
+    server.stop(0);
+    serverExecutor.shutdown();
+  }
+
+  private String closedAddress() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return "http://localhost:" + socket.getLocalPort();
+    }
+  }
+
+  @Test
+  public void concurrencyTest() throws Exception {
+    List<StubClient> clients = new ArrayList<>();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      StubClient stub = new StubClient(0, address);
+      clients.add(stub);
+      futures.add(client.run(stub));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+
+    assertEquals(500, hellos.get());
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    for (StubClient stub : clients) {
+      threads.add(stub.finishedOn);
+    }
+    assertTrue(threads.size() <= 4);
+    assertTrue(threads.stream().allMatch(name -> name.startsWith("async-http-client-")));
+  }
+
+  @Test
+  public void delayTest() throws Exception {
+    StubClient stub = new StubClient(1, closedAddress(), address);
+    long start = System.nanoTime();
+    client.run(stub).get(30, TimeUnit.SECONDS);
+
+    assertTrue(System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(1));
+    assertEquals(1, hellos.get());
+    assertTrue(stub.finishedOn != null);
+  }
+
+  @Test
+  public void exhaustedTest() throws IOException {
+    StubClient stub = new StubClient(0, closedAddress(), closedAddress());
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> client.run(stub).get(30, TimeUnit.SECONDS));
+    assertTrue(e.getCause().getCause() instanceof IOException);
+    assertEquals(null, stub.finishedOn);
+  }
+}
@@ -0,0 +1,144 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.fidoalliance.fdo.protocol.db.PooledConnectionProvider;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the pooled connection provider under contention.
+ */
+public class ConnectionPoolTest {
+
+  private PooledConnectionProvider getPool(int maxSize, long timeout) {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    Map<String, Object> map = new HashMap<>();
+    map.put(AvailableSettings.JAKARTA_JDBC_DRIVER, "org.h2.Driver");
+    map.put(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1");
+    map.put(AvailableSettings.JAKARTA_JDBC_USER, "sa");
+    map.put(PooledConnectionProvider.MIN_SIZE, "1");
+    map.put(PooledConnectionProvider.MAX_SIZE, Integer.toString(maxSize));
+    map.put(PooledConnectionProvider.TIMEOUT, Long.toString(timeout));
+    PooledConnectionProvider pool = new PooledConnectionProvider();
+    pool.configure(map);
+    return pool;
+  }
+
+  @Test
+  public void reuseTest() throws Exception {
+    PooledConnectionProvider pool = getPool(2, 1000);
+    try {
+      Connection conn = pool.getConnection();
+      assertEquals(1, pool.getActiveCount());
+      pool.closeConnection(conn);
+      assertEquals(0, pool.getActiveCount());
+      assertSame(conn, pool.getConnection());
+      pool.closeConnection(conn);
+      assertEquals(1, pool.getTotalCount());
+    } finally {
+      pool.stop();
+    }
+  }
+
+  @Test
+  public void resetTest() throws Exception {
+    PooledConnectionProvider pool = getPool(1, 1000);
+    try {
+      Connection conn = pool.getConnection();
+      final int isolation = conn.getTransactionIsolation();
+      final boolean autoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(true);
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("CREATE TABLE IF NOT EXISTS reset_test (id INT)");
+      }
+
+      // a borrower returning mid transaction with changed settings
+      conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+      conn.setAutoCommit(false);
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("INSERT INTO reset_test VALUES (1)");
+      }
+      conn.setReadOnly(true);
+      pool.closeConnection(conn);
+
+      Connection next = pool.getConnection();
+      assertSame(conn, next);
+      assertEquals(autoCommit, next.getAutoCommit());
+      assertEquals(isolation, next.getTransactionIsolation());
+      assertFalse(next.isReadOnly());
+      try (Statement stmt = next.createStatement();
+          ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM reset_test")) {
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+      }
+      pool.closeConnection(next);
+    } finally {
+      pool.stop();
+    }
+  }
+
+  @Test
+  public void saturationTest() throws Exception {
+    PooledConnectionProvider pool = getPool(2, 100);
+    try {
+      Connection conn1 = pool.getConnection();
+      Connection conn2 = pool.getConnection();
+      assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+      assertEquals(1, pool.getTimeoutCount());
+      pool.closeConnection(conn1);
+      pool.closeConnection(conn2);
+    } finally {
+      pool.stop();
+    }
+  }
+
+  @Test
+  public void concurrencyTest() throws Exception {
+    PooledConnectionProvider pool = getPool(4, 10000);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        futures.add(executor.submit(() -> {
+          Connection conn = pool.getConnection();
+          try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT 1");
+            assertTrue(pool.getActiveCount() <= 4);
+          } finally {
+            pool.closeConnection(conn);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      assertEquals(200, pool.getBorrowCount());
+      assertEquals(0, pool.getActiveCount());
+      assertEquals(0, pool.getTimeoutCount());
+      assertTrue(pool.getTotalCount() <= 4);
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+      pool.stop();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fidoalliance.fdo.protocol.db.EntityCache;
+import org.fidoalliance.fdo.protocol.message.RendezvousInfo;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks cached entity values are loaded once and reloaded after invalidation.
+ */
+public class EntityCacheTest {
+
+  private static class Region {
+  }
+
+  @Test
+  public void cacheTest() throws IOException {
+    EntityCache.invalidate(Region.class);
+    AtomicInteger loads = new AtomicInteger();
+
+    assertEquals(1, (int) EntityCache.get(Region.class, "value", loads::incrementAndGet));
+    assertEquals(1, (int) EntityCache.get(Region.class, "value", loads::incrementAndGet));
+    assertEquals(1, loads.get());
+
+    EntityCache.invalidate(Region.class);
+    assertEquals(2, (int) EntityCache.get(Region.class, "value", loads::incrementAndGet));
+
+    assertNull(EntityCache.get(Region.class, "missing", () -> {
+      loads.incrementAndGet();
+      return null;
+    }));
+    assertNull(EntityCache.get(Region.class, "missing", () -> {
+      loads.incrementAndGet();
+      return null;
+    }));
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  public void copyTest() throws IOException {
+    EntityCache.invalidate(Region.class);
+    AtomicInteger loads = new AtomicInteger();
+    final String rvi = "[[[5, \"localhost\"], [3, 8080]]]";
+
+    RendezvousInfo first = EntityCache.getCopy(Region.class, "rvInfo", RendezvousInfo.class,
+        () -> {
+          loads.incrementAndGet();
+          return Mapper.INSTANCE.readJsonValue(rvi, RendezvousInfo.class);
+        });
+    first.clear();
+
+    // a caller modifying its value does not change what the next caller gets
+    RendezvousInfo second = EntityCache.getCopy(Region.class, "rvInfo", RendezvousInfo.class,
+        () -> null);
+    assertNotSame(first, second);
+    assertEquals(1, second.size());
+    assertEquals(2, second.get(0).size());
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void staleLoadTest() throws IOException {
+    EntityCache.invalidate(Region.class);
+
+    // a write that completes while loading must not leave the old value cached
+    String value = EntityCache.get(Region.class, "stale", () -> {
+      EntityCache.invalidate(Region.class);
+      return "old";
+    });
+    assertEquals("old", value);
+    assertEquals("new", EntityCache.get(Region.class, "stale", () -> "new"));
+  }
+}
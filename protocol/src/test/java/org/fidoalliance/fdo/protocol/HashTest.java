@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.IOException;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
+import org.fidoalliance.fdo.protocol.dispatch.CryptoService;
 import org.fidoalliance.fdo.protocol.message.Hash;
 import org.fidoalliance.fdo.protocol.message.HashType;
 import org.junit.jupiter.api.Test;
@@ -24,4 +25,27 @@ public class HashTest {
     assertTrue(hash1.equals(hash2));
 
   }
+
+  @Test
+  public void sinkTest() throws IOException {
+
+    Hash hash1 = new Hash();
+    hash1.setHashType(HashType.SHA256);
+    hash1.setHashValue(new byte[] {1,2,3});
+
+    CryptoService cs = new StandardCryptoService();
+    byte[] prefix = new byte[] {9, 8, 7};
+    byte[] data = Mapper.INSTANCE.writeValue(hash1);
+    byte[] both = new byte[prefix.length + data.length];
+    System.arraycopy(prefix, 0, both, 0, prefix.length);
+    System.arraycopy(data, 0, both, prefix.length, data.length);
+
+    HashSink sink = cs.getHashSink(HashType.SHA384);
+    sink.write(prefix);
+    assertTrue(cs.hash(HashType.SHA384, both).equals(sink.writeValue(hash1).getHash()));
+
+    byte[] secret = cs.createHmacKey(HashType.HMAC_SHA256);
+    Hash mac = cs.getHashSink(HashType.HMAC_SHA256, secret).writeValue(hash1).getHash();
+    assertTrue(cs.hash(HashType.HMAC_SHA256, secret, data).equals(mac));
+  }
 }
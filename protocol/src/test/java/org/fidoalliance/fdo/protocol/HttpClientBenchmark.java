@@ -0,0 +1,127 @@
+package org.fidoalliance.fdo.protocol;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Compares a new http client per message with the pooled protocol clients.
+ *
+ * <p>Each simulated protocol run posts the messages of a TO2 exchange to an in process Tomcat,
+ * which counts the connections it accepts. Run with the test classpath from the protocol
+ * directory: java org.fidoalliance.fdo.protocol.HttpClientBenchmark [runs] [threads]</p>
+ */
+public class HttpClientBenchmark {
+
+  private static final int MESSAGES = 8;
+
+  private static final Set<String> connections = ConcurrentHashMap.newKeySet();
+
+  private static class EchoServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+      connections.add(req.getRemoteAddr() + ":" + req.getRemotePort());
+      byte[] body = req.getInputStream().readAllBytes();
+      resp.setContentType(HttpUtils.HTTP_APPLICATION_CBOR);
+      resp.setContentLength(body.length);
+      resp.getOutputStream().write(body);
+    }
+  }
+
+  private static void run(HttpClientSupplier supplier, String uri) throws Exception {
+    final byte[] message = new byte[512];
+    for (int i = 0; i < MESSAGES; i++) {
+      try (CloseableHttpClient client = supplier.get()) {
+        HttpPost post = new HttpPost(uri);
+        post.setEntity(new ByteArrayEntity(message));
+        try (CloseableHttpResponse response = client.execute(post)) {
+          EntityUtils.toByteArray(response.getEntity());
+        }
+      }
+    }
+  }
+
+  private static void measure(String label, HttpClientSupplier supplier, String uri,
+      int runs, int threads) throws Exception {
+    connections.clear();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final long start = System.nanoTime();
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < runs; i++) {
+        futures.add(executor.submit(() -> {
+          run(supplier, uri);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      final double elapsed = (System.nanoTime() - start) / 1e6;
+      System.out.printf("%s threads=%d connections=%d ms/message=%.3f%n", label, threads,
+          connections.size(), elapsed * threads / (runs * MESSAGES));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args The number of protocol runs and the number of threads.
+   * @throws Exception An error occurred.
+   */
+  public static void main(String[] args) throws Exception {
+    final int runs = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    final int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+
+    final Path dir = Files.createTempDirectory("tomcat");
+    final Tomcat tomcat = new Tomcat();
+    tomcat.setBaseDir(dir.toString());
+    final Connector connector = new Connector();
+    connector.setPort(0);
+    tomcat.getService().addConnector(connector);
+    tomcat.setConnector(connector);
+    final Context context = tomcat.addContext("", null);
+    Tomcat.addServlet(context, "echo", new EchoServlet());
+    context.addServletMappingDecoded("/*", "echo");
+    tomcat.start();
+    try {
+      final String uri = "http://localhost:" + connector.getLocalPort() + "/fdo/101/msg/64";
+      final HttpClientSupplier perMessage = HttpClients::createSystem;
+      final HttpClientSupplier pooled = new StandardHttpClientSupplier();
+
+      measure("warm up", pooled, uri, runs / 10, threads);
+      for (int t : new int[]{1, threads}) {
+        measure("client per message", perMessage, uri, runs, t);
+        measure("pooled client", pooled, uri, runs, t);
+      }
+    } finally {
+      tomcat.stop();
+      tomcat.destroy();
+      System.exit(0);
+    }
+  }
+}
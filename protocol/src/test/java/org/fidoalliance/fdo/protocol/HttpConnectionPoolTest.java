@@ -0,0 +1,59 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks protocol clients reuse pooled connections.
+ */
+public class HttpConnectionPoolTest {
+
+  @Test
+  public void reuseTest() throws IOException {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    Set<Integer> connections = ConcurrentHashMap.newKeySet();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      connections.add(exchange.getRemoteAddress().getPort());
+      byte[] body = exchange.getRequestBody().readAllBytes();
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.start();
+    try {
+      String uri = "http://localhost:" + server.getAddress().getPort() + "/fdo/101/msg/30";
+      HttpClientSupplier supplier = new StandardHttpClientSupplier();
+
+      // each message gets a new client, as HttpClient does, and closes it
+      for (int i = 0; i < 20; i++) {
+        try (CloseableHttpClient client = supplier.get()) {
+          HttpPost post = new HttpPost(uri);
+          post.setEntity(new ByteArrayEntity(new byte[]{(byte) i}));
+          try (CloseableHttpResponse response = client.execute(post)) {
+            assertEquals(i, EntityUtils.toByteArray(response.getEntity())[0]);
+          }
+        }
+      }
+
+      assertEquals(1, connections.size());
+      assertEquals(0, HttpConnectionPool.getStats().getLeased());
+      assertTrue(HttpConnectionPool.getStats().getAvailable() >= 1);
+    } finally {
+      server.stop(0);
+    }
+  }
+}
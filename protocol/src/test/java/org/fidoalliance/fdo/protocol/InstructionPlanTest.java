@@ -0,0 +1,77 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.fidoalliance.fdo.protocol.db.FdoSysInstruction;
+import org.fidoalliance.fdo.protocol.db.InstructionPlan;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoDocument;
+import org.fidoalliance.fdo.protocol.serviceinfo.DevMod;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks instruction documents are compiled once and filters resolve as before.
+ */
+public class InstructionPlanTest {
+
+  private static final String DOCUMENT = "["
+      + "{\"filter\":{\"devmod:os\":\"Linux\"},\"filedesc\":\"a.sh\",\"resource\":\"a.sh\"},"
+      + "{\"exec\":[\"sh\",\"a.sh\"]},"
+      + "{\"filter\":{\"devmod:os\":\"Linux\",\"devmod:arch\":\"X86_64\"},"
+      + "\"exec\":[\"sh\",\"b.sh\"]},"
+      + "{\"filter\":{\"devmod:os\":\"Linux\"},\"exec\":[\"sh\",\"c.sh\"]},"
+      + "{\"filter\":{\"devmod:device\":\"sim\"},\"exec\":[\"sh\",\"d.sh\"]}"
+      + "]";
+
+  private Map<String, String> devMod(String os, String arch) {
+    Map<String, String> map = new HashMap<>();
+    map.put(DevMod.KEY_OS, os);
+    map.put(DevMod.KEY_ARCH, arch);
+    map.put(DevMod.KEY_DEVICE, "fdo");
+    map.put(DevMod.KEY_VERSION, "1.1");
+    return map;
+  }
+
+  @Test
+  public void planTest() throws IOException {
+    InstructionPlan plan = InstructionPlan.compile(DOCUMENT);
+    assertSame(plan, InstructionPlan.compile(new String(DOCUMENT)));
+    assertEquals(5, plan.getInstructions().length);
+
+    // a session document finds the plan by version, or by content without one
+    ServiceInfoDocument document = new ServiceInfoDocument();
+    document.setInstructions(DOCUMENT);
+    assertSame(plan, InstructionPlan.of(document));
+    document.setVersion(plan.getVersion());
+    assertSame(plan, InstructionPlan.of(document));
+
+    InstructionPlan other = InstructionPlan.compile("[{\"exec\":[\"true\"]}]");
+    assertNotEquals(plan.getVersion(), other.getVersion());
+    assertEquals(0, InstructionPlan.compile(null).getInstructions().length);
+    assertThrows(IOException.class, () -> InstructionPlan.compile("{\"exec\""));
+
+    // devices with the same devmod values share a selection
+    InstructionPlan.Selection selection = plan.select(devMod("Linux", "X86_64"));
+    assertSame(selection, plan.select(devMod("Linux", "X86_64")));
+    assertNotSame(selection, plan.select(devMod("Linux", "ARM")));
+
+    // the compiled filters agree with matching every filter entry
+    for (Map<String, String> devMap : List.of(devMod("Linux", "X86_64"),
+        devMod("Linux", "ARM"), devMod("Windows", "X86_64"))) {
+      InstructionPlan.Selection resolved = plan.select(devMap);
+      FdoSysInstruction[] instructions = plan.getInstructions();
+      for (int i = 0; i < instructions.length; i++) {
+        boolean filtered = instructions[i].getFilter() != null
+            && !devMap.entrySet().containsAll(instructions[i].getFilter().entrySet());
+        assertEquals(filtered, resolved.isFiltered(i), devMap + " " + i);
+      }
+    }
+  }
+}
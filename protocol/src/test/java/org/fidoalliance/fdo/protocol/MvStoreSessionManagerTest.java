@@ -0,0 +1,76 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.fidoalliance.fdo.protocol.db.MvStoreSessionManager;
+import org.fidoalliance.fdo.protocol.message.Nonce;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the MVStore session manager keeps, expires and recovers sessions.
+ */
+public class MvStoreSessionManagerTest {
+
+  private SimpleStorage newStorage(Nonce nonce) {
+    SimpleStorage storage = new SimpleStorage();
+    storage.put(Nonce.class, nonce);
+    return storage;
+  }
+
+  @Test
+  public void sessionTest() throws IOException {
+    Path dir = Files.createTempDirectory("sessions");
+    String path = dir.resolve("sessions.mv").toString();
+    Nonce first = Nonce.fromRandomUuid();
+    Nonce second = Nonce.fromRandomUuid();
+    try {
+      try (MvStoreSessionManager manager = new MvStoreSessionManager(path,
+          Duration.ofHours(1), Duration.ofHours(1), false)) {
+        manager.saveSession("a", newStorage(first));
+        assertEquals(first, manager.getSession("a").get(Nonce.class));
+
+        manager.updateSession("a", newStorage(second));
+        assertEquals(second, manager.getSession("a").get(Nonce.class));
+
+        manager.saveSession("b", newStorage(first));
+        manager.expireSession("b");
+        assertThrows(InvalidJwtTokenException.class, () -> manager.getSession("b"));
+      }
+
+      // committed sessions survive a restart
+      try (MvStoreSessionManager manager = new MvStoreSessionManager(path,
+          Duration.ofHours(1), Duration.ofHours(1), true)) {
+        assertEquals(second, manager.getSession("a").get(Nonce.class));
+      }
+    } finally {
+      Files.deleteIfExists(dir.resolve("sessions.mv"));
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  @Test
+  public void ttlTest() throws Exception {
+    Path dir = Files.createTempDirectory("sessions");
+    try (MvStoreSessionManager manager = new MvStoreSessionManager(
+        dir.resolve("sessions.mv").toString(), Duration.ofMillis(100), Duration.ofHours(1),
+        false)) {
+      manager.saveSession("a", newStorage(Nonce.fromRandomUuid()));
+      manager.getSession("a");
+      Thread.sleep(150);
+      manager.saveSession("b", newStorage(Nonce.fromRandomUuid()));
+
+      assertThrows(InvalidJwtTokenException.class, () -> manager.getSession("a"));
+      assertEquals(1, manager.purge());
+      manager.getSession("b");
+    } finally {
+      Files.deleteIfExists(dir.resolve("sessions.mv"));
+      Files.deleteIfExists(dir);
+    }
+  }
+}
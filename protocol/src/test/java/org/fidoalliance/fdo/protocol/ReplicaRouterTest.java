@@ -0,0 +1,143 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.util.Date;
+import java.util.Map;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.ReplicaRouter;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucherStatus;
+import org.fidoalliance.fdo.protocol.entity.RvRedirect;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks read routing between two local H2 databases.
+ */
+public class ReplicaRouterTest {
+
+  private static final String REPLICATED = "replicated";
+  private static final String MISSING = "missing";
+
+  private RvRedirect newRedirect(String guid, byte value) {
+    RvRedirect redirect = new RvRedirect();
+    redirect.setGuid(guid);
+    redirect.setData(new byte[]{value});
+    redirect.setExpiry(new Date(System.currentTimeMillis() + 60000));
+    redirect.setCreatedOn(new Date());
+    return redirect;
+  }
+
+  private void insert(SessionFactory factory, RvRedirect redirect) {
+    try (StatelessSession session = factory.openStatelessSession()) {
+      Transaction trans = session.beginTransaction();
+      session.upsert(redirect);
+      trans.commit();
+    }
+  }
+
+  private SessionFactory buildFactory(String name) {
+    return HibernateUtil.buildReplicaSessionFactory(Map.of(
+        "hibernate.connection.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+        "hibernate.hbm2ddl.auto", "create-drop"));
+  }
+
+  @Test
+  public void routeTest() {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    SessionFactory primary = buildFactory("primary");
+    SessionFactory replica = buildFactory("replica");
+    ReplicaRouter.trackWrites(primary);
+    try {
+      insert(replica, newRedirect(REPLICATED, (byte) 1));
+      insert(primary, newRedirect(REPLICATED, (byte) 2));
+      insert(primary, newRedirect(MISSING, (byte) 3));
+
+      // no staleness bound, reads go to the replica
+      ReplicaRouter router = new ReplicaRouter(primary, replica, 0);
+      assertArrayEquals(new byte[]{1}, router.find(RvRedirect.class, REPLICATED).getData());
+      assertEquals(1, router.getReplicaReads());
+
+      // not yet replicated, falls back to the primary
+      assertArrayEquals(new byte[]{3}, router.find(RvRedirect.class, MISSING).getData());
+      assertEquals(1, router.getFallbackCount());
+      assertNull(router.find(RvRedirect.class, "unknown"));
+
+      // a committed write keeps the entity on the primary within the bound
+      try (Session session = primary.openSession()) {
+        Transaction trans = session.beginTransaction();
+        session.merge(newRedirect(REPLICATED, (byte) 4));
+        trans.commit();
+      }
+      ReplicaRouter bounded = new ReplicaRouter(primary, replica, 60000);
+      assertArrayEquals(new byte[]{4}, bounded.find(RvRedirect.class, REPLICATED).getData());
+      assertEquals(1, bounded.getPrimaryReads());
+      assertEquals(0, bounded.getReplicaReads());
+
+      // without a replica everything is read from the primary
+      ReplicaRouter single = new ReplicaRouter(primary, null, 0);
+      assertArrayEquals(new byte[]{3}, single.find(RvRedirect.class, MISSING).getData());
+      assertEquals(0, single.getFallbackCount());
+    } finally {
+      replica.close();
+      primary.close();
+    }
+  }
+
+  @Test
+  public void sharedTableTest() {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    SessionFactory primary = buildFactory("sharedprimary");
+    SessionFactory replica = buildFactory("sharedreplica");
+    ReplicaRouter.trackWrites(primary);
+    try {
+      OnboardingVoucher voucher = new OnboardingVoucher();
+      voucher.setGuid("shared");
+      voucher.setData(new byte[]{1});
+      voucher.setCreatedOn(new Date());
+      try (Session session = primary.openSession()) {
+        Transaction trans = session.beginTransaction();
+        session.persist(voucher);
+        trans.commit();
+      }
+
+      // a status write makes voucher reads fresh, both map onboarding_voucher
+      ReplicaRouter.clearWrites();
+      ReplicaRouter router = new ReplicaRouter(primary, replica, 60000);
+      assertSame(replica, router.getSessionFactory(OnboardingVoucher.class));
+      try (Session session = primary.openSession()) {
+        Transaction trans = session.beginTransaction();
+        OnboardingVoucherStatus status = session.find(OnboardingVoucherStatus.class, "shared");
+        status.setTo0Expiry(new Date());
+        trans.commit();
+      }
+      assertSame(primary, router.getSessionFactory(OnboardingVoucher.class));
+
+      // and the other way around
+      ReplicaRouter.clearWrites();
+      assertSame(replica, router.getSessionFactory(OnboardingVoucherStatus.class));
+      try (Session session = primary.openSession()) {
+        Transaction trans = session.beginTransaction();
+        session.find(OnboardingVoucher.class, "shared").setReplacement(new byte[]{2});
+        trans.commit();
+      }
+      assertSame(primary, router.getSessionFactory(OnboardingVoucherStatus.class));
+
+      // stateless writes marked by class cover the shared table too
+      ReplicaRouter.clearWrites();
+      ReplicaRouter.markWritten(OnboardingVoucher.class);
+      assertSame(primary, router.getSessionFactory(OnboardingVoucherStatus.class));
+    } finally {
+      replica.close();
+      primary.close();
+    }
+  }
+}
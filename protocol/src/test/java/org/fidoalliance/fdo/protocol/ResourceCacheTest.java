@@ -0,0 +1,179 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fidoalliance.fdo.protocol.db.ResourceCache;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks resources are loaded once, shared between readers and evicted when unused.
+ */
+public class ResourceCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private byte[] content(int length, int seed) {
+    byte[] data = new byte[length];
+    new Random(seed).nextBytes(data);
+    return data;
+  }
+
+  private ResourceCache.Handle acquire(String name, byte[] data) throws IOException {
+    return ResourceCache.acquire(name, Arrays.copyOf(data, 48), data.length, out -> {
+      loads.incrementAndGet();
+      out.write(data);
+    });
+  }
+
+  @Test
+  public void cacheTest() throws Exception {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    ResourceCache.invalidateAll();
+    ResourceCache.setLimits(1024, 4096, 64 * 1024);
+    try {
+      run();
+    } finally {
+      ResourceCache.invalidateAll();
+      ResourceCache.setLimits(1024 * 1024, 64 * 1024 * 1024, 4L * 1024 * 1024 * 1024);
+    }
+  }
+
+  @Test
+  public void pinTest() throws Exception {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    ResourceCache.invalidateAll();
+    ResourceCache.setLimits(1024, 0, 0);
+    try {
+      final byte[] large = content(20 * 1024, 5);
+      final long evictions = ResourceCache.getEvictionCount();
+
+      // a pinned resource survives pressure between reads and is not loaded again
+      final String pin = ResourceCache.pin(acquire("pinned.bin", large));
+      try (ResourceCache.Handle handle = acquire("other.bin", content(20 * 1024, 6))) {
+        assertEquals(40 * 1024, ResourceCache.getMappedBytes());
+      }
+      ResourceCache.invalidateAll();
+      assertEquals(1, ResourceCache.getEntryCount());
+      assertArrayEquals(Arrays.copyOfRange(large, 100, 200),
+          ResourceCache.getPinned(pin).read(100, 100));
+      assertEquals(2, loads.get());
+
+      // released once the transfer ends
+      ResourceCache.unpin(pin);
+      assertNull(ResourceCache.getPinned(pin));
+      assertEquals(0, ResourceCache.getEntryCount());
+      assertEquals(evictions + 2, ResourceCache.getEvictionCount());
+
+      // or once it has been abandoned
+      ResourceCache.setPinTimeout(0);
+      ResourceCache.pin(acquire("pinned.bin", large));
+      assertEquals(1, ResourceCache.getPinCount());
+      assertEquals(1, ResourceCache.expirePins());
+      assertEquals(0, ResourceCache.getPinCount());
+      assertEquals(0, ResourceCache.getEntryCount());
+    } finally {
+      ResourceCache.setPinTimeout(600);
+      ResourceCache.invalidateAll();
+      ResourceCache.setLimits(1024 * 1024, 64 * 1024 * 1024, 4L * 1024 * 1024 * 1024);
+    }
+  }
+
+  private void run() throws Exception {
+
+    final byte[] small = content(1000, 1);
+    final byte[] large = content(40 * 1024 + 3, 2);
+    final long hits = ResourceCache.getHitCount();
+    final long misses = ResourceCache.getMissCount();
+    final long evictions = ResourceCache.getEvictionCount();
+
+    // concurrent readers of the same resource load it once
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<byte[]>> reads = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        final int offset = i * 1000;
+        reads.add(executor.submit(() -> {
+          try (ResourceCache.Handle handle = acquire("large.bin", large)) {
+            return handle.read(offset, 1000);
+          }
+        }));
+      }
+      for (int i = 0; i < reads.size(); i++) {
+        assertArrayEquals(Arrays.copyOfRange(large, i * 1000, i * 1000 + 1000),
+            reads.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, loads.get());
+    assertEquals(misses + 1, ResourceCache.getMissCount());
+    assertEquals(hits + 31, ResourceCache.getHitCount());
+    assertEquals(large.length, ResourceCache.getMappedBytes());
+
+    try (ResourceCache.Handle handle = acquire("small.bin", small)) {
+      assertArrayEquals(small, handle.read(0, 2000));
+      assertEquals(0, handle.read(small.length, 10).length);
+    }
+    assertEquals(small.length, ResourceCache.getHeapBytes());
+
+    // a resource in use is kept over the bound, unused ones are evicted
+    final byte[] other = content(30 * 1024, 3);
+    try (ResourceCache.Handle held = acquire("large.bin", large);
+        ResourceCache.Handle handle = acquire("other.bin", other)) {
+      assertEquals(large.length + other.length, ResourceCache.getMappedBytes());
+      assertArrayEquals(Arrays.copyOfRange(other, 100, 200), handle.read(100, 100));
+      assertArrayEquals(Arrays.copyOfRange(large, 100, 200), held.read(100, 100));
+    }
+    assertEquals(evictions + 1, ResourceCache.getEvictionCount());
+    assertEquals(large.length, ResourceCache.getMappedBytes());
+
+    // a new version of a resource is a new entry
+    final byte[] changed = content(1000, 4);
+    try (ResourceCache.Handle handle = acquire("small.bin", changed)) {
+      assertArrayEquals(changed, handle.read(0, 1000));
+    }
+    assertEquals(3, ResourceCache.getEntryCount());
+
+    // a spooled download is taken over by the cache
+    Path spool = Files.createTempFile("resource", ".tmp");
+    Files.write(spool, large);
+    ResourceCache.put("http://localhost/large.bin", Arrays.copyOf(large, 48), spool);
+    try (ResourceCache.Handle handle = acquire("http://localhost/large.bin", large)) {
+      assertArrayEquals(large, handle.read(0, large.length));
+    }
+    assertEquals(false, Files.exists(spool));
+
+    // a failed load is not cached
+    final int count = loads.get();
+    assertThrows(IOException.class, () -> ResourceCache.acquire("missing.bin", new byte[48],
+        10, out -> {
+          throw new IOException("missing");
+        }));
+    assertThrows(IOException.class, () -> ResourceCache.acquire("truncated.bin",
+        Arrays.copyOf(small, 48), small.length, out -> out.write(small, 0, 10)));
+    try (ResourceCache.Handle handle = acquire("truncated.bin", small)) {
+      assertArrayEquals(small, handle.read(0, small.length));
+    }
+    assertEquals(count + 1, loads.get());
+
+    ResourceCache.invalidateAll();
+    assertEquals(0, ResourceCache.getEntryCount());
+    assertEquals(0, ResourceCache.getHeapBytes());
+    assertEquals(0, ResourceCache.getMappedBytes());
+  }
+}
@@ -0,0 +1,133 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.RvRedirectCache;
+import org.fidoalliance.fdo.protocol.db.RvRedirectSweeper;
+import org.fidoalliance.fdo.protocol.entity.RvRedirect;
+import org.fidoalliance.fdo.protocol.message.To2RedirectEntry;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks TO1 redirects are cached until they expire and expired redirects are swept.
+ */
+public class RvRedirectCacheTest {
+
+  private RvRedirect newRedirect(String guid, long expiresIn) throws IOException {
+    return newRedirect(guid, System.currentTimeMillis(), expiresIn);
+  }
+
+  private RvRedirect newRedirect(String guid, long now, long expiresIn) throws IOException {
+    RvRedirect redirect = new RvRedirect();
+    redirect.setGuid(guid);
+    redirect.setData(Mapper.INSTANCE.writeValue(new To2RedirectEntry()));
+    redirect.setExpiry(new Date(now + expiresIn));
+    redirect.setCreatedOn(new Date(now));
+    return redirect;
+  }
+
+  private Clock clockAt(Instant instant) {
+    return Clock.fixed(instant, ZoneOffset.UTC);
+  }
+
+  @Test
+  public void cacheTest() throws Exception {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    RvRedirectCache.invalidateAll();
+    final Instant now = Instant.now();
+    RvRedirectCache.setClock(clockAt(now));
+    try {
+      run(now);
+    } finally {
+      RvRedirectCache.setClock(Clock.systemUTC());
+    }
+  }
+
+  private void run(Instant now) throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    RvRedirect stored = newRedirect("a", now.toEpochMilli(), 200);
+
+    To2RedirectEntry entry = RvRedirectCache.get("a", () -> {
+      loads.incrementAndGet();
+      return stored;
+    });
+    assertNotNull(entry);
+    final long hits = RvRedirectCache.getHitCount();
+    assertSame(entry, RvRedirectCache.get("a", () -> {
+      loads.incrementAndGet();
+      return stored;
+    }));
+    assertEquals(1, loads.get());
+    assertEquals(hits + 1, RvRedirectCache.getHitCount());
+
+    // expired redirects are neither served nor cached
+    RvRedirectCache.setClock(clockAt(now.plusMillis(300)));
+    assertNull(RvRedirectCache.get("a", () -> {
+      loads.incrementAndGet();
+      return stored;
+    }));
+    assertEquals(2, loads.get());
+    assertEquals(0, RvRedirectCache.getSize());
+
+    // a stored redirect replaces the cached one
+    To2RedirectEntry renewed = new To2RedirectEntry();
+    RvRedirectCache.put("a", renewed, now.toEpochMilli() + 60000);
+    assertSame(renewed, RvRedirectCache.get("a", () -> null));
+
+    RvRedirectCache.invalidate("a");
+    assertNull(RvRedirectCache.get("a", () -> null));
+  }
+
+  @Test
+  public void sweepTest() throws Exception {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    SessionFactory factory = HibernateUtil.buildReplicaSessionFactory(Map.of(
+        "hibernate.connection.url", "jdbc:h2:mem:redirects;DB_CLOSE_DELAY=-1",
+        "hibernate.hbm2ddl.auto", "create-drop"));
+    try (RvRedirectSweeper sweeper = new RvRedirectSweeper(factory, Duration.ofHours(1), 10)) {
+      try (StatelessSession session = factory.openStatelessSession()) {
+        Transaction trans = session.beginTransaction();
+        for (int i = 0; i < 25; i++) {
+          session.insert(newRedirect("expired-" + i, -1000));
+        }
+        for (int i = 0; i < 5; i++) {
+          session.insert(newRedirect("live-" + i, 60000));
+        }
+        trans.commit();
+      }
+
+      assertEquals(25, sweeper.sweep());
+      assertEquals(0, sweeper.sweep());
+      assertEquals(2, sweeper.getSweepCount());
+      assertEquals(25, sweeper.getRemovedCount());
+
+      try (StatelessSession session = factory.openStatelessSession()) {
+        assertEquals(5L, session.createQuery("select count(r) from RvRedirect r", Long.class)
+            .getSingleResult());
+      }
+
+      // the sweep follows the cache clock
+      RvRedirectCache.setClock(clockAt(Instant.now().plusSeconds(120)));
+      assertEquals(5, sweeper.sweep());
+    } finally {
+      RvRedirectCache.setClock(Clock.systemUTC());
+      factory.close();
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package org.fidoalliance.fdo.protocol;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Blob;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.SessionCodec;
+import org.fidoalliance.fdo.protocol.entity.ProtocolSession;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Compares session bytes written per onboarding against the CPU cost of compressing them.
+ *
+ * <p>Runs DI against the test server, records every protocol session row written, then
+ * re-encodes the recorded sessions with each codec setting. Run with the test classpath from
+ * the protocol directory: java org.fidoalliance.fdo.protocol.SessionCodecBenchmark [runs]</p>
+ */
+public class SessionCodecBenchmark {
+
+  private static final int ITERATIONS = 200;
+
+  private static final List<byte[]> recorded = new ArrayList<>();
+
+  /**
+   * Records the session data written by the session manager.
+   */
+  private static class Recorder implements PostInsertEventListener, PostUpdateEventListener {
+
+    private void record(EntityPersister persister, Object[] state) {
+      if (!persister.getEntityName().equals(ProtocolSession.class.getName())) {
+        return;
+      }
+      final int index = Arrays.asList(persister.getPropertyNames()).indexOf("data");
+      try {
+        synchronized (recorded) {
+          recorded.add(SessionCodec.unwrap(HibernateUtil.unwrap((Blob) state[index])));
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+      record(event.getPersister(), event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+      record(event.getPersister(), event.getState());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+      return false;
+    }
+  }
+
+  private static void measure(String label, SessionCodec codec, List<SimpleStorage> sessions,
+      int runs) throws IOException {
+    long written = 0;
+    for (SimpleStorage storage : sessions) {
+      written += codec.encode(storage).length;
+    }
+
+    final List<byte[]> encoded = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      encoded.clear();
+      for (SimpleStorage storage : sessions) {
+        encoded.add(codec.encode(storage));
+      }
+    }
+    final double encodeMicros = (System.nanoTime() - start) / 1e3 / ITERATIONS / runs;
+
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      for (byte[] data : encoded) {
+        codec.decode(data);
+      }
+    }
+    final double decodeMicros = (System.nanoTime() - start) / 1e3 / ITERATIONS / runs;
+
+    System.out.printf("%-22s bytes/onboarding=%d encode us/onboarding=%.0f"
+            + " decode us/onboarding=%.0f%n", label, written / runs, encodeMicros,
+        decodeMicros);
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args The number of onboardings to record, 20 by default.
+   * @throws Exception An error occurred.
+   */
+  public static void main(String[] args) throws Exception {
+    final int runs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+
+    final Recorder recorder = new Recorder();
+    final EventListenerRegistry registry = HibernateUtil.getSessionFactory()
+        .unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry().getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_INSERT, recorder);
+    registry.appendListeners(EventType.POST_UPDATE, recorder);
+
+    final StandardHttpServer server = new StandardHttpServer();
+    server.run();
+    try {
+      for (int i = 0; i < runs; i++) {
+        new DiSample().run();
+      }
+
+      final List<SimpleStorage> sessions = new ArrayList<>();
+      long maxSize = 0;
+      for (byte[] data : recorded) {
+        sessions.add(Mapper.INSTANCE.readValue(data, SimpleStorage.class));
+        maxSize = Math.max(maxSize, data.length);
+      }
+      System.out.printf("recorded %d session writes, largest %d bytes%n", sessions.size(),
+          maxSize);
+
+      measure("plain", new SessionCodec(0, 0), sessions, runs);
+      for (int threshold : new int[]{256, 1024}) {
+        // level 6 is the zlib default that DEFAULT_COMPRESSION selects
+        for (int level : new int[]{Deflater.BEST_SPEED, 6}) {
+          measure("threshold=" + threshold + " level=" + level,
+              new SessionCodec(threshold, level), sessions, runs);
+        }
+      }
+    } finally {
+      HibernateUtil.shutdown();
+      System.exit(0);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.fidoalliance.fdo.protocol.db.SessionCodec;
+import org.fidoalliance.fdo.protocol.message.Nonce;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoKeyValuePair;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks session storage round trips through the plain and compressed formats.
+ */
+public class SessionCodecTest {
+
+  private SimpleStorage newStorage(byte[] value) {
+    ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName("fdo_sys:filedesc");
+    kv.setValue(value);
+
+    SimpleStorage storage = new SimpleStorage();
+    storage.put(Nonce.class, Nonce.fromRandomUuid());
+    storage.put(ServiceInfoKeyValuePair.class, kv);
+    return storage;
+  }
+
+  private void assertSameStorage(SimpleStorage expected, SimpleStorage actual)
+      throws IOException {
+    assertArrayEquals(Mapper.INSTANCE.writeValue(expected), Mapper.INSTANCE.writeValue(actual));
+  }
+
+  @Test
+  public void codecTest() throws IOException {
+    SessionCodec codec = new SessionCodec(512, Deflater.BEST_SPEED);
+
+    // small storage stays plain cbor
+    SimpleStorage small = newStorage(new byte[16]);
+    byte[] plain = codec.encode(small);
+    assertArrayEquals(Mapper.INSTANCE.writeValue(small), plain);
+    assertSameStorage(small, codec.decode(plain));
+
+    // large storage is compressed
+    SimpleStorage large = newStorage(new byte[4096]);
+    byte[] compressed = codec.encode(large);
+    assertEquals(0x01, compressed[0]);
+    assertTrue(compressed.length < 4096 / 4);
+    assertSameStorage(large, codec.decode(compressed));
+
+    // rows written without compression still decode, and the reverse
+    SessionCodec disabled = new SessionCodec(0, Deflater.BEST_SPEED);
+    byte[] legacy = disabled.encode(large);
+    assertSameStorage(large, codec.decode(legacy));
+    assertSameStorage(large, disabled.decode(compressed));
+
+    // incompressible storage is kept plain
+    byte[] random = new byte[4096];
+    new Random(1).nextBytes(random);
+    SimpleStorage noise = newStorage(random);
+    assertArrayEquals(Mapper.INSTANCE.writeValue(noise), codec.encode(noise));
+
+    // truncated data is rejected
+    assertThrows(IOException.class, () -> codec.decode(
+        Arrays.copyOf(compressed, compressed.length / 2)));
+  }
+}
@@ -0,0 +1,165 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.MvStoreSessionManager;
+import org.fidoalliance.fdo.protocol.db.StandardServerSessionManager;
+import org.fidoalliance.fdo.protocol.dispatch.SessionManager;
+import org.fidoalliance.fdo.protocol.message.MsgType;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+import org.fidoalliance.fdo.protocol.message.To2DeviceInfoReady;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks concurrent updates of a session never overwrite each other and repeated requests
+ * are answered with the first response.
+ */
+public class SessionConflictTest {
+
+  private static final int THREADS = 8;
+  private static final int UPDATES = 25;
+
+  private SessionFactory buildFactory(String name) {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    return HibernateUtil.buildReplicaSessionFactory(Map.of(
+        "hibernate.connection.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+        "hibernate.hbm2ddl.auto", "create-drop"));
+  }
+
+  private SimpleStorage newStorage(int count) {
+    To2DeviceInfoReady counter = new To2DeviceInfoReady();
+    counter.setMaxMessageSize(count);
+    SimpleStorage storage = new SimpleStorage();
+    storage.put(To2DeviceInfoReady.class, counter);
+    return storage;
+  }
+
+  private void contend(SessionManager manager) throws Exception {
+    manager.saveSession("counter", newStorage(0));
+    AtomicInteger conflicts = new AtomicInteger();
+
+    // every thread increments the counter, re-reading the session after losing a race
+    Callable<Void> task = () -> {
+      for (int i = 0; i < UPDATES; i++) {
+        while (true) {
+          SimpleStorage storage = manager.getSession("counter");
+          To2DeviceInfoReady counter = storage.get(To2DeviceInfoReady.class);
+          counter.setMaxMessageSize(counter.getMaxMessageSize() + 1);
+          try {
+            manager.updateSession("counter", storage);
+            break;
+          } catch (SessionConflictException e) {
+            conflicts.incrementAndGet();
+          }
+        }
+      }
+      return null;
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    SimpleStorage storage = manager.getSession("counter");
+    assertEquals(THREADS * UPDATES,
+        storage.get(To2DeviceInfoReady.class).getMaxMessageSize());
+    assertTrue(conflicts.get() > 0);
+
+    // a storage read before the last update is stale
+    SimpleStorage stale = manager.getSession("counter");
+    manager.updateSession("counter", manager.getSession("counter"));
+    assertThrows(SessionConflictException.class,
+        () -> manager.updateSession("counter", stale));
+  }
+
+  @Test
+  public void databaseTest() throws Exception {
+    SessionFactory factory = buildFactory("sessions");
+    try {
+      contend(new StandardServerSessionManager(factory));
+    } finally {
+      factory.close();
+    }
+  }
+
+  @Test
+  public void mvStoreTest() throws Exception {
+    Path dir = Files.createTempDirectory("sessions");
+    try (MvStoreSessionManager manager = new MvStoreSessionManager(
+        dir.resolve("sessions.mv").toString(), Duration.ofHours(1), Duration.ofHours(1),
+        false)) {
+      contend(manager);
+    } finally {
+      Files.deleteIfExists(dir.resolve("sessions.mv"));
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  private DispatchMessage newMessage(String token, byte[] message) {
+    DispatchMessage msg = new DispatchMessage();
+    msg.setMsgType(MsgType.TO2_DEVICE_SERVICE_INFO);
+    msg.setAuthToken(token);
+    msg.setMessage(message);
+    return msg;
+  }
+
+  @Test
+  public void replayTest() throws IOException {
+    SessionFactory factory = buildFactory("replay");
+    try {
+      StandardServerSessionManager manager = new StandardServerSessionManager(factory);
+      StandardMessageDispatcher dispatcher = new StandardMessageDispatcher();
+      manager.saveSession("s", newStorage(0));
+
+      // two copies of a request race, the loser answers with the winner's response
+      SimpleStorage first = manager.getSession("s");
+      SimpleStorage second = manager.getSession("s");
+      DispatchMessage request = newMessage("s", new byte[]{1, 2, 3});
+
+      DispatchMessage response = newMessage("s", new byte[]{9});
+      dispatcher.updateSession(manager, first, request, response);
+      DispatchMessage duplicate = newMessage("s", new byte[]{8});
+      dispatcher.updateSession(manager, second, request, duplicate);
+      assertArrayEquals(new byte[]{9}, duplicate.getMessage());
+
+      // a request repeated after the update is replayed
+      DispatchMessage repeated = newMessage("s", null);
+      assertTrue(dispatcher.replayResponse(manager.getSession("s"), request, repeated));
+      assertArrayEquals(new byte[]{9}, repeated.getMessage());
+
+      // a different request on a stale session still fails
+      assertThrows(SessionConflictException.class,
+          () -> dispatcher.updateSession(manager, second,
+              newMessage("s", new byte[]{4}), newMessage("s", new byte[]{7})));
+    } finally {
+      factory.close();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package org.fidoalliance.fdo.protocol;
+
+import java.io.Closeable;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.db.MvStoreSessionManager;
+import org.fidoalliance.fdo.protocol.db.StandardServerSessionManager;
+import org.fidoalliance.fdo.protocol.dispatch.SessionManager;
+import org.fidoalliance.fdo.protocol.message.Nonce;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+
+/**
+ * Compares the Hibernate and MVStore session managers.
+ *
+ * <p>Each simulated protocol run saves a session, reads and updates it as the TO2 messages
+ * do, then expires it. Run with the test classpath from the protocol directory:
+ * java org.fidoalliance.fdo.protocol.SessionManagerBenchmark [runs] [threads]</p>
+ */
+public class SessionManagerBenchmark {
+
+  private static final int MESSAGES = 8;
+
+  private static void run(SessionManager manager) throws Exception {
+    final String name = UUID.randomUUID().toString();
+    SimpleStorage storage = new SimpleStorage();
+    storage.put(Nonce.class, Nonce.fromRandomUuid());
+    manager.saveSession(name, storage);
+    for (int i = 0; i < MESSAGES; i++) {
+      storage = manager.getSession(name);
+      storage.put(Nonce.class, Nonce.fromRandomUuid());
+      manager.updateSession(name, storage);
+    }
+    manager.expireSession(name);
+  }
+
+  private static double measure(SessionManager manager, int runs, int threads)
+      throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final long start = System.nanoTime();
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < runs; i++) {
+        futures.add(executor.submit(() -> {
+          run(manager);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      return runs / ((System.nanoTime() - start) / 1e9);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args The number of protocol runs and the number of threads.
+   * @throws Exception An error occurred.
+   */
+  public static void main(String[] args) throws Exception {
+    final int runs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    final int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+
+    final Path dir = Files.createTempDirectory("sessions");
+    final List<String> files = List.of("sessions.mv", "synced.mv", "mapped.mv");
+    final List<SessionManager> managers = List.of(
+        new StandardServerSessionManager(),
+        new MvStoreSessionManager(dir.resolve(files.get(0)).toString(),
+            Duration.ofHours(2), Duration.ofHours(1), false),
+        new MvStoreSessionManager(dir.resolve(files.get(1)).toString(),
+            Duration.ofHours(2), Duration.ofHours(1), true),
+        new MvStoreSessionManager("nioMapped:" + dir.resolve(files.get(2)),
+            Duration.ofHours(2), Duration.ofHours(1), false));
+    try {
+      final String[] labels = {"hibernate", "mvstore", "mvstore sync", "mvstore mapped"};
+      for (int i = 0; i < managers.size(); i++) {
+        measure(managers.get(i), runs / 10, threads); // warm up
+        for (int t : new int[]{1, threads}) {
+          System.out.printf("%s threads=%d runs/s=%.1f%n",
+              labels[i], t, measure(managers.get(i), runs, t));
+        }
+      }
+    } finally {
+      for (SessionManager manager : managers) {
+        if (manager instanceof Closeable) {
+          ((Closeable) manager).close();
+        }
+      }
+      for (String file : files) {
+        Files.deleteIfExists(dir.resolve(file));
+      }
+      Files.deleteIfExists(dir);
+      HibernateUtil.shutdown();
+      System.exit(0);
+    }
+  }
+}
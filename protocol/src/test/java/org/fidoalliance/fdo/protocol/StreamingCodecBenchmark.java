@@ -0,0 +1,216 @@
+package org.fidoalliance.fdo.protocol;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.fidoalliance.fdo.protocol.message.CipherSuiteType;
+import org.fidoalliance.fdo.protocol.message.CoseSign1;
+import org.fidoalliance.fdo.protocol.message.CoseUnprotectedHeader;
+import org.fidoalliance.fdo.protocol.message.DeviceServiceInfo;
+import org.fidoalliance.fdo.protocol.message.EncryptionState;
+import org.fidoalliance.fdo.protocol.message.Guid;
+import org.fidoalliance.fdo.protocol.message.Hash;
+import org.fidoalliance.fdo.protocol.message.HashType;
+import org.fidoalliance.fdo.protocol.message.HelloDevice;
+import org.fidoalliance.fdo.protocol.message.Nonce;
+import org.fidoalliance.fdo.protocol.message.OwnerServiceInfo;
+import org.fidoalliance.fdo.protocol.message.ServiceInfo;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoKeyValuePair;
+import org.fidoalliance.fdo.protocol.message.SigInfo;
+import org.fidoalliance.fdo.protocol.message.SigInfoType;
+import org.fidoalliance.fdo.protocol.message.To2ProveHeaderPayload;
+import org.fidoalliance.fdo.protocol.serialization.GenericArraySerializer;
+import org.fidoalliance.fdo.protocol.serialization.GenericListSerializer;
+
+/**
+ * Compares the streaming codecs of the hot protocol messages with the generic array encoding.
+ *
+ * <p>The generic mapper restores the GenericArraySerializer and bean-as-array databind the
+ * messages used before, through mix-ins. Each message is encoded and decoded by both mappers
+ * and the time per operation is printed. Run with the test classpath from the protocol
+ * directory: java org.fidoalliance.fdo.protocol.StreamingCodecBenchmark [iterations]</p>
+ */
+public class StreamingCodecBenchmark {
+
+  @JsonSerialize(using = GenericArraySerializer.class)
+  @JsonDeserialize(using = JsonDeserializer.None.class)
+  private abstract static class GenericArray {
+
+  }
+
+  @JsonSerialize(using = GenericListSerializer.class)
+  @JsonDeserialize(using = JsonDeserializer.None.class)
+  private abstract static class GenericList {
+
+  }
+
+  private interface Codec {
+
+    byte[] encode(Object value) throws IOException;
+
+    Object decode(byte[] data, Class<?> type) throws IOException;
+  }
+
+  private static ObjectMapper getGenericMapper() {
+    final ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+    for (Class<?> type : new Class<?>[]{CoseSign1.class, DeviceServiceInfo.class,
+        OwnerServiceInfo.class, ServiceInfoKeyValuePair.class, EncryptionState.class,
+        To2ProveHeaderPayload.class, HelloDevice.class}) {
+      mapper.addMixIn(type, GenericArray.class);
+    }
+    mapper.addMixIn(ServiceInfo.class, GenericList.class);
+    return mapper;
+  }
+
+  private static ServiceInfo getServiceInfo() {
+    final ServiceInfo serviceInfo = new ServiceInfo();
+    for (int i = 0; i < 4; i++) {
+      final ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+      kv.setKeyName("fdo_sys:write");
+      kv.setValue(new byte[256]);
+      serviceInfo.add(kv);
+    }
+    return serviceInfo;
+  }
+
+  private static Map<String, Object> getMessages() {
+    final Map<String, Object> messages = new LinkedHashMap<>();
+
+    final CoseUnprotectedHeader uph = new CoseUnprotectedHeader();
+    uph.setCupNonce(Nonce.fromRandomUuid());
+    final CoseSign1 sign1 = new CoseSign1();
+    sign1.setProtectedHeader(new byte[]{(byte) 0xa1, 0x01, 0x26});
+    sign1.setUnprotectedHeader(uph);
+    sign1.setPayload(new byte[512]);
+    sign1.setSignature(new byte[64]);
+    messages.put("CoseSign1", sign1);
+
+    final ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName("devmod:os");
+    kv.setValue(new byte[]{0x65, 'L', 'i', 'n', 'u', 'x'});
+    messages.put("ServiceInfoKeyValuePair", kv);
+
+    final DeviceServiceInfo devInfo = new DeviceServiceInfo();
+    devInfo.setMore(false);
+    devInfo.setServiceInfo(getServiceInfo());
+    messages.put("DeviceServiceInfo", devInfo);
+
+    final OwnerServiceInfo ownerInfo = new OwnerServiceInfo();
+    ownerInfo.setServiceInfo(getServiceInfo());
+    messages.put("OwnerServiceInfo", ownerInfo);
+
+    final EncryptionState state = new EncryptionState();
+    state.setCipherSuite(CipherSuiteType.A256GCM);
+    state.setSek(new byte[32]);
+    state.setIv(new byte[12]);
+    state.setCounter(42);
+    messages.put("EncryptionState", state);
+
+    final SigInfo sigInfo = new SigInfo();
+    sigInfo.setSigInfoType(SigInfoType.SECP384R1);
+    final HelloDevice hello = new HelloDevice();
+    hello.setMaxMessageSize(1300);
+    hello.setGuid(Guid.fromRandomUuid());
+    hello.setProveTo2Ov(Nonce.fromRandomUuid());
+    hello.setKexSuiteName("ECDH384");
+    hello.setCipherSuiteName(CipherSuiteType.A256GCM);
+    hello.setSigInfo(sigInfo);
+    messages.put("HelloDevice", hello);
+
+    final Hash hmac = new Hash();
+    hmac.setHashType(HashType.HMAC_SHA384);
+    hmac.setHashValue(new byte[48]);
+    final Hash helloHash = new Hash();
+    helloHash.setHashType(HashType.SHA384);
+    helloHash.setHashValue(new byte[48]);
+    final To2ProveHeaderPayload payload = new To2ProveHeaderPayload();
+    payload.setHeader(new byte[256]);
+    payload.setNumEntries(3);
+    payload.setHmac(hmac);
+    payload.setNonce(Nonce.fromRandomUuid());
+    payload.setSigInfoB(sigInfo);
+    payload.setKexA(new byte[97]);
+    payload.setHelloHash(helloHash);
+    payload.setMaxMessageSize(0);
+    messages.put("To2ProveHeaderPayload", payload);
+
+    return messages;
+  }
+
+  private static double measureEncode(Codec codec, Object value, int iterations)
+      throws IOException {
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      codec.encode(value);
+    }
+    return (double) (System.nanoTime() - start) / iterations;
+  }
+
+  private static double measureDecode(Codec codec, byte[] data, Class<?> type, int iterations)
+      throws IOException {
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      codec.decode(data, type);
+    }
+    return (double) (System.nanoTime() - start) / iterations;
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args The number of encodes and decodes per message and codec, 200000 by default.
+   * @throws Exception An error occurred.
+   */
+  public static void main(String[] args) throws Exception {
+    final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    final ObjectMapper generic = getGenericMapper();
+    final Codec[] codecs = {
+        new Codec() {
+          @Override
+          public byte[] encode(Object value) throws IOException {
+            return generic.writeValueAsBytes(value);
+          }
+
+          @Override
+          public Object decode(byte[] data, Class<?> type) throws IOException {
+            return generic.readValue(data, type);
+          }
+        },
+        new Codec() {
+          @Override
+          public byte[] encode(Object value) throws IOException {
+            return Mapper.INSTANCE.writeValue(value);
+          }
+
+          @Override
+          public Object decode(byte[] data, Class<?> type) throws IOException {
+            return Mapper.INSTANCE.readValue(data, type);
+          }
+        }
+    };
+    final String[] labels = {"generic", "streaming"};
+
+    for (Map.Entry<String, Object> entry : getMessages().entrySet()) {
+      final Object value = entry.getValue();
+      final byte[] data = Mapper.INSTANCE.writeValue(value);
+      if (!Arrays.equals(data, codecs[0].encode(value))) {
+        throw new IllegalStateException(entry.getKey() + " encodings differ");
+      }
+
+      for (int i = 0; i < codecs.length; i++) {
+        measureEncode(codecs[i], value, iterations / 10); // warm up
+        measureDecode(codecs[i], data, value.getClass(), iterations / 10);
+        System.out.printf("%-24s %-9s bytes=%d encode ns/op=%.0f decode ns/op=%.0f%n",
+            entry.getKey(), labels[i], data.length,
+            measureEncode(codecs[i], value, iterations),
+            measureDecode(codecs[i], data, value.getClass(), iterations));
+      }
+    }
+  }
+}
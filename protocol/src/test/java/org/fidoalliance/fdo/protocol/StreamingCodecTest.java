@@ -0,0 +1,203 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.fidoalliance.fdo.protocol.message.CipherSuiteType;
+import org.fidoalliance.fdo.protocol.message.CoseSign1;
+import org.fidoalliance.fdo.protocol.message.CoseUnprotectedHeader;
+import org.fidoalliance.fdo.protocol.message.DeviceServiceInfo;
+import org.fidoalliance.fdo.protocol.message.EncryptionState;
+import org.fidoalliance.fdo.protocol.message.Guid;
+import org.fidoalliance.fdo.protocol.message.Hash;
+import org.fidoalliance.fdo.protocol.message.HashType;
+import org.fidoalliance.fdo.protocol.message.HelloDevice;
+import org.fidoalliance.fdo.protocol.message.Nonce;
+import org.fidoalliance.fdo.protocol.message.OwnerServiceInfo;
+import org.fidoalliance.fdo.protocol.message.ServiceInfo;
+import org.fidoalliance.fdo.protocol.message.ServiceInfoKeyValuePair;
+import org.fidoalliance.fdo.protocol.message.SigInfo;
+import org.fidoalliance.fdo.protocol.message.SigInfoType;
+import org.fidoalliance.fdo.protocol.message.SimpleStorage;
+import org.fidoalliance.fdo.protocol.message.To2ProveHeaderPayload;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the streaming codecs produce the same encoding as the generic array form.
+ */
+public class StreamingCodecTest {
+
+  private final ObjectMapper generic = new ObjectMapper(new CBORFactory());
+
+  private ServiceInfo getServiceInfo() {
+    ServiceInfo serviceInfo = new ServiceInfo();
+    ServiceInfoKeyValuePair kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName("devmod:active");
+    kv.setValue(new byte[]{(byte) 0xf5});
+    serviceInfo.add(kv);
+    kv = new ServiceInfoKeyValuePair();
+    kv.setKeyName("fdo_sys:filedesc");
+    kv.setValue(new byte[]{0x65, 'a', '.', 't', 'x', 't'});
+    serviceInfo.add(kv);
+    return serviceInfo;
+  }
+
+  private List<Object> toList(ServiceInfo serviceInfo) {
+    Object[] pairs = new Object[serviceInfo.size()];
+    for (int i = 0; i < pairs.length; i++) {
+      pairs[i] = Arrays.asList(serviceInfo.get(i).getKey(), serviceInfo.get(i).getValue());
+    }
+    return Arrays.asList(pairs);
+  }
+
+  @Test
+  public void coseSign1Test() throws IOException {
+    CoseUnprotectedHeader uph = new CoseUnprotectedHeader();
+    uph.setCupNonce(Nonce.fromRandomUuid());
+
+    CoseSign1 sign1 = new CoseSign1();
+    sign1.setProtectedHeader(new byte[]{(byte) 0xa1, 0x01, 0x26});
+    sign1.setUnprotectedHeader(uph);
+    sign1.setPayload(new byte[]{1, 2, 3, 4});
+    sign1.setSignature(new byte[64]);
+
+    byte[] data = Mapper.INSTANCE.writeValue(sign1);
+    byte[] list = generic.writeValueAsBytes(Arrays.asList(sign1.getProtectedHeader(), uph,
+        sign1.getPayload(), sign1.getSignature()));
+    assertEquals((byte) 0xd2, data[0]);
+    assertArrayEquals(list, Arrays.copyOfRange(data, 1, data.length));
+
+    CoseSign1 sign2 = Mapper.INSTANCE.readValue(data, CoseSign1.class);
+    assertArrayEquals(sign1.getProtectedHeader(), sign2.getProtectedHeader());
+    assertEquals(uph.getCupNonce(), sign2.getUnprotectedHeader().getCupNonce());
+    assertArrayEquals(sign1.getPayload(), sign2.getPayload());
+    assertArrayEquals(sign1.getSignature(), sign2.getSignature());
+
+    //untagged input is still accepted
+    sign2 = Mapper.INSTANCE.readValue(list, CoseSign1.class);
+    assertArrayEquals(sign1.getPayload(), sign2.getPayload());
+  }
+
+  @Test
+  public void serviceInfoTest() throws IOException {
+    DeviceServiceInfo devInfo = new DeviceServiceInfo();
+    devInfo.setMore(true);
+    devInfo.setServiceInfo(getServiceInfo());
+
+    byte[] data = Mapper.INSTANCE.writeValue(devInfo);
+    assertArrayEquals(generic.writeValueAsBytes(
+        Arrays.asList(true, toList(devInfo.getServiceInfo()))), data);
+
+    DeviceServiceInfo devInfo2 = Mapper.INSTANCE.readValue(data, DeviceServiceInfo.class);
+    assertTrue(devInfo2.isMore());
+    assertEquals(2, devInfo2.getServiceInfo().size());
+    assertEquals("fdo_sys:filedesc", devInfo2.getServiceInfo().get(1).getKey());
+    assertArrayEquals(devInfo.getServiceInfo().get(1).getValue(),
+        devInfo2.getServiceInfo().get(1).getValue());
+
+    OwnerServiceInfo ownerInfo = new OwnerServiceInfo();
+    ownerInfo.setDone(true);
+    ownerInfo.setServiceInfo(new ServiceInfo());
+
+    data = Mapper.INSTANCE.writeValue(ownerInfo);
+    assertArrayEquals(generic.writeValueAsBytes(Arrays.asList(false, true, List.of())), data);
+
+    OwnerServiceInfo ownerInfo2 = Mapper.INSTANCE.readValue(data, OwnerServiceInfo.class);
+    assertTrue(ownerInfo2.isDone());
+    assertTrue(ownerInfo2.getServiceInfo().isEmpty());
+  }
+
+  @Test
+  public void encryptionStateTest() throws IOException {
+    EncryptionState state = new EncryptionState();
+    state.setCipherSuite(CipherSuiteType.COSE_AES128_CTR);
+    state.setSek(new byte[16]);
+    state.setIv(new byte[]{1, 2, 3});
+    state.setCounter(0x1_0000_0001L);
+
+    byte[] data = Mapper.INSTANCE.writeValue(state);
+    assertArrayEquals(generic.writeValueAsBytes(Arrays.asList(
+        state.getCipherSuite().toInteger(), state.getSek(), null, state.getIv(),
+        state.getCounter())), data);
+
+    EncryptionState state2 = Mapper.INSTANCE.readValue(data, EncryptionState.class);
+    assertEquals(state.getCipherSuite(), state2.getCipherSuite());
+    assertArrayEquals(state.getSek(), state2.getSek());
+    assertNull(state2.getSev());
+    assertEquals(state.getCounter(), state2.getCounter());
+
+    //session storage decodes through the tree model
+    SimpleStorage storage = new SimpleStorage();
+    storage.put(EncryptionState.class, state);
+    data = Mapper.INSTANCE.writeValue(storage);
+    state2 = Mapper.INSTANCE.readValue(data, SimpleStorage.class).get(EncryptionState.class);
+    assertArrayEquals(state.getIv(), state2.getIv());
+    assertEquals(state.getCounter(), state2.getCounter());
+  }
+
+  @Test
+  public void helloDeviceTest() throws IOException {
+    SigInfo sigInfo = new SigInfo();
+    sigInfo.setSigInfoType(SigInfoType.SECP384R1);
+
+    HelloDevice hello = new HelloDevice();
+    hello.setMaxMessageSize(1300);
+    hello.setGuid(Guid.fromRandomUuid());
+    hello.setProveTo2Ov(Nonce.fromRandomUuid());
+    hello.setKexSuiteName("ECDH384");
+    hello.setCipherSuiteName(CipherSuiteType.A256GCM);
+    hello.setSigInfo(sigInfo);
+
+    byte[] data = Mapper.INSTANCE.writeValue(hello);
+    assertArrayEquals(generic.writeValueAsBytes(Arrays.asList(1300, hello.getGuid(),
+        hello.getProveTo2Ov(), "ECDH384", CipherSuiteType.A256GCM.toInteger(), sigInfo)), data);
+
+    HelloDevice hello2 = Mapper.INSTANCE.readValue(data, HelloDevice.class);
+    assertEquals(hello.getGuid(), hello2.getGuid());
+    assertEquals(hello.getProveTo2Ov(), hello2.getProveTo2Ov());
+    assertEquals(hello.getKexSuiteName(), hello2.getKexSuiteName());
+    assertEquals(hello.getCipherSuiteType(), hello2.getCipherSuiteType());
+    assertEquals(SigInfoType.SECP384R1, hello2.getSigInfo().getSigInfoType());
+  }
+
+  @Test
+  public void proveHeaderTest() throws IOException {
+    Hash hmac = new Hash();
+    hmac.setHashValue(new byte[48]);
+    Hash helloHash = new Hash();
+    helloHash.setHashType(HashType.SHA384);
+    helloHash.setHashValue(new byte[]{9, 8, 7});
+    SigInfo sigInfo = new SigInfo();
+    sigInfo.setSigInfoType(SigInfoType.SECP256R1);
+
+    To2ProveHeaderPayload payload = new To2ProveHeaderPayload();
+    payload.setHeader(new byte[]{(byte) 0x86, 1});
+    payload.setNumEntries(3);
+    payload.setHmac(hmac);
+    payload.setNonce(Nonce.fromRandomUuid());
+    payload.setSigInfoB(sigInfo);
+    payload.setKexA(new byte[]{4, 5});
+    payload.setHelloHash(helloHash);
+    payload.setMaxMessageSize(0);
+
+    byte[] data = Mapper.INSTANCE.writeValue(payload);
+    assertArrayEquals(generic.writeValueAsBytes(Arrays.asList(payload.getHeader(), 3, hmac,
+        payload.getNonce(), sigInfo, payload.getKexA(), helloHash, 0)), data);
+
+    To2ProveHeaderPayload payload2 = Mapper.INSTANCE.readValue(data,
+        To2ProveHeaderPayload.class);
+    assertArrayEquals(payload.getHeader(), payload2.getHeader());
+    assertEquals(3, payload2.getNumEntries());
+    assertEquals(hmac, payload2.getHmac());
+    assertEquals(payload.getNonce(), payload2.getNonce());
+    assertArrayEquals(payload.getKexA(), payload2.getKexA());
+    assertEquals(helloHash, payload2.getHelloHash());
+  }
+}
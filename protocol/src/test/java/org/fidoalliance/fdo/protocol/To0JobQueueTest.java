@@ -0,0 +1,103 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fidoalliance.fdo.protocol.db.To0Job;
+import org.fidoalliance.fdo.protocol.db.To0JobQueue;
+import org.fidoalliance.fdo.protocol.db.To0Registry;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks TO0 api triggers are bounded, coalesced and report their outcome.
+ */
+public class To0JobQueueTest {
+
+  private final CountDownLatch gate = new CountDownLatch(1);
+  private final AtomicInteger runs = new AtomicInteger();
+
+  private long register(String guid) throws IOException {
+    runs.incrementAndGet();
+    try {
+      gate.await();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("interrupted");
+    }
+    if (guid.startsWith("bad")) {
+      throw new IOException("rendezvous server unreachable");
+    }
+    return 3600;
+  }
+
+  private To0Job await(To0JobQueue queue, String guid, To0Job.State state)
+      throws InterruptedException {
+    for (int i = 0; i < 500 && queue.getJob(guid).getState() != state; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(state, queue.getJob(guid).getState());
+    return queue.getJob(guid);
+  }
+
+  @Test
+  public void jobTest() throws Exception {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    try (To0JobQueue queue = new To0JobQueue(1, 2, Duration.ofHours(1), this::register)) {
+
+      assertEquals(To0Job.State.QUEUED, queue.submit("job-good").getState());
+      await(queue, "job-good", To0Job.State.RUNNING);
+      queue.submit("bad-job");
+      queue.submit("job-cancelled");
+
+      // a repeated trigger joins the running job, a full queue rejects new ones
+      assertEquals(2, queue.submit("job-good").getTriggers());
+      assertThrows(RejectedExecutionException.class, () -> queue.submit("job-rejected"));
+      assertNull(queue.getJob("job-rejected"));
+      assertEquals(2, queue.getQueuedCount());
+
+      // a voucher the scheduler is registering is not queued again
+      To0Registry.Run scheduled = To0Registry.acquire("job-scheduled");
+      assertNull(queue.submit("job-scheduled"));
+      scheduled.finish();
+
+      // the voucher was replaced before its job started
+      assertTrue(To0Registry.cancel("job-cancelled"));
+
+      gate.countDown();
+      To0Job good = await(queue, "job-good", To0Job.State.SUCCEEDED);
+      assertEquals(3600L, good.getWaitSeconds());
+      assertTrue(good.getFinishedOn() != null);
+
+      To0Job bad = await(queue, "bad-job", To0Job.State.FAILED);
+      assertEquals("rendezvous server unreachable", bad.getError());
+      assertEquals("cancelled", await(queue, "job-cancelled", To0Job.State.FAILED).getError());
+
+      assertEquals(2, runs.get());
+      assertEquals(3, queue.getSubmittedCount());
+      assertEquals(1, queue.getCoalescedCount());
+      assertEquals(1, queue.getRejectedCount());
+      assertEquals(1, queue.getSucceededCount());
+      assertEquals(2, queue.getFailedCount());
+      assertEquals(3, queue.getJobs().size());
+
+      // a finished job is replaced by a new one
+      To0Job again = queue.submit("job-good");
+      assertEquals(1, again.getTriggers());
+      assertSame(again.getQueuedOn(), queue.getJobs().get(2).getQueuedOn());
+
+      String json = Mapper.INSTANCE.writeJsonValue(bad);
+      assertTrue(json.contains("\"state\":\"failed\""));
+      assertTrue(json.contains("\"error\":\"rendezvous server unreachable\""));
+      await(queue, "job-good", To0Job.State.SUCCEEDED);
+    }
+  }
+}
@@ -0,0 +1,323 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.fidoalliance.fdo.protocol.db.To0Registry;
+import org.fidoalliance.fdo.protocol.db.To0Scheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks TO0 registrations are ordered by expiry, rate limited per rendezvous host and
+ * retried with backoff, using a simulated clock and a stub rendezvous server.
+ */
+public class To0SchedulerTest {
+
+  /**
+   * A clock that only moves when told to.
+   */
+  private static class SimulatedClock extends Clock {
+
+    private volatile long millis = 1_000_000_000L;
+
+    void advance(Duration duration) {
+      millis += duration.toMillis();
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+  }
+
+  /**
+   * Registers with the stub server instead of running TO0, by default on the calling thread.
+   */
+  private class TestScheduler extends To0Scheduler {
+
+    private final Map<String, Date> vouchers =
+        Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile CountDownLatch gate;
+
+    TestScheduler() {
+      this(Runnable::run);
+    }
+
+    TestScheduler(Executor executor) {
+      super(clock, executor, new Random(1));
+    }
+
+    void add(String guid, Duration expiresIn) {
+      vouchers.put(guid, expiresIn == null ? null
+          : new Date(clock.millis() + expiresIn.toMillis()));
+    }
+
+    @Override
+    protected Map<String, Date> findDue(Date before) {
+      Map<String, Date> due = new LinkedHashMap<>();
+      vouchers.forEach((guid, expiry) -> {
+        if (expiry == null || expiry.before(before)) {
+          due.put(guid, expiry);
+        }
+      });
+      return due;
+    }
+
+    @Override
+    protected String getRendezvousHost(String guid) {
+      if (!vouchers.containsKey(guid)) {
+        return null;
+      }
+      return guid.startsWith("b-") ? "rv-b:8040" : "rv-a:8040";
+    }
+
+    @Override
+    protected boolean register(String guid) throws IOException {
+      if (gate != null) {
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException("cancelled");
+        }
+      }
+      URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/to0/" + guid);
+      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+      conn.setRequestMethod("POST");
+      try {
+        boolean accepted = conn.getResponseCode() == HttpURLConnection.HTTP_OK;
+        if (accepted) {
+          vouchers.remove(guid);
+        }
+        return accepted;
+      } finally {
+        conn.disconnect();
+      }
+    }
+  }
+
+  private final SimulatedClock clock = new SimulatedClock();
+  private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+  private volatile boolean failing;
+  private HttpServer server;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    // the configuration creates a To0Scheduler worker, load it before the scheduler class
+    Config.getPath();
+
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/to0/", exchange -> {
+      String guid = exchange.getRequestURI().getPath().substring("/to0/".length());
+      requests.computeIfAbsent(guid, k -> new AtomicInteger()).incrementAndGet();
+      exchange.sendResponseHeaders(failing ? 500 : 200, -1);
+      exchange.close();
+    });
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private void await(LongSupplier value, long expected) throws InterruptedException {
+    for (int i = 0; i < 500 && value.getAsLong() != expected; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, value.getAsLong());
+  }
+
+  private int count(String prefix) {
+    return requests.entrySet().stream()
+        .filter(e -> e.getKey().startsWith(prefix))
+        .mapToInt(e -> e.getValue().get()).sum();
+  }
+
+  @Test
+  public void rateLimitTest() throws IOException {
+    TestScheduler scheduler = new TestScheduler();
+    for (int i = 0; i < 10; i++) {
+      scheduler.add("a-" + i, null);
+    }
+    scheduler.add("b-0", null);
+    scheduler.add("b-1", null);
+    scheduler.refresh();
+
+    // past the jitter everything is due, each host gets its burst of 4
+    clock.advance(Duration.ofSeconds(30));
+    scheduler.dispatch();
+    assertEquals(4, count("a-"));
+    assertEquals(2, count("b-"));
+
+    // then 2 per second
+    clock.advance(Duration.ofSeconds(1));
+    scheduler.dispatch();
+    assertEquals(6, count("a-"));
+    clock.advance(Duration.ofSeconds(2));
+    scheduler.dispatch();
+    assertEquals(10, count("a-"));
+
+    assertEquals(12, scheduler.getSucceededCount());
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void expiryOrderTest() throws IOException {
+    TestScheduler scheduler = new TestScheduler();
+    // renewed 600 seconds before expiry, plus up to 30 seconds of jitter
+    scheduler.add("a-soon", Duration.ofSeconds(650));
+    scheduler.add("a-later", Duration.ofSeconds(700));
+    scheduler.add("a-distant", Duration.ofHours(2));
+    scheduler.refresh();
+    assertEquals(2, scheduler.getPendingCount());
+
+    clock.advance(Duration.ofSeconds(49));
+    scheduler.dispatch();
+    assertEquals(0, count("a-"));
+
+    clock.advance(Duration.ofSeconds(31));
+    scheduler.dispatch();
+    assertEquals(1, count("a-soon"));
+    assertEquals(0, count("a-later"));
+
+    clock.advance(Duration.ofSeconds(50));
+    scheduler.dispatch();
+    assertEquals(1, count("a-later"));
+    assertEquals(0, count("a-distant"));
+  }
+
+  @Test
+  public void backoffTest() throws IOException {
+    TestScheduler scheduler = new TestScheduler();
+    scheduler.add("a-0", null);
+    scheduler.add("a-gone", null);
+    scheduler.refresh();
+    failing = true;
+
+    clock.advance(Duration.ofSeconds(30));
+    scheduler.vouchers.remove("a-gone");
+    scheduler.dispatch();
+    assertEquals(1, count("a-0"));
+    assertEquals(0, count("a-gone"));
+
+    // retried after 60 seconds plus jitter, then after 120
+    clock.advance(Duration.ofSeconds(59));
+    scheduler.dispatch();
+    assertEquals(1, count("a-0"));
+    clock.advance(Duration.ofSeconds(31));
+    scheduler.dispatch();
+    assertEquals(2, count("a-0"));
+
+    clock.advance(Duration.ofSeconds(119));
+    scheduler.dispatch();
+    assertEquals(2, count("a-0"));
+    clock.advance(Duration.ofSeconds(31));
+    scheduler.dispatch();
+    assertEquals(3, count("a-0"));
+
+    // a refresh does not reset the backoff
+    scheduler.refresh();
+    scheduler.dispatch();
+    assertEquals(3, count("a-0"));
+
+    failing = false;
+    clock.advance(Duration.ofSeconds(270));
+    scheduler.dispatch();
+    assertEquals(4, count("a-0"));
+    assertEquals(3, scheduler.getFailedCount());
+    assertEquals(1, scheduler.getSucceededCount());
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void queueTest() throws Exception {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(1));
+    try {
+      TestScheduler scheduler = new TestScheduler(executor);
+
+      // a voucher already being registered is skipped
+      scheduler.add("q-0", null);
+      scheduler.refresh();
+      To0Registry.Run other = To0Registry.acquire("q-0");
+      clock.advance(Duration.ofSeconds(30));
+      scheduler.dispatch();
+      assertEquals(1, scheduler.getSkippedCount());
+      assertEquals(0, scheduler.getPendingCount());
+      other.finish();
+      scheduler.vouchers.remove("q-0");
+
+      // one running and one queued, the third waits for the next tick
+      scheduler.gate = new CountDownLatch(1);
+      for (int i = 1; i <= 3; i++) {
+        scheduler.add("q-" + i, null);
+      }
+      scheduler.refresh();
+      clock.advance(Duration.ofSeconds(30));
+      scheduler.dispatch();
+      assertEquals(2, scheduler.getStartedCount());
+      assertEquals(1, scheduler.getRejectedCount());
+      assertEquals(2, To0Registry.getInFlightCount());
+
+      // replacing the vouchers cancels the running and the queued registration
+      int cancelled = 0;
+      for (int i = 1; i <= 3; i++) {
+        if (To0Registry.cancel("q-" + i)) {
+          cancelled++;
+        }
+      }
+      assertEquals(2, cancelled);
+      await(scheduler::getCancelledCount, 2);
+      assertEquals(1, scheduler.getPendingCount());
+      assertEquals(0, count("q-"));
+
+      // the rejected one is retried after a second plus jitter
+      scheduler.gate.countDown();
+      clock.advance(Duration.ofSeconds(31));
+      scheduler.dispatch();
+      await(scheduler::getSucceededCount, 1);
+      assertEquals(1, count("q-"));
+      assertEquals(0, scheduler.getPendingCount());
+      assertEquals(0, To0Registry.getInFlightCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
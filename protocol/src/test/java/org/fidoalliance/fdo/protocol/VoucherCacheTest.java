@@ -0,0 +1,103 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fidoalliance.fdo.protocol.db.VoucherCache;
+import org.fidoalliance.fdo.protocol.message.Hash;
+import org.fidoalliance.fdo.protocol.message.HashType;
+import org.fidoalliance.fdo.protocol.message.OwnershipVoucher;
+import org.fidoalliance.fdo.protocol.message.OwnershipVoucherEntries;
+import org.fidoalliance.fdo.protocol.message.ProtocolVersion;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks decoded vouchers are cached, invalidated and evicted by size.
+ */
+public class VoucherCacheTest {
+
+  private byte[] newVoucher(int headerSize) throws IOException {
+    Hash hmac = new Hash();
+    hmac.setHashType(HashType.HMAC_SHA384);
+    hmac.setHashValue(new byte[48]);
+
+    OwnershipVoucher voucher = new OwnershipVoucher();
+    voucher.setVersion(ProtocolVersion.current());
+    voucher.setHeader(new byte[headerSize]);
+    voucher.setHmac(hmac);
+    voucher.setEntries(new OwnershipVoucherEntries());
+    return Mapper.INSTANCE.writeValue(voucher);
+  }
+
+  @Test
+  public void cacheTest() throws IOException {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    VoucherCache.invalidateAll();
+    final byte[] data = newVoucher(100);
+    AtomicInteger loads = new AtomicInteger();
+
+    OwnershipVoucher voucher = VoucherCache.get("a", () -> {
+      loads.incrementAndGet();
+      return data;
+    });
+    assertArrayEquals(new byte[100], voucher.getHeader());
+    assertSame(voucher, VoucherCache.get("a", () -> {
+      loads.incrementAndGet();
+      return data;
+    }));
+    assertEquals(1, loads.get());
+    assertEquals(data.length, VoucherCache.getSize());
+
+    VoucherCache.invalidate("a");
+    assertEquals(0, VoucherCache.getSize());
+    VoucherCache.get("a", () -> {
+      loads.incrementAndGet();
+      return data;
+    });
+    assertEquals(2, loads.get());
+
+    // unknown vouchers are not cached
+    assertNull(VoucherCache.get("missing", () -> null));
+
+    // a write that completes while loading must not leave the old voucher cached
+    VoucherCache.get("b", () -> {
+      VoucherCache.invalidate("b");
+      return data;
+    });
+    assertEquals(data.length, VoucherCache.getSize());
+  }
+
+  @Test
+  public void evictionTest() throws IOException {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    VoucherCache.invalidateAll();
+    final byte[] data = newVoucher(1000);
+    final long evictions = VoucherCache.getEvictionCount();
+    try {
+      VoucherCache.setMaxBytes(data.length * 2L);
+      VoucherCache.get("a", () -> data);
+      VoucherCache.get("b", () -> data);
+      VoucherCache.get("a", () -> data);
+
+      // b is least recently used
+      VoucherCache.get("c", () -> data);
+      assertEquals(evictions + 1, VoucherCache.getEvictionCount());
+      assertEquals(data.length * 2L, VoucherCache.getSize());
+
+      final long misses = VoucherCache.getMissCount();
+      VoucherCache.get("a", () -> data);
+      VoucherCache.get("c", () -> data);
+      assertEquals(misses, VoucherCache.getMissCount());
+      VoucherCache.get("b", () -> data);
+      assertEquals(misses + 1, VoucherCache.getMissCount());
+    } finally {
+      VoucherCache.setMaxBytes(16 * 1024 * 1024);
+      VoucherCache.invalidateAll();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package org.fidoalliance.fdo.protocol;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.fidoalliance.fdo.protocol.db.HibernateUtil;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucher;
+import org.fidoalliance.fdo.protocol.entity.OnboardingVoucherStatus;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks voucher status reads and updates leave the voucher LOBs alone.
+ */
+public class VoucherStatusTest {
+
+  private static final String GUID = "cccccccc-0000-0000-0000-000000000001";
+
+  /**
+   * Records the SQL sent by the session factory.
+   */
+  public static class SqlRecorder implements StatementInspector {
+
+    static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+      statements.add(sql);
+      return sql;
+    }
+  }
+
+  @Test
+  public void statusTest() {
+    System.setProperty("fdo.config.home", new File("src/test/resources").getAbsolutePath());
+    SessionFactory factory = HibernateUtil.buildReplicaSessionFactory(Map.of(
+        "hibernate.connection.url", "jdbc:h2:mem:status;DB_CLOSE_DELAY=-1",
+        "hibernate.hbm2ddl.auto", "create-drop",
+        "hibernate.generate_statistics", "true",
+        "hibernate.session_factory.statement_inspector", SqlRecorder.class.getName()));
+    try {
+      try (Session session = factory.openSession()) {
+        Transaction trans = session.beginTransaction();
+        OnboardingVoucher voucher = new OnboardingVoucher();
+        voucher.setGuid(GUID);
+        voucher.setData(new byte[4096]);
+        voucher.setCreatedOn(new Date());
+        session.persist(voucher);
+        trans.commit();
+      }
+
+      Statistics stats = factory.getStatistics();
+      stats.clear();
+      SqlRecorder.statements.clear();
+
+      // TO0 acceptance and TO2 completion
+      try (Session session = factory.openSession()) {
+        Transaction trans = session.beginTransaction();
+        OnboardingVoucherStatus status = session.find(OnboardingVoucherStatus.class, GUID);
+        status.setTo0Expiry(new Date());
+        trans.commit();
+
+        trans = session.beginTransaction();
+        status.setTo2CompletedOn(new Date());
+        trans.commit();
+      }
+
+      // device state
+      try (Session session = factory.openSession()) {
+        assertNotNull(session.find(OnboardingVoucherStatus.class, GUID).getTo2CompletedOn());
+      }
+
+      assertEquals(0, stats.getEntityStatistics(OnboardingVoucher.class.getName())
+          .getLoadCount());
+      assertEquals(2, stats.getEntityStatistics(OnboardingVoucherStatus.class.getName())
+          .getLoadCount());
+      assertEquals(2, stats.getEntityStatistics(OnboardingVoucherStatus.class.getName())
+          .getUpdateCount());
+      assertEquals(4, SqlRecorder.statements.size());
+      for (String sql : SqlRecorder.statements) {
+        assertFalse(sql.contains("data") || sql.contains("replacement"), sql);
+      }
+
+      try (Session session = factory.openSession()) {
+        OnboardingVoucher voucher = session.find(OnboardingVoucher.class, GUID);
+        assertArrayEquals(new byte[4096], voucher.getData());
+        assertNotNull(voucher.getTo0Expiry());
+      }
+    } finally {
+      factory.close();
+    }
+  }
+}